@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.io;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A per-thread cache of the character buffers of {@link BufferedReader}
+ * and {@link BufferedWriter} instances created with the default buffer size.
+ * When the cache is enabled, such a reader or writer takes its buffer from
+ * the cache of the thread constructing it, if one is available, and returns
+ * it to the cache of the thread closing it.  Programs that create and close
+ * many short-lived readers and writers then allocate far fewer buffers.
+ *
+ * <p> The cache is enabled if the system property
+ * {@code java.io.recycleBuffers} is {@code true} when this class is
+ * initialized.  It holds at most two buffers per thread, and
+ * buffers of readers and writers that are never closed are simply left to
+ * the garbage collector.
+ *
+ * <p> The statistics methods of this class report how often buffers were
+ * reused.  They may be called whether or not the cache is enabled, but all
+ * counts are zero when it is not.
+ *
+ * @since 1.8
+ */
+public final class BufferRecycler {
+
+    /** Should buffers be recycled? */
+    private static final boolean ENABLED =
+        java.security.AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction("java.io.recycleBuffers"));
+
+    /** Size of the buffers cached, the default size of the buffered classes */
+    static final int CHAR_BUFFER_SIZE = 8192;
+
+    /** Number of buffers cached per thread */
+    private static final int SLOTS = 2;
+
+    private static final ThreadLocal<char[][]> charBuffers =
+        new ThreadLocal<char[][]>() {
+            @Override
+            protected char[][] initialValue() {
+                return new char[SLOTS][];
+            }
+        };
+
+    private static final LongAdder allocated = new LongAdder();
+    private static final LongAdder reused = new LongAdder();
+    private static final LongAdder recycled = new LongAdder();
+    private static final LongAdder discarded = new LongAdder();
+
+    private BufferRecycler() { }
+
+    /**
+     * Returns a character buffer of the given size, taken from the cache of
+     * the current thread if possible.
+     */
+    static char[] getCharBuffer(int size) {
+        if (!ENABLED || size != CHAR_BUFFER_SIZE)
+            return new char[size];
+        char[][] slots = charBuffers.get();
+        for (int i = 0; i < SLOTS; i++) {
+            char[] cb = slots[i];
+            if (cb != null) {
+                slots[i] = null;
+                reused.increment();
+                return cb;
+            }
+        }
+        allocated.increment();
+        return new char[size];
+    }
+
+    /**
+     * Returns a character buffer that is no longer used to the cache of the
+     * current thread, if it has room for it.  The caller must not use the
+     * buffer afterwards.
+     */
+    static void recycle(char[] cb) {
+        if (!ENABLED || cb == null || cb.length != CHAR_BUFFER_SIZE)
+            return;
+        char[][] slots = charBuffers.get();
+        for (int i = 0; i < SLOTS; i++) {
+            if (slots[i] == null) {
+                slots[i] = cb;
+                recycled.increment();
+                return;
+            }
+        }
+        discarded.increment();
+    }
+
+    /**
+     * Returns whether buffers are recycled.
+     *
+     * @return {@code true} if the system property
+     *         {@code java.io.recycleBuffers} was {@code true} when this class
+     *         was initialized
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the number of buffers newly allocated because the cache of the
+     * requesting thread was empty.
+     *
+     * @return the number of buffers allocated
+     */
+    public static long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    /**
+     * Returns the number of buffers taken from a cache.
+     *
+     * @return the number of buffers reused
+     */
+    public static long getReusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Returns the number of buffers returned to a cache on close.
+     *
+     * @return the number of buffers recycled
+     */
+    public static long getRecycledCount() {
+        return recycled.sum();
+    }
+
+    /**
+     * Returns the number of buffers left to the garbage collector on close
+     * because the cache of the closing thread was full.
+     *
+     * @return the number of buffers discarded
+     */
+    public static long getDiscardedCount() {
+        return discarded.sum();
+    }
+
+    /**
+     * Returns the fraction of buffer requests served from a cache, between
+     * {@code 0.0} and {@code 1.0}, or {@code 0.0} if there were none.
+     *
+     * @return the reuse rate
+     */
+    public static double getReuseRate() {
+        long r = reused.sum();
+        long total = r + allocated.sum();
+        return (total == 0L) ? 0.0 : (double) r / total;
+    }
+}
@@ -102,7 +102,7 @@ public class BufferedReader extends Reader {
         if (sz <= 0)
             throw new IllegalArgumentException("Buffer size <= 0");
         this.in = in;
-        cb = new char[sz];
+        cb = BufferRecycler.getCharBuffer(sz);
         nextChar = nChars = 0;
     }
 
@@ -525,6 +525,7 @@ public class BufferedReader extends Reader {
                 in.close();
             } finally {
                 in = null;
+                BufferRecycler.recycle(cb);
                 cb = null;
             }
         }
@@ -102,7 +102,7 @@ public class BufferedWriter extends Writer {
         if (sz <= 0)
             throw new IllegalArgumentException("Buffer size <= 0");
         this.out = out;
-        cb = new char[sz];
+        cb = BufferRecycler.getCharBuffer(sz);
         nChars = sz;
         nextChar = 0;
 
@@ -265,6 +265,7 @@ public class BufferedWriter extends Writer {
                 flushBuffer();
             } finally {
                 out = null;
+                BufferRecycler.recycle(cb);
                 cb = null;
             }
         }
@@ -25,6 +25,7 @@
 
 package java.io;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -191,6 +192,26 @@ public class ByteArrayOutputStream extends OutputStream {
         return Arrays.copyOf(buf, count);
     }
 
+    /**
+     * Returns a read-only view of the current contents of this output
+     * stream, without copying them.  The position of the returned buffer is
+     * zero and its limit and capacity are the current size of this output
+     * stream.
+     *
+     * <p> The returned buffer shares the internal buffer of this output
+     * stream.  Bytes subsequently written may overwrite its contents after a
+     * call to {@link #reset()}, and are not visible through it otherwise;
+     * callers that keep writing should use {@link #toByteArray()} instead.
+     *
+     * @return  the current contents of this output stream, as a read-only
+     *          byte buffer.
+     * @see     java.io.ByteArrayOutputStream#toByteArray()
+     * @since   1.8
+     */
+    public synchronized ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count).slice().asReadOnlyBuffer();
+    }
+
     /**
      * Returns the current size of the buffer.
      *
@@ -30,6 +30,7 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.nio.ByteOrder;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -49,6 +50,7 @@ import sun.misc.ObjectStreamClassValidator;
 import sun.misc.SharedSecrets;
 import sun.reflect.misc.ReflectUtil;
 import sun.misc.JavaOISAccess;
+import sun.misc.Unsafe;
 import sun.util.logging.PlatformLogger;
 
 /**
@@ -312,6 +314,10 @@ public class ObjectInputStream
     private final boolean enableOverride;
     /** if true, invoke resolveObject() */
     private boolean enableResolve;
+    /** if true, class descriptors are kept across resets */
+    private boolean retainDescriptors;
+    /** if true, objects and arrays read are kept for back references */
+    private boolean trackReferences = true;
 
     /**
      * Context during upcalls to class-defined readObject methods; holds
@@ -846,6 +852,67 @@ public class ObjectInputStream
         return !enableResolve;
     }
 
+    /**
+     * Enables or disables keeping class descriptors across stream resets.
+     * When enabled, a reset written by the corresponding
+     * <code>ObjectOutputStream</code> still disregards the objects read so
+     * far, but the class descriptors read so far remain available to
+     * back references, in the order in which they were read.
+     *
+     * <p>This extends the serialization stream protocol, and retention must
+     * be enabled exactly when the <code>ObjectOutputStream</code> had it
+     * enabled at the point it wrote the reset; see
+     * {@link ObjectOutputStream#enableDescriptorRetention(boolean)}.  On
+     * such a reset, the handles of the class descriptors read so far, other
+     * than those read by {@link #readUnshared readUnshared}, are renumbered
+     * in ascending order from <code>baseWireHandle</code>.  A descriptor
+     * whose class could not be resolved is retained as well, and back
+     * references to it after the reset still report the
+     * <code>ClassNotFoundException</code>.  If the two streams disagree,
+     * back references after the reset fail with a
+     * <code>StreamCorruptedException</code> or resolve to the wrong
+     * objects; the stream format gives no means of detecting this.
+     *
+     * @param   enable true to keep class descriptors across resets
+     * @return  the previous setting before this method was invoked
+     * @see ObjectOutputStream#enableDescriptorRetention(boolean)
+     * @since 1.8
+     */
+    public boolean enableDescriptorRetention(boolean enable) {
+        boolean previous = retainDescriptors;
+        retainDescriptors = enable;
+        return previous;
+    }
+
+    /**
+     * Enables or disables back reference tracking of objects and arrays.
+     * By default every object and array read from the stream is kept in
+     * the stream's handle table until the stream is reset or closed, so
+     * that later back references to it can be resolved.  When tracking is
+     * disabled, objects and arrays are read as if by
+     * {@link #readUnshared readUnshared}: they are no longer retained by
+     * the stream, and can be reclaimed as soon as the application drops
+     * them, but a back reference to one of them causes an
+     * <code>InvalidObjectException</code> to be thrown.  Strings, enum
+     * constants, classes and class descriptors are always tracked.
+     *
+     * <p>Disabling tracking is intended for long streams of trees that
+     * are known not to share objects or arrays, for example snapshots
+     * written object by object.  It only affects objects and arrays read
+     * after this method is invoked and does not change the stream format;
+     * the stream may be written by any <code>ObjectOutputStream</code>.
+     *
+     * @param   enable true to keep objects and arrays for back references
+     * @return  the previous setting before this method was invoked
+     * @see #readUnshared()
+     * @since 1.8
+     */
+    public boolean enableReferenceTracking(boolean enable) {
+        boolean previous = trackReferences;
+        trackReferences = enable;
+        return previous;
+    }
+
     /**
      * The readStreamHeader method is provided to allow subclasses to read and
      * verify their own stream headers. It reads and verifies the magic number
@@ -1629,7 +1696,11 @@ public class ObjectInputStream
                     filterCheck(rep.getClass(), -1);
                 }
             }
-            handles.setObject(passHandle, rep);
+            if (trackReferences ||
+                handles.lookupObject(passHandle) != unsharedMarker)
+            {
+                handles.setObject(passHandle, rep);
+            }
         }
         return rep;
     }
@@ -1939,7 +2010,8 @@ public class ObjectInputStream
             array = Array.newInstance(ccl, len);
         }
 
-        int arrayHandle = handles.assign(unshared ? unsharedMarker : array);
+        int arrayHandle = handles.assign(
+            (unshared || !trackReferences) ? unsharedMarker : array);
         ClassNotFoundException resolveEx = desc.getResolveException();
         if (resolveEx != null) {
             handles.markException(arrayHandle, resolveEx);
@@ -2057,7 +2129,8 @@ public class ObjectInputStream
                 "unable to create instance").initCause(ex);
         }
 
-        passHandle = handles.assign(unshared ? unsharedMarker : obj);
+        passHandle = handles.assign(
+            (unshared || !trackReferences) ? unsharedMarker : obj);
         ClassNotFoundException resolveEx = desc.getResolveException();
         if (resolveEx != null) {
             handles.markException(passHandle, resolveEx);
@@ -2088,7 +2161,10 @@ public class ObjectInputStream
                         filterCheck(rep.getClass(), -1);
                     }
                 }
-                handles.setObject(passHandle, obj = rep);
+                if (trackReferences) {
+                    handles.setObject(passHandle, rep);
+                }
+                obj = rep;
             }
         }
 
@@ -2318,7 +2394,12 @@ public class ObjectInputStream
             throw new StreamCorruptedException(
                 "unexpected reset; recursion depth: " + depth);
         }
-        clear();
+        if (retainDescriptors) {
+            handles.retainOnly(ObjectStreamClass.class);
+            vlist.clear();
+        } else {
+            clear();
+        }
     }
 
     /**
@@ -2712,6 +2793,61 @@ public class ObjectInputStream
         }
     }
 
+    /**
+     * Decodes big-endian primitive array data using word-sized loads rather
+     * than assembling each value byte by byte.  Source data is always
+     * expected to start at offset 0 of the byte array, so that every load
+     * is aligned to the size of the value being read.
+     */
+    private static final class BulkDecoder {
+        private static final Unsafe unsafe = Unsafe.getUnsafe();
+        private static final long BYTE_BASE =
+            unsafe.arrayBaseOffset(byte[].class);
+        private static final boolean BIG_ENDIAN =
+            ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+        /** true if word-sized loads from byte arrays are aligned */
+        static final boolean ENABLED =
+            (BYTE_BASE & 7) == 0 && unsafe.arrayIndexScale(byte[].class) == 1;
+
+        private BulkDecoder() {}
+
+        private static int getInt(byte[] b, long pos) {
+            int v = unsafe.getInt(b, BYTE_BASE + pos);
+            return BIG_ENDIAN ? v : Integer.reverseBytes(v);
+        }
+
+        private static long getLong(byte[] b, long pos) {
+            long v = unsafe.getLong(b, BYTE_BASE + pos);
+            return BIG_ENDIAN ? v : Long.reverseBytes(v);
+        }
+
+        static void getInts(byte[] src, int[] dst, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] = getInt(src, (long) i << 2);
+            }
+        }
+
+        static void getFloats(byte[] src, float[] dst, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] = Float.intBitsToFloat(getInt(src, (long) i << 2));
+            }
+        }
+
+        static void getLongs(byte[] src, long[] dst, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] = getLong(src, (long) i << 3);
+            }
+        }
+
+        static void getDoubles(byte[] src, double[] dst, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] =
+                    Double.longBitsToDouble(getLong(src, (long) i << 3));
+            }
+        }
+    }
+
     /**
      * Input stream with two modes: in default mode, inputs data written in the
      * same format as DataOutputStream; in "block data" mode, inputs data
@@ -2729,6 +2865,8 @@ public class ObjectInputStream
         private static final int MAX_HEADER_SIZE = 5;
         /** (tunable) length of char buffer (for reading strings) */
         private static final int CHAR_BUF_SIZE = 256;
+        /** (tunable) length of buffer for large primitive array reads */
+        private static final int ARRAY_BUF_SIZE = 8192;
         /** readBlockHeader() return value indicating header read may block */
         private static final int HEADER_BLOCKED = -2;
 
@@ -2738,6 +2876,8 @@ public class ObjectInputStream
         private final byte[] hbuf = new byte[MAX_HEADER_SIZE];
         /** char buffer for fast string reads */
         private final char[] cbuf = new char[CHAR_BUF_SIZE];
+        /** buffer for large primitive array reads, allocated on first use */
+        private byte[] abuf;
 
         /** block data mode */
         private boolean blkmode = false;
@@ -3305,6 +3445,10 @@ public class ObjectInputStream
         }
 
         void readInts(int[] v, int off, int len) throws IOException {
+            if (!blkmode && BulkDecoder.ENABLED) {
+                readIntsUnblocked(v, off, len);
+                return;
+            }
             int stop, endoff = off + len;
             while (off < endoff) {
                 if (!blkmode) {
@@ -3327,6 +3471,10 @@ public class ObjectInputStream
         }
 
         void readFloats(float[] v, int off, int len) throws IOException {
+            if (!blkmode && BulkDecoder.ENABLED) {
+                readFloatsUnblocked(v, off, len);
+                return;
+            }
             int span, endoff = off + len;
             while (off < endoff) {
                 if (!blkmode) {
@@ -3347,6 +3495,10 @@ public class ObjectInputStream
         }
 
         void readLongs(long[] v, int off, int len) throws IOException {
+            if (!blkmode && BulkDecoder.ENABLED) {
+                readLongsUnblocked(v, off, len);
+                return;
+            }
             int stop, endoff = off + len;
             while (off < endoff) {
                 if (!blkmode) {
@@ -3369,6 +3521,10 @@ public class ObjectInputStream
         }
 
         void readDoubles(double[] v, int off, int len) throws IOException {
+            if (!blkmode && BulkDecoder.ENABLED) {
+                readDoublesUnblocked(v, off, len);
+                return;
+            }
             int span, endoff = off + len;
             while (off < endoff) {
                 if (!blkmode) {
@@ -3388,6 +3544,74 @@ public class ObjectInputStream
             }
         }
 
+        /**
+         * Returns a buffer for reading the given number of bytes of
+         * primitive array data outside of block data mode: buf if the data
+         * fits, otherwise a larger buffer allocated on first use.
+         */
+        private byte[] arrayBuffer(int nbytes) {
+            if (nbytes <= MAX_BLOCK_SIZE) {
+                return buf;
+            }
+            byte[] b = abuf;
+            if (b == null) {
+                abuf = b = new byte[ARRAY_BUF_SIZE];
+            }
+            return b;
+        }
+
+        private void readIntsUnblocked(int[] v, int off, int len)
+            throws IOException
+        {
+            byte[] b = arrayBuffer(len << 2);
+            int endoff = off + len;
+            while (off < endoff) {
+                int span = Math.min(endoff - off, b.length >> 2);
+                in.readFully(b, 0, span << 2);
+                BulkDecoder.getInts(b, v, off, span);
+                off += span;
+            }
+        }
+
+        private void readFloatsUnblocked(float[] v, int off, int len)
+            throws IOException
+        {
+            byte[] b = arrayBuffer(len << 2);
+            int endoff = off + len;
+            while (off < endoff) {
+                int span = Math.min(endoff - off, b.length >> 2);
+                in.readFully(b, 0, span << 2);
+                BulkDecoder.getFloats(b, v, off, span);
+                off += span;
+            }
+        }
+
+        private void readLongsUnblocked(long[] v, int off, int len)
+            throws IOException
+        {
+            byte[] b = arrayBuffer(len << 3);
+            int endoff = off + len;
+            while (off < endoff) {
+                int span = Math.min(endoff - off, b.length >> 3);
+                in.readFully(b, 0, span << 3);
+                BulkDecoder.getLongs(b, v, off, span);
+                off += span;
+            }
+        }
+
+        private void readDoublesUnblocked(double[] v, int off, int len)
+            throws IOException
+        {
+            byte[] b = arrayBuffer(len << 3);
+            int endoff = off + len;
+            while (off < endoff) {
+                int span = Math.min(endoff - off, b.length >> 3);
+                in.readFully(b, 0, span << 3);
+                BulkDecoder.getDoubles(b, v, off, span);
+                off += span;
+            }
+        }
+
         /**
          * Reads in string written in "long" UTF format.  "Long" UTF format is
          * identical to standard UTF, except that it uses an 8 byte header
@@ -3617,6 +3841,8 @@ public class ObjectInputStream
         Object[] entries;
         /** array mapping handle -> list of dependent handles (if any) */
         HandleList[] deps;
+        /** array mapping handle -> object replaced by its exception (if any) */
+        Object[] failed;
         /** lowest unresolved dependency */
         int lowDep = -1;
         /** number of handles in table */
@@ -3629,6 +3855,7 @@ public class ObjectInputStream
             status = new byte[initialCapacity];
             entries = new Object[initialCapacity];
             deps = new HandleList[initialCapacity];
+            failed = new Object[initialCapacity];
         }
 
         /**
@@ -3706,6 +3933,7 @@ public class ObjectInputStream
             switch (status[handle]) {
                 case STATUS_UNKNOWN:
                     status[handle] = STATUS_EXCEPTION;
+                    failed[handle] = entries[handle];
                     entries[handle] = ex;
 
                     // propagate exception to dependents
@@ -3814,10 +4042,39 @@ public class ObjectInputStream
             Arrays.fill(status, 0, size, (byte) 0);
             Arrays.fill(entries, 0, size, null);
             Arrays.fill(deps, 0, size, null);
+            Arrays.fill(failed, 0, size, null);
             lowDep = -1;
             size = 0;
         }
 
+        /**
+         * Resets table to contain only the objects of the given type, which
+         * are reassigned handles in ascending order of their previous ones.
+         * An object whose handle has an associated ClassNotFoundException is
+         * kept according to its own type, together with the exception, so
+         * that handles are renumbered exactly as by the corresponding
+         * ObjectOutputStream.  Must only be called when no handle is open.
+         */
+        void retainOnly(Class<?> type) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                Object obj = (status[i] == STATUS_EXCEPTION) ?
+                    failed[i] : entries[i];
+                if (type.isInstance(obj)) {
+                    status[n] = status[i];
+                    entries[n] = entries[i];
+                    failed[n] = failed[i];
+                    n++;
+                }
+            }
+            Arrays.fill(status, n, size, (byte) 0);
+            Arrays.fill(entries, n, size, null);
+            Arrays.fill(deps, 0, size, null);
+            Arrays.fill(failed, n, size, null);
+            lowDep = -1;
+            size = n;
+        }
+
         /**
          * Returns number of handles registered in table.
          */
@@ -3834,14 +4091,17 @@ public class ObjectInputStream
             byte[] newStatus = new byte[newCapacity];
             Object[] newEntries = new Object[newCapacity];
             HandleList[] newDeps = new HandleList[newCapacity];
+            Object[] newFailed = new Object[newCapacity];
 
             System.arraycopy(status, 0, newStatus, 0, size);
             System.arraycopy(entries, 0, newEntries, 0, size);
             System.arraycopy(deps, 0, newDeps, 0, size);
+            System.arraycopy(failed, 0, newFailed, 0, size);
 
             status = newStatus;
             entries = newEntries;
             deps = newDeps;
+            failed = newFailed;
         }
 
         /**
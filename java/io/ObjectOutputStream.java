@@ -191,6 +191,8 @@ public class ObjectOutputStream
     private final boolean enableOverride;
     /** if true, invoke replaceObject() */
     private boolean enableReplace;
+    /** if true, class descriptors are kept across reset() */
+    private boolean retainDescriptors;
 
     // values below valid only during upcalls to writeObject()/writeExternal()
     /**
@@ -499,10 +501,52 @@ public class ObjectOutputStream
         }
         bout.setBlockDataMode(false);
         bout.writeByte(TC_RESET);
-        clear();
+        if (retainDescriptors) {
+            subs.clear();
+            handles.retainOnly(ObjectStreamClass.class);
+        } else {
+            clear();
+        }
         bout.setBlockDataMode(true);
     }
 
+    /**
+     * Enables or disables keeping class descriptors across {@link #reset()}.
+     * When enabled, <code>reset</code> still disregards the state of the
+     * objects already written, but class descriptors already written are
+     * referred to by handle rather than written to the stream again.  This
+     * makes <code>reset</code> cheap enough to call after every message on a
+     * long-lived stream.
+     *
+     * <p>This extends the serialization stream protocol.  The stream grammar
+     * is unchanged, and a reset is still written as <code>TC_RESET</code>,
+     * but a reset written while retention is enabled here does not discard
+     * every handle: the handles of the class descriptors written so far,
+     * other than those written by {@link #writeUnshared writeUnshared}, are
+     * renumbered in ascending order from <code>baseWireHandle</code>, and
+     * the handles assigned after the reset follow them.  Such a stream can
+     * therefore only be read by an <code>ObjectInputStream</code> that has
+     * retention enabled by
+     * {@link ObjectInputStream#enableDescriptorRetention(boolean)} exactly
+     * when it reads those resets.  In particular, an
+     * <code>ObjectInputStream</code> that does not enable retention, such as
+     * one in an earlier release, cannot read it: after the reset its back
+     * references fail with a <code>StreamCorruptedException</code> or
+     * resolve to the wrong objects.  Retention should only be enabled when
+     * both ends of the stream are known to agree on it, for example because
+     * they are the two ends of a connection set up by the same application.
+     *
+     * @param   enable true to keep class descriptors across resets
+     * @return  the previous setting before this method was invoked
+     * @see ObjectInputStream#enableDescriptorRetention(boolean)
+     * @since 1.8
+     */
+    public boolean enableDescriptorRetention(boolean enable) {
+        boolean previous = retainDescriptors;
+        retainDescriptors = enable;
+        return previous;
+    }
+
     /**
      * Subclasses may implement this method to allow class data to be stored in
      * the stream. By default this method does nothing.  The corresponding
@@ -2308,6 +2352,24 @@ public class ObjectOutputStream
             size = 0;
         }
 
+        /**
+         * Resets table to contain only the objects of the given type, which
+         * are reassigned handles in ascending order of their previous ones.
+         */
+        void retainOnly(Class<?> type) {
+            Object[] kept = new Object[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (type.isInstance(objs[i])) {
+                    kept[n++] = objs[i];
+                }
+            }
+            clear();
+            for (int i = 0; i < n; i++) {
+                assign(kept[i]);
+            }
+        }
+
         /**
          * Returns the number of mappings currently in table.
          */
@@ -118,6 +118,35 @@ public class ObjectStreamClass implements Serializable {
         /** queue for WeakReferences to field reflectors keys */
         private static final ReferenceQueue<Class<?>> reflectorsQueue =
             new ReferenceQueue<>();
+
+        /**
+         * per-class fast path to descriptors already in localDescs, avoiding
+         * the WeakClassKey allocation and map lookup of lookup()
+         */
+        static final ClassValue<DescriptorRef> localDescRefs =
+            new ClassValue<DescriptorRef>() {
+                @Override
+                protected DescriptorRef computeValue(Class<?> type) {
+                    return new DescriptorRef();
+                }
+            };
+    }
+
+    /**
+     * Softly held descriptor of a local class, set once computed.
+     */
+    private static final class DescriptorRef {
+        volatile SoftReference<ObjectStreamClass> ref;
+
+        ObjectStreamClass get() {
+            SoftReference<ObjectStreamClass> r = ref;
+            return (r != null) ? r.get() : null;
+        }
+
+        ObjectStreamClass set(ObjectStreamClass desc) {
+            ref = new SoftReference<>(desc);
+            return desc;
+        }
     }
 
     /** class associated with this descriptor (if any) */
@@ -344,6 +373,11 @@ public class ObjectStreamClass implements Serializable {
         if (!(all || Serializable.class.isAssignableFrom(cl))) {
             return null;
         }
+        DescriptorRef descRef = Caches.localDescRefs.get(cl);
+        ObjectStreamClass cached = descRef.get();
+        if (cached != null) {
+            return cached;
+        }
         processQueue(Caches.localDescsQueue, Caches.localDescs);
         WeakClassKey key = new WeakClassKey(cl, Caches.localDescsQueue);
         Reference<?> ref = Caches.localDescs.get(key);
@@ -370,7 +404,7 @@ public class ObjectStreamClass implements Serializable {
         }
 
         if (entry instanceof ObjectStreamClass) {  // check common case first
-            return (ObjectStreamClass) entry;
+            return descRef.set((ObjectStreamClass) entry);
         }
         if (entry instanceof EntryFuture) {
             future = (EntryFuture) entry;
@@ -401,7 +435,7 @@ public class ObjectStreamClass implements Serializable {
         }
 
         if (entry instanceof ObjectStreamClass) {
-            return (ObjectStreamClass) entry;
+            return descRef.set((ObjectStreamClass) entry);
         } else if (entry instanceof RuntimeException) {
             throw (RuntimeException) entry;
         } else if (entry instanceof Error) {
@@ -0,0 +1,1731 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+
+/**
+ * A memory-mapped region of a file that is indexed by <tt>long</tt> and may
+ * therefore be larger than a single {@link MappedByteBuffer}.
+ *
+ * <p> A mapped region is created by the {@link #map map} method, which maps
+ * the region of the file as a sequence of mapped byte buffers of at most a
+ * gigabyte each.  Values are read and written with absolute <i>get</i> and
+ * <i>put</i> methods, for single values or in bulk for primitive arrays, at
+ * byte indexes between zero and the region's {@link #size size}.  Values
+ * that cross the boundary between two underlying buffers are handled
+ * transparently.  Unlike buffers a region has no position, limit or mark.
+ *
+ * <p> Multi-byte values are composed and decomposed according to the
+ * region's {@link #order() byte order}, initially {@link
+ * ByteOrder#BIG_ENDIAN BIG_ENDIAN}.
+ *
+ * <p> A mapped region remains valid until it is {@link #close closed}.
+ * Closing a region unmaps it immediately, rather than when the buffers are
+ * garbage-collected, so that address space is released and, on platforms
+ * that do not allow it while a file is mapped, the file can be deleted.
+ * Once closed, any further attempt to access the region causes an {@link
+ * IllegalStateException} to be thrown.  As with {@link MappedByteBuffer},
+ * the content of a region may change at any time if the mapped file is
+ * changed, and accessing a part of the region that has become inaccessible
+ * causes an unspecified exception to be thrown.
+ *
+ * <p> Mapped regions are safe for use by multiple concurrent threads, with
+ * the exception of {@link #order(ByteOrder)}:  the byte order should be set
+ * before the region is shared.  A region may be closed while other threads
+ * are accessing it:  the region is unmapped once the accesses in progress
+ * have completed, and accesses that start after the region is closed fail
+ * with an {@link IllegalStateException}.
+ *
+ * @see java.nio.channels.FileChannel#map
+ * @since 1.8
+ */
+
+public final class MappedRegion
+    implements Closeable
+{
+
+    // Each buffer maps CHUNK_SIZE bytes of the region.  The buffers do not
+    // overlap, as separate mappings of the same bytes need not agree in
+    // PRIVATE mode, so a value that crosses the end of a chunk is read or
+    // written byte by byte through the buffers that hold its bytes.
+    private static final int CHUNK_SHIFT = 30;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Accesses in progress are counted in one of STRIPES slots, chosen by
+    // thread and spaced a cache line apart, so that threads accessing a
+    // region concurrently do not contend on a single counter
+    private static final int STRIPES = stripes();
+    private static final int PAD_SHIFT = 4;
+
+    private static int stripes() {
+        int n = Runtime.getRuntime().availableProcessors();
+        int s = 1;
+        while (s < n && s < 64)
+            s <<= 1;
+        return s;
+    }
+
+    // Used by advise so that the reads touching pages are not optimized away
+    private static byte unused;
+
+    /**
+     * Hints given to {@link #advise advise} about how a range of a mapped
+     * region is going to be accessed, in the manner of the POSIX
+     * <tt>madvise</tt> function.
+     *
+     * @since 1.8
+     */
+    public enum AccessHint {
+        /**
+         * No particular access pattern is expected.
+         */
+        NORMAL,
+
+        /**
+         * The range is expected to be accessed sequentially, from lower to
+         * higher indexes.
+         */
+        SEQUENTIAL,
+
+        /**
+         * The range is expected to be accessed in random order.
+         */
+        RANDOM,
+
+        /**
+         * The range is expected to be accessed soon, and should be brought
+         * into physical memory.
+         */
+        WILL_NEED;
+    }
+
+    private final long size;
+    private final boolean readOnly;
+    private final MappedByteBuffer[] chunks;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+    // The number of accesses in progress, by stripe.  Once closed is set,
+    // the buffers are unmapped when every stripe has dropped to zero.
+    private final AtomicIntegerArray accesses =
+        new AtomicIntegerArray(STRIPES << PAD_SHIFT);
+    private volatile boolean closed;
+
+    private MappedRegion(MappedByteBuffer[] chunks, long size,
+                         boolean readOnly)
+    {
+        this.chunks = chunks;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Maps a region of the given channel's file directly into memory.
+     *
+     * <p> The region is mapped with the given mode, as if by invoking the
+     * channel's {@link FileChannel#map map} method for each of its
+     * underlying buffers, and so is subject to the same conditions.  In
+     * particular, in {@link FileChannel.MapMode#READ_WRITE READ_WRITE} mode
+     * the file is extended if the requested region is not completely
+     * contained within it.  Unlike that method, the size of a region is not
+     * limited to {@link java.lang.Integer#MAX_VALUE}.
+     *
+     * <p> The region does not depend on the channel once mapped:  closing
+     * the channel has no effect upon the validity of the region.
+     *
+     * @param  channel
+     *         The file channel to be mapped
+     *
+     * @param  mode
+     *         One of the constants {@link FileChannel.MapMode#READ_ONLY
+     *         READ_ONLY}, {@link FileChannel.MapMode#READ_WRITE READ_WRITE}
+     *         or {@link FileChannel.MapMode#PRIVATE PRIVATE}
+     *
+     * @param  position
+     *         The position within the file at which the mapped region
+     *         is to start; must be non-negative
+     *
+     * @param  size
+     *         The size of the region to be mapped; must be non-negative and
+     *         no greater than <tt>Long.MAX_VALUE - position</tt>, and the
+     *         region must be made up of no more than
+     *         <tt>Integer.MAX_VALUE</tt> underlying buffers
+     *
+     * @return  The mapped region
+     *
+     * @throws  NonReadableChannelException
+     *          If the channel was not opened for reading
+     *
+     * @throws  NonWritableChannelException
+     *          If the <tt>mode</tt> is {@link FileChannel.MapMode#READ_WRITE
+     *          READ_WRITE} or {@link FileChannel.MapMode#PRIVATE PRIVATE}
+     *          but the channel was not opened for both reading and writing
+     *
+     * @throws  IllegalArgumentException
+     *          If the preconditions on the parameters do not hold
+     *
+     * @throws  IOException
+     *          If some other I/O error occurs
+     */
+    public static MappedRegion map(FileChannel channel,
+                                   FileChannel.MapMode mode,
+                                   long position, long size)
+        throws IOException
+    {
+        if (position < 0L)
+            throw new IllegalArgumentException("Negative position");
+        if (size < 0L)
+            throw new IllegalArgumentException("Negative size");
+        if (position + size < 0)
+            throw new IllegalArgumentException("Position + size overflow");
+
+        long count = (size >>> CHUNK_SHIFT)
+                     + ((size & CHUNK_MASK) != 0L ? 1L : 0L);
+        if (count > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Size exceeds maximum");
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int)count];
+        try {
+            for (int i = 0; i < count; i++) {
+                long start = (long)i << CHUNK_SHIFT;
+                long length = Math.min(CHUNK_SIZE, size - start);
+                chunks[i] = channel.map(mode, position + start, length);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            unmap(chunks);
+            throw e;
+        }
+        return new MappedRegion(chunks, size,
+                                mode == FileChannel.MapMode.READ_ONLY);
+    }
+
+    /**
+     * Returns this region's size in bytes.
+     *
+     * @return  The size of this region
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Tells whether or not this region is read-only.
+     *
+     * @return  <tt>true</tt> if, and only if, this region was mapped
+     *          read-only
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Tells whether or not this region is open.
+     *
+     * @return  <tt>true</tt> if, and only if, this region has not been
+     *          closed
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Retrieves this region's byte order.
+     *
+     * @return  This region's byte order
+     */
+    public ByteOrder order() {
+        return order;
+    }
+
+    /**
+     * Modifies this region's byte order.
+     *
+     * @param  bo
+     *         The new byte order,
+     *         either {@link ByteOrder#BIG_ENDIAN BIG_ENDIAN}
+     *         or {@link ByteOrder#LITTLE_ENDIAN LITTLE_ENDIAN}
+     *
+     * @return  This region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion order(ByteOrder bo) {
+        begin();
+        try {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.order(bo);
+            }
+            order = bo;
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    private static int stripe() {
+        return ((int)Thread.currentThread().getId() & (STRIPES - 1))
+               << PAD_SHIFT;
+    }
+
+    // Registers an access, which must be followed by a call to end once the
+    // buffers are no longer used, so that close waits for it to complete.
+    // The count is incremented before closed is read, and close sets closed
+    // before reading the counts, so either the access fails or close waits.
+    private void begin() {
+        int i = stripe();
+        accesses.getAndIncrement(i);
+        if (closed) {
+            accesses.getAndDecrement(i);
+            throw new IllegalStateException("Region closed");
+        }
+    }
+
+    private void end() {
+        accesses.getAndDecrement(stripe());
+    }
+
+    private void checkIndex(long index, long length) {
+        if (index < 0L || length > size - index)
+            throw new IndexOutOfBoundsException();
+    }
+
+    private MappedByteBuffer chunk(long index) {
+        return chunks[(int)(index >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long index) {
+        return (int)(index & CHUNK_MASK);
+    }
+
+    // Returns a buffer positioned at the given index, in the region's order
+    private ByteBuffer view(long index) {
+        ByteBuffer bb = chunk(index).duplicate();
+        bb.position(offset(index));
+        return bb.order(order);
+    }
+
+    // Returns the number of values of 1 << shift bytes that lie entirely in
+    // the chunk containing the given index, at or after the index
+    private static int elementsInChunk(long index, int shift) {
+        return (CHUNK_SIZE - offset(index)) >>> shift;
+    }
+
+    // Tells whether a value of n bytes at the given index crosses the end of
+    // its chunk
+    private static boolean crosses(long index, int n) {
+        return offset(index) > CHUNK_SIZE - n;
+    }
+
+    // Reads the n bytes at the given index one by one, composing them in the
+    // current byte order
+    private long getBytes(long index, int n) {
+        long v = 0L;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = 0; i < n; i++)
+                v = (v << 8) | (chunk(index + i).get(offset(index + i)) & 0xff);
+        } else {
+            for (int i = n - 1; i >= 0; i--)
+                v = (v << 8) | (chunk(index + i).get(offset(index + i)) & 0xff);
+        }
+        return v;
+    }
+
+    // Writes the n low-order bytes of v at the given index one by one, in
+    // the current byte order
+    private void putBytes(long index, int n, long v) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = n - 1; i >= 0; i--, v >>>= 8)
+                chunk(index + i).put(offset(index + i), (byte)v);
+        } else {
+            for (int i = 0; i < n; i++, v >>>= 8)
+                chunk(index + i).put(offset(index + i), (byte)v);
+        }
+    }
+
+    /**
+     * Reads the byte at the given index.
+     *
+     * @param  index
+     *         The index from which the byte will be read
+     *
+     * @return  The byte at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public byte get(long index) {
+        checkIndex(index, 1);
+        begin();
+        try {
+            return chunk(index).get(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes the given byte into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the byte will be written
+     *
+     * @param  b
+     *         The byte value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, byte b) {
+        checkIndex(index, 1);
+        begin();
+        try {
+            chunk(index).put(offset(index), b);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the char value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The char value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public char getChar(long index) {
+        checkIndex(index, 2);
+        begin();
+        try {
+            if (crosses(index, 2))
+                return (char)getBytes(index, 2);
+            return chunk(index).getChar(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes two bytes containing the given char value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The char value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putChar(long index, char value) {
+        checkIndex(index, 2);
+        begin();
+        try {
+            if (crosses(index, 2))
+                putBytes(index, 2, value);
+            else
+                chunk(index).putChar(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the short value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The short value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public short getShort(long index) {
+        checkIndex(index, 2);
+        begin();
+        try {
+            if (crosses(index, 2))
+                return (short)getBytes(index, 2);
+            return chunk(index).getShort(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes two bytes containing the given short value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The short value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putShort(long index, short value) {
+        checkIndex(index, 2);
+        begin();
+        try {
+            if (crosses(index, 2))
+                putBytes(index, 2, value);
+            else
+                chunk(index).putShort(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the int value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The int value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public int getInt(long index) {
+        checkIndex(index, 4);
+        begin();
+        try {
+            if (crosses(index, 4))
+                return (int)getBytes(index, 4);
+            return chunk(index).getInt(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes four bytes containing the given int value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The int value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putInt(long index, int value) {
+        checkIndex(index, 4);
+        begin();
+        try {
+            if (crosses(index, 4))
+                putBytes(index, 4, value);
+            else
+                chunk(index).putInt(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the long value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The long value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public long getLong(long index) {
+        checkIndex(index, 8);
+        begin();
+        try {
+            if (crosses(index, 8))
+                return getBytes(index, 8);
+            return chunk(index).getLong(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes eight bytes containing the given long value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The long value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putLong(long index, long value) {
+        checkIndex(index, 8);
+        begin();
+        try {
+            if (crosses(index, 8))
+                putBytes(index, 8, value);
+            else
+                chunk(index).putLong(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the float value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The float value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public float getFloat(long index) {
+        checkIndex(index, 4);
+        begin();
+        try {
+            if (crosses(index, 4))
+                return Float.intBitsToFloat((int)getBytes(index, 4));
+            return chunk(index).getFloat(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes four bytes containing the given float value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The float value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putFloat(long index, float value) {
+        checkIndex(index, 4);
+        begin();
+        try {
+            if (crosses(index, 4))
+                putBytes(index, 4, Float.floatToRawIntBits(value));
+            else
+                chunk(index).putFloat(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the double value at the given index, composing it according to the
+     * current byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The double value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public double getDouble(long index) {
+        checkIndex(index, 8);
+        begin();
+        try {
+            if (crosses(index, 8))
+                return Double.longBitsToDouble(getBytes(index, 8));
+            return chunk(index).getDouble(offset(index));
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes eight bytes containing the given double value, in the current
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The double value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion putDouble(long index, double value) {
+        checkIndex(index, 8);
+        begin();
+        try {
+            if (crosses(index, 8))
+                putBytes(index, 8, Double.doubleToRawLongBits(value));
+            else
+                chunk(index).putDouble(offset(index), value);
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> byte values
+     * from this region starting at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, byte[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length);
+        begin();
+        try {
+            while (length > 0) {
+                ByteBuffer bb = view(index);
+                int n = Math.min(length, elementsInChunk(index, 0));
+                bb.get(dst, offset, n);
+                index += n;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> byte values
+     * from the given array into this region, starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, byte[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length);
+        begin();
+        try {
+            while (length > 0) {
+                ByteBuffer bb = view(index);
+                int n = Math.min(length, elementsInChunk(index, 0));
+                bb.put(src, offset, n);
+                index += n;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> char
+     * values, composed in the current byte order, from this region starting
+     * at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, char[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 1);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 1));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = (char)getBytes(index, 2);
+                    n = 1;
+                } else {
+                    view(index).asCharBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 1;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> char values
+     * from the given array into this region, in the current byte order,
+     * starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, char[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 1);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 1));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 2, src[offset]);
+                    n = 1;
+                } else {
+                    view(index).asCharBuffer().put(src, offset, n);
+                }
+                index += (long)n << 1;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> short
+     * values, composed in the current byte order, from this region starting
+     * at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, short[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 1);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 1));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = (short)getBytes(index, 2);
+                    n = 1;
+                } else {
+                    view(index).asShortBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 1;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> short
+     * values from the given array into this region, in the current byte
+     * order, starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, short[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 1);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 1));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 2, src[offset]);
+                    n = 1;
+                } else {
+                    view(index).asShortBuffer().put(src, offset, n);
+                }
+                index += (long)n << 1;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> int values,
+     * composed in the current byte order, from this region starting at the
+     * given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, int[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 2);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 2));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = (int)getBytes(index, 4);
+                    n = 1;
+                } else {
+                    view(index).asIntBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 2;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> int values
+     * from the given array into this region, in the current byte order,
+     * starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, int[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 2);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 2));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 4, src[offset]);
+                    n = 1;
+                } else {
+                    view(index).asIntBuffer().put(src, offset, n);
+                }
+                index += (long)n << 2;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> long
+     * values, composed in the current byte order, from this region starting
+     * at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, long[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 3);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 3));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = getBytes(index, 8);
+                    n = 1;
+                } else {
+                    view(index).asLongBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 3;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> long values
+     * from the given array into this region, in the current byte order,
+     * starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, long[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 3);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 3));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 8, src[offset]);
+                    n = 1;
+                } else {
+                    view(index).asLongBuffer().put(src, offset, n);
+                }
+                index += (long)n << 3;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> float
+     * values, composed in the current byte order, from this region starting
+     * at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, float[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 2);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 2));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = Float.intBitsToFloat((int)getBytes(index, 4));
+                    n = 1;
+                } else {
+                    view(index).asFloatBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 2;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> float
+     * values from the given array into this region, in the current byte
+     * order, starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, float[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 2);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 2));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 4, Float.floatToRawIntBits(src[offset]));
+                    n = 1;
+                } else {
+                    view(index).asFloatBuffer().put(src, offset, n);
+                }
+                index += (long)n << 2;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method: transfers <tt>length</tt> double
+     * values, composed in the current byte order, from this region starting
+     * at the given index into the given array.
+     *
+     * @param  index
+     *         The index of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be
+     *         written; must be non-negative and no larger than
+     *         <tt>dst.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>dst.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion get(long index, double[] dst, int offset, int length) {
+        Buffer.checkBounds(offset, length, dst.length);
+        checkIndex(index, (long)length << 3);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 3));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    dst[offset] = Double.longBitsToDouble(getBytes(index, 8));
+                    n = 1;
+                } else {
+                    view(index).asDoubleBuffer().get(dst, offset, n);
+                }
+                index += (long)n << 3;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method: transfers <tt>length</tt> double
+     * values from the given array into this region, in the current byte
+     * order, starting at the given index.
+     *
+     * @param  index
+     *         The index of the first byte to be written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read;
+     *         must be non-negative and no larger than <tt>src.length</tt>
+     *
+     * @param  length
+     *         The number of values to be transferred; must be non-negative
+     *         and no larger than <tt>src.length - offset</tt>
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and
+     *          <tt>length</tt> parameters do not hold, or if the values
+     *          would extend beyond the end of this region
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this region was mapped read-only
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion put(long index, double[] src, int offset, int length) {
+        Buffer.checkBounds(offset, length, src.length);
+        checkIndex(index, (long)length << 3);
+        begin();
+        try {
+            while (length > 0) {
+                int n = Math.min(length, elementsInChunk(index, 3));
+                if (n == 0) {
+                    // the next value crosses the end of the chunk
+                    putBytes(index, 8, Double.doubleToRawLongBits(src[offset]));
+                    n = 1;
+                } else {
+                    view(index).asDoubleBuffer().put(src, offset, n);
+                }
+                index += (long)n << 3;
+                offset += n;
+                length -= n;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Advises the implementation how the given range of this region is going
+     * to be accessed.
+     *
+     * <p> Hints do not change the content or the behavior of the region and
+     * may be ignored.  This implementation acts on {@link
+     * AccessHint#WILL_NEED WILL_NEED} by reading a byte of each page in the
+     * range, so that those pages, and only those, are resident in memory, and
+     * accepts the other hints without effect.
+     *
+     * @param  hint
+     *         The expected access pattern
+     *
+     * @param  index
+     *         The index of the first byte of the range
+     *
+     * @param  length
+     *         The length of the range in bytes
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> or <tt>length</tt> is negative, or the range
+     *          would extend beyond the end of this region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion advise(AccessHint hint, long index, long length) {
+        if (hint == null)
+            throw new NullPointerException();
+        if (length < 0L)
+            throw new IndexOutOfBoundsException();
+        checkIndex(index, length);
+        begin();
+        try {
+            if (hint == AccessHint.WILL_NEED && length > 0L) {
+                // Read a byte in each page, as MappedByteBuffer.load does
+                int ps = Bits.pageSize();
+                long end = index + length;
+                byte x = 0;
+                for (long i = index; i < end; i += ps) {
+                    x ^= chunk(i).get(offset(i));
+                }
+                x ^= chunk(end - 1).get(offset(end - 1));
+                if (unused != 0)
+                    unused = x;
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Advises the implementation how this whole region is going to be
+     * accessed.  Invoking this method is equivalent to invoking
+     * <tt>advise(hint, 0, size())</tt>.
+     *
+     * @param  hint
+     *         The expected access pattern
+     *
+     * @return  This region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion advise(AccessHint hint) {
+        return advise(hint, 0L, size);
+    }
+
+    /**
+     * Tells whether or not this region's content is resident in physical
+     * memory, as described by {@link MappedByteBuffer#isLoaded}.
+     *
+     * @return  <tt>true</tt> if it is likely that this region's content
+     *          is resident in physical memory
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public boolean isLoaded() {
+        begin();
+        try {
+            for (MappedByteBuffer chunk : chunks) {
+                if (!chunk.isLoaded())
+                    return false;
+            }
+            return true;
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Forces any changes made to this region's content to be written to the
+     * storage device containing the mapped file, as described by {@link
+     * MappedByteBuffer#force}.
+     *
+     * @return  This region
+     *
+     * @throws  IllegalStateException
+     *          If this region has been closed
+     */
+    public MappedRegion force() {
+        begin();
+        try {
+            if (!readOnly) {
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+            }
+        } finally {
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * Closes this region, unmapping it.
+     *
+     * <p> Changes made to the region that have not been {@link #force forced}
+     * are written to the file at a time that depends on the operating
+     * system, as for a mapped byte buffer that is garbage-collected.  If the
+     * region is already closed then invoking this method has no effect.
+     *
+     * <p> If other threads are accessing the region, this method waits for
+     * those accesses to complete before unmapping it.  Accesses that start
+     * after this method is invoked fail.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        for (int i = 0; i < accesses.length(); i += 1 << PAD_SHIFT) {
+            while (accesses.get(i) != 0) {
+                Thread.yield();
+            }
+        }
+        unmap(chunks);
+    }
+
+    // Unmaps the given buffers, leaving to the garbage collector those that
+    // are not direct buffers of the default provider
+    private static void unmap(MappedByteBuffer[] buffers) {
+        for (MappedByteBuffer buffer : buffers) {
+            if (buffer instanceof DirectBuffer) {
+                Cleaner cleaner = ((DirectBuffer)buffer).cleaner();
+                if (cleaner != null)
+                    cleaner.clean();
+            }
+        }
+    }
+
+}
@@ -858,6 +858,9 @@ public abstract class FileChannel
      * capacity of <tt>size</tt>; its mark will be undefined.  The buffer and
      * the mapping that it represents will remain valid until the buffer itself
      * is garbage-collected.
+     * Regions larger than {@link java.lang.Integer#MAX_VALUE} bytes, or whose
+     * mapping must be released at a known point, can be mapped as a {@link
+     * java.nio.MappedRegion} instead.
      *
      * <p> A mapping, once established, is not dependent upon the file channel
      * that was used to create it.  Closing the channel, in particular, has no
@@ -911,6 +914,7 @@ public abstract class FileChannel
      *
      * @see java.nio.channels.FileChannel.MapMode
      * @see java.nio.MappedByteBuffer
+     * @see java.nio.MappedRegion
      */
     public abstract MappedByteBuffer map(MapMode mode,
                                          long position, long size)
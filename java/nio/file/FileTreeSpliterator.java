@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileTreeWalker.Branch;
+import java.nio.file.FileTreeWalker.Event;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A {@code Spliterator} over the nodes of a file tree, for streams returned
+ * by {@link Files#walk(Path, int, FileVisitOption...) Files.walk} and
+ * {@link Files#find Files.find}.
+ *
+ * <p>
+ * Traversal walks the file tree depth-first, as {@link FileTreeIterator}
+ * does, ignoring {@code END_DIRECTORY} events.  Splitting removes the
+ * remaining entries of the shallowest directory that is currently open (see
+ * {@link FileTreeWalker#split}) and hands them to the returned spliterator,
+ * which walks the subtrees rooted at those entries with a walker of its own.
+ * Attributes cached by the directory read are retained by the entries, so
+ * no additional file system access is required to visit them.  A spliterator
+ * holding more than one batch of entries first hands off whole batches, and
+ * then halves its last batch, before splitting off its own walk.  A batch
+ * of fewer than twice {@code MIN_BATCH} entries is not halved.  Instead, a
+ * spliterator walking an entry hands off the rest of its batch, and one that
+ * is not starts walking the entries of its batch until one of them is a
+ * directory, keeping the events of those walked so far, so that the rest of
+ * the batch and then the directory can be split off in turn.
+ *
+ * <p>
+ * The size of the tree is not known, and the number of pending entries says
+ * little about the size of the subtrees rooted at them.  As for the
+ * spliterators of {@code TreeMap}, the estimated size therefore starts at
+ * {@code Long.MAX_VALUE} and is halved by each split, so that a parallel
+ * traversal stops splitting after a number of splits that depends on the
+ * parallelism rather than on the number of files.  A spliterator that
+ * hands off the last directory it had open keeps only the events it has
+ * already read, and gives its whole estimate to the returned spliterator.
+ *
+ * <p>
+ * Spliterators split from the same root share the set of their open walkers,
+ * so that closing the stream closes all directories left open by a
+ * short-circuited parallel traversal.
+ */
+final class FileTreeSpliterator implements Spliterator<Event>, Closeable {
+    // smallest number of entries in a batch handed off by halving a batch
+    static final int MIN_BATCH = 1 << 5;
+
+    private final Collection<FileVisitOption> options;
+    private final int maxDepth;
+    private final Walkers walkers;
+
+    // batches of entries yet to be walked, each with the index of its next entry
+    private final ArrayDeque<Branch> branches = new ArrayDeque<>();
+    private int index;
+
+    private FileTreeWalker walker;
+    // events to deliver before those of the walker
+    private final ArrayDeque<Event> pending = new ArrayDeque<>();
+    private long est;           // size estimate, halved on each split
+
+    /**
+     * The open walkers of all spliterators split from the same root.
+     */
+    private static final class Walkers {
+        private final Set<FileTreeWalker> open =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private volatile boolean closed;
+    }
+
+    /**
+     * Creates a new spliterator to walk the file tree starting at the given
+     * file.
+     *
+     * @throws  IllegalArgumentException
+     *          if {@code maxDepth} is negative
+     * @throws  IOException
+     *          if an I/O errors occurs opening the starting file
+     * @throws  SecurityException
+     *          if the security manager denies access to the starting file
+     * @throws  NullPointerException
+     *          if {@code start} or {@code options} is {@code null} or
+     *          the options array contains a {@code null} element
+     */
+    FileTreeSpliterator(Path start, int maxDepth, FileVisitOption... options)
+        throws IOException
+    {
+        this.options = Arrays.asList(options);
+        this.maxDepth = maxDepth;
+        this.walkers = new Walkers();
+        this.est = Long.MAX_VALUE;
+        this.walker = openWalker();
+        Event next = walker.walk(start);
+        assert next.type() == FileTreeWalker.EventType.ENTRY ||
+               next.type() == FileTreeWalker.EventType.START_DIRECTORY;
+        pending.add(next);
+
+        // IOException if there a problem accessing the starting file
+        IOException ioe = next.ioeException();
+        if (ioe != null) {
+            walker.close();
+            throw ioe;
+        }
+    }
+
+    private FileTreeSpliterator(FileTreeSpliterator parent, Branch branch,
+                                long est) {
+        this.options = parent.options;
+        this.maxDepth = parent.maxDepth;
+        this.walkers = parent.walkers;
+        this.est = est;
+        this.branches.add(branch);
+    }
+
+    private FileTreeWalker openWalker() {
+        FileTreeWalker w = new FileTreeWalker(options, maxDepth);
+        walkers.open.add(w);
+        if (walkers.closed) {
+            // lost a race with close
+            w.close();
+            walkers.open.remove(w);
+        }
+        return w;
+    }
+
+    private void closeWalker() {
+        if (walker != null) {
+            walker.close();
+            walkers.open.remove(walker);
+            walker = null;
+        }
+    }
+
+    /**
+     * Returns the next event that is not an END_DIRECTORY event, or
+     * {@code null} if there are no more.
+     */
+    private Event nextEvent() {
+        for (;;) {
+            Event ev = pending.pollFirst();
+            if (ev == null && walker != null)
+                ev = walker.next();
+            if (ev == null) {
+                // current walk is done, start walking the next entry if any
+                if (branches.isEmpty()) {
+                    closeWalker();
+                    return null;
+                }
+                ev = walkNextEntry();
+                if (ev == null)
+                    continue;
+            }
+
+            IOException ioe = ev.ioeException();
+            if (ioe != null)
+                throw new UncheckedIOException(ioe);
+
+            // END_DIRECTORY events are ignored
+            if (ev.type() != FileTreeWalker.EventType.END_DIRECTORY)
+                return ev;
+        }
+    }
+
+    /**
+     * Starts walking the next entry of the first batch, returning the first
+     * event of the walk, or {@code null} if the entry is not visited.
+     */
+    private Event walkNextEntry() {
+        Branch branch = branches.peekFirst();
+        List<Path> files = branch.files();
+        Path file = files.get(index++);
+        if (index == files.size()) {
+            branches.pollFirst();
+            index = 0;
+        }
+        if (walker == null)
+            walker = openWalker();
+        return walker.walk(file, branch);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Event> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (walkers.closed)
+            throw new IllegalStateException();
+        Event ev = nextEvent();
+        if (ev == null)
+            return false;
+        action.accept(ev);
+        return true;
+    }
+
+    @Override
+    public Spliterator<Event> trySplit() {
+        Branch branch;
+        if (branches.size() > 1) {
+            // hand off the most recently split off batch as a whole
+            branch = branches.pollLast();
+        } else if (branches.size() == 1 &&
+                   branches.peekFirst().files().size() - index >= MIN_BATCH << 1) {
+            // hand off the upper half of the only batch
+            Branch first = branches.pollFirst();
+            List<Path> files = first.files();
+            int mid = index + ((files.size() - index) >>> 1);
+            branches.addFirst(new Branch(files.subList(index, mid),
+                                         first.depth(), first.ancestors()));
+            branch = new Branch(files.subList(mid, files.size()),
+                                first.depth(), first.ancestors());
+            index = 0;
+        } else if (!walkers.closed) {
+            boolean walking = walker != null && walker.isWalking();
+            if (!walking && !branches.isEmpty() && pending.isEmpty()) {
+                // walk the entries of a small batch up to the first directory,
+                // so that it can be split; their events are delivered by
+                // nextEvent
+                do {
+                    Event ev = walkNextEntry();
+                    if (ev != null)
+                        pending.add(ev);
+                } while (!(walking = walker.isWalking()) && !branches.isEmpty());
+            }
+            if (walking && !branches.isEmpty()) {
+                // keep the walk in progress and hand off the rest of the batch
+                Branch first = branches.pollFirst();
+                List<Path> files = first.files();
+                branch = (index == 0) ? first :
+                    new Branch(files.subList(index, files.size()),
+                               first.depth(), first.ancestors());
+                index = 0;
+            } else {
+                // hand off the rest of the shallowest open directory
+                branch = walking ? walker.split() : null;
+                if (branch == null)
+                    return null;
+                if (branch.depth() == walker.depth()) {
+                    // that was the deepest, so only the events already read
+                    // are left here and the whole estimate goes with it
+                    long e = est;
+                    est = pending.size();
+                    return new FileTreeSpliterator(this, branch, e);
+                }
+            }
+        } else {
+            return null;
+        }
+        est >>>= 1;
+        return new FileTreeSpliterator(this, branch, est);
+    }
+
+    @Override
+    public long estimateSize() {
+        if (pending.isEmpty() && branches.isEmpty() &&
+            (walker == null || !walker.isWalking()))
+            return 0L;
+        return est;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+
+    /**
+     * Closes the walkers of this spliterator and of all spliterators split
+     * from the same root.
+     */
+    @Override
+    public void close() {
+        walkers.closed = true;
+        for (FileTreeWalker w : walkers.open) {
+            w.close();
+        }
+        walkers.open.clear();
+    }
+}
@@ -29,8 +29,10 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import sun.nio.fs.BasicFileAttributesHolder;
 
 /**
@@ -61,6 +63,10 @@ class FileTreeWalker implements Closeable {
     private final ArrayDeque<DirectoryNode> stack = new ArrayDeque<>();
     private boolean closed;
 
+    // depth of, and directories above, the file the current walk started at
+    private int baseDepth;
+    private Ancestor ancestors;
+
     /**
      * The element on the walking stack corresponding to a directory node.
      */
@@ -70,6 +76,7 @@ class FileTreeWalker implements Closeable {
         private final DirectoryStream<Path> stream;
         private final Iterator<Path> iterator;
         private boolean skipped;
+        private IOException error;
 
         DirectoryNode(Path dir, Object key, DirectoryStream<Path> stream) {
             this.dir = dir;
@@ -101,6 +108,58 @@ class FileTreeWalker implements Closeable {
         boolean skipped() {
             return skipped;
         }
+
+        void fail(IOException ioe) {
+            error = ioe;
+        }
+
+        IOException error() {
+            return error;
+        }
+    }
+
+    /**
+     * A directory above the file a walk started at. Retained so that cycles
+     * can be detected when walking a subtree split off from another walk.
+     */
+    static final class Ancestor {
+        private final Path dir;
+        private final Object key;
+        private final Ancestor parent;
+
+        Ancestor(Path dir, Object key, Ancestor parent) {
+            this.dir = dir;
+            this.key = key;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Entries of a directory that were split off from a walk, together with
+     * their depth and the directories above them.
+     */
+    static final class Branch {
+        private final List<Path> files;
+        private final int depth;
+        private final Ancestor ancestors;
+
+        Branch(List<Path> files, int depth, Ancestor ancestors) {
+            this.files = files;
+            this.depth = depth;
+            this.ancestors = ancestors;
+        }
+
+        List<Path> files() {
+            return files;
+        }
+
+        int depth() {
+            return depth;
+        }
+
+        Ancestor ancestors() {
+            return ancestors;
+        }
     }
 
     /**
@@ -234,29 +293,32 @@ class FileTreeWalker implements Closeable {
      * file system loop/cycle.
      */
     private boolean wouldLoop(Path dir, Object key) {
-        // if this directory and ancestor has a file key then we compare
-        // them; otherwise we use less efficient isSameFile test.
         for (DirectoryNode ancestor: stack) {
-            Object ancestorKey = ancestor.key();
-            if (key != null && ancestorKey != null) {
-                if (key.equals(ancestorKey)) {
-                    // cycle detected
-                    return true;
-                }
-            } else {
-                try {
-                    if (Files.isSameFile(dir, ancestor.directory())) {
-                        // cycle detected
-                        return true;
-                    }
-                } catch (IOException | SecurityException x) {
-                    // ignore
-                }
-            }
+            if (isSameDirectory(dir, key, ancestor.directory(), ancestor.key()))
+                return true;
+        }
+        for (Ancestor ancestor = ancestors; ancestor != null; ancestor = ancestor.parent) {
+            if (isSameDirectory(dir, key, ancestor.dir, ancestor.key))
+                return true;
         }
         return false;
     }
 
+    private static boolean isSameDirectory(Path dir, Object key,
+                                           Path ancestor, Object ancestorKey)
+    {
+        // if this directory and ancestor has a file key then we compare
+        // them; otherwise we use less efficient isSameFile test.
+        if (key != null && ancestorKey != null)
+            return key.equals(ancestorKey);
+        try {
+            return Files.isSameFile(dir, ancestor);
+        } catch (IOException | SecurityException x) {
+            // ignore
+            return false;
+        }
+    }
+
     /**
      * Visits the given file, returning the {@code Event} corresponding to that
      * visit.
@@ -283,7 +345,7 @@ class FileTreeWalker implements Closeable {
         }
 
         // at maximum depth or file is not a directory
-        int depth = stack.size();
+        int depth = baseDepth + stack.size();
         if (depth >= maxDepth || !attrs.isDirectory()) {
             return new Event(EventType.ENTRY, entry, attrs);
         }
@@ -326,6 +388,59 @@ class FileTreeWalker implements Closeable {
         return ev;
     }
 
+    /**
+     * Start walking from a file of a {@code Branch} split off from another
+     * walk. The file is visited as an entry of its directory would be: cached
+     * attributes may be used, and {@code null} is returned if the file is
+     * ignored because of a SecurityException. Must not be invoked while a
+     * previous walk still has directories open.
+     */
+    Event walk(Path file, Branch branch) {
+        if (closed)
+            throw new IllegalStateException("Closed");
+        assert stack.isEmpty();
+
+        baseDepth = branch.depth();
+        ancestors = branch.ancestors();
+        return visit(file,
+                     true,   // ignoreSecurityException
+                     true);  // canUseCached
+    }
+
+    /**
+     * Removes the remaining entries of the shallowest open directory that has
+     * any, and returns them as a {@code Branch} so that they can be walked
+     * by another walker. Returns {@code null} if no open directory has
+     * remaining entries.
+     */
+    Branch split() {
+        int depth = baseDepth;
+        Ancestor parent = ancestors;
+        Iterator<DirectoryNode> nodes = stack.descendingIterator();
+        while (nodes.hasNext()) {
+            DirectoryNode node = nodes.next();
+            depth++;
+            parent = new Ancestor(node.directory(), node.key(), parent);
+            if (node.skipped() || node.error() != null)
+                continue;
+
+            // the entries carry any attributes cached by the directory read
+            List<Path> files = new ArrayList<>();
+            Iterator<Path> iterator = node.iterator();
+            try {
+                while (iterator.hasNext()) {
+                    files.add(iterator.next());
+                }
+            } catch (DirectoryIteratorException x) {
+                // reported with the END_DIRECTORY event of this directory
+                node.fail(x.getCause());
+            }
+            if (!files.isEmpty())
+                return new Branch(files, depth, parent);
+        }
+        return null;
+    }
+
     /**
      * Returns the next Event or {@code null} if there are no more events or
      * the walker is closed.
@@ -342,7 +457,9 @@ class FileTreeWalker implements Closeable {
             IOException ioe = null;
 
             // get next entry in the directory
-            if (!top.skipped()) {
+            if (top.error() != null) {
+                ioe = top.error();
+            } else if (!top.skipped()) {
                 Iterator<Path> iterator = top.iterator();
                 try {
                     if (iterator.hasNext()) {
@@ -403,6 +520,22 @@ class FileTreeWalker implements Closeable {
         }
     }
 
+    /**
+     * Returns the depth of the entries of the deepest open directory, or of
+     * the file last walked if no directory is open.
+     */
+    int depth() {
+        return baseDepth + stack.size();
+    }
+
+    /**
+     * Returns {@code true} if a directory is open, that is, if the walk
+     * started by the last call to {@code walk} has further events.
+     */
+    boolean isWalking() {
+        return !stack.isEmpty();
+    }
+
     /**
      * Returns {@code true} if the walker is open.
      */
@@ -0,0 +1,752 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.IntBiConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An open-addressing hash table mapping primitive {@code int} keys to
+ * primitive {@code int} values.  This class offers the familiar
+ * {@link Map}-style operations, but stores keys and values unboxed in two
+ * parallel {@code int[]} arrays, so that no per-mapping node or boxed
+ * key or value is ever allocated.
+ *
+ * <p>Collisions are resolved by linear probing, and removals use
+ * backward-shift deletion, so that the table never accumulates
+ * tombstones.  The key {@code 0} is stored out of line.  Since values
+ * are primitive, methods that would return {@code null} for an absent
+ * key in a {@link Map} return {@code 0} instead; {@link #containsKey}
+ * or {@link #getOrDefault} may be used to tell the cases apart.
+ *
+ * <p>On a 64-bit VM with compressed references a
+ * {@code HashMap<Integer,Integer>} spends a {@code Node} (32 bytes), two
+ * boxed objects (32 bytes) and a table slot (4 bytes) on every
+ * mapping.  This map spends 8 bytes per slot, that is
+ * 16 bytes per mapping at the default load factor, and creates
+ * no garbage on lookup or update.  {@link #merge} makes it suitable as a
+ * counter or accumulator table.
+ *
+ * <p>The <i>load factor</i> bounds the fraction of slots in use before
+ * the table is doubled.  Linear probing degrades quickly near a full
+ * table, so the default load factor is {@code .5}.  The table capacity
+ * is always a power of two.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies it, it <i>must</i> be synchronized externally.
+ * The iteration methods of this class are <i>fail-fast</i> on a
+ * best-effort basis: they throw {@link ConcurrentModificationException}
+ * if the map is structurally modified by the action being applied.
+ *
+ * @see HashMap
+ * @see IntObjectMap
+ * @since 1.8
+ */
+public class IntIntMap implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 7674918311415852851L;
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly
+     * specified by either of the constructors with arguments.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys of the table.  A slot holding {@code 0} is free; the
+     * mapping for the key {@code 0} itself lives in {@link #zeroValue}.
+     */
+    transient int[] keys;
+
+    /**
+     * The values of the table, parallel to {@link #keys}.
+     */
+    transient int[] vals;
+
+    /**
+     * Whether the map contains a mapping for the key {@code 0}.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to the key {@code 0}, if {@link #hasZeroKey}.
+     */
+    transient int zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The number of occupied slots at which the table is resized.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, in the range {@code (0, 1)}
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public IntIntMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        int cap = IntObjectMap.tableSizeFor(
+            (int)Math.min(MAXIMUM_CAPACITY,
+                          (long)Math.ceil(initialCapacity / loadFactor)));
+        allocate(Math.max(cap, 2));
+    }
+
+    /**
+     * Constructs an empty map able to hold the specified number of
+     * mappings without resizing, using the default load factor (.5).
+     *
+     * @param  initialCapacity the expected number of mappings
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntIntMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (.5).
+     */
+    public IntIntMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        allocate(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /* ---------------- Table management -------------- */
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        vals = new int[capacity];
+        threshold = (capacity == MAXIMUM_CAPACITY) ? capacity - 1 :
+            Math.min(capacity - 1, (int)(capacity * loadFactor));
+    }
+
+    /**
+     * Doubles the table and reinserts all keys.
+     */
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldVals = vals;
+        int oldCap = oldKeys.length;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+        allocate(oldCap << 1);
+        int[] ks = keys;
+        int[] vs = vals;
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            int k;
+            if ((k = oldKeys[j]) != 0) {
+                int i = IntObjectMap.hash(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot holding the given non-zero key, or -1 if absent.
+     */
+    final int slotOf(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int i = IntObjectMap.hash(key) & mask;
+        for (int k; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot holding the given non-zero key, inserting the key
+     * with value {@code 0} if absent, in which case the returned slot is
+     * encoded as {@code -(slot + 1)}.  The caller must store the value
+     * and then call {@link #afterInsert}.
+     */
+    private int insertionSlot(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int i = IntObjectMap.hash(key) & mask;
+        for (int k; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        ks[i] = key;
+        return -(i + 1);
+    }
+
+    private void afterInsert() {
+        ++modCount;
+        if (++size - (hasZeroKey ? 1 : 0) > threshold)
+            resize();
+    }
+
+    /**
+     * Removes the mapping in slot {@code pos} by shifting back every
+     * later key in its probe run whose home slot is not between the
+     * hole and the key itself.
+     */
+    private void removeSlot(int pos) {
+        int[] ks = keys;
+        int[] vs = vals;
+        int mask = ks.length - 1;
+        for (int last;;) {
+            pos = ((last = pos) + 1) & mask;
+            int k;
+            for (;;) {
+                if ((k = ks[pos]) == 0) {
+                    ks[last] = 0;
+                    vs[last] = 0;
+                    return;
+                }
+                int home = IntObjectMap.hash(k) & mask;
+                if (last <= pos ? (last >= home || home > pos)
+                                : (last >= home && home > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            ks[last] = k;
+            vs[last] = vs[pos];
+        }
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code 0} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code 0} if this map contains no mapping for the key
+     */
+    public int get(int key) {
+        if (key == 0)
+            return zeroValue;
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int i = IntObjectMap.hash(key) & mask;
+        for (int k; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return vals[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = slotOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : slotOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the table.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int old = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++modCount;
+                ++size;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int i = insertionSlot(key);
+        if (i >= 0) {
+            int old = vals[i];
+            vals[i] = value;
+            return old;
+        }
+        vals[-(i + 1)] = value;
+        afterInsert();
+        return 0;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value and returns {@code 0}, else
+     * returns the current value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the current value associated with the specified key, or
+     *         {@code 0} if there was no mapping for the key
+     */
+    public int putIfAbsent(int key, int value) {
+        if (key == 0) {
+            if (hasZeroKey)
+                return zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            ++modCount;
+            ++size;
+            return 0;
+        }
+        int i = insertionSlot(key);
+        if (i >= 0)
+            return vals[i];
+        vals[-(i + 1)] = value;
+        afterInsert();
+        return 0;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(IntIntMap m) {
+        if (m.hasZeroKey)
+            put(0, m.zeroValue);
+        int[] ks = m.keys;
+        int[] vs = m.vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0)
+                put(ks[i], vs[i]);
+        }
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            int old = zeroValue;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroValue = 0;
+                ++modCount;
+                --size;
+            }
+            return old;
+        }
+        int i = slotOf(key);
+        if (i < 0)
+            return 0;
+        int old = vals[i];
+        removeSlot(i);
+        ++modCount;
+        --size;
+        return old;
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently
+     * mapped to the specified value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(int key, int value) {
+        if (key == 0) {
+            if (!hasZeroKey || zeroValue != value)
+                return false;
+        } else {
+            int i = slotOf(key);
+            if (i < 0 || vals[i] != value)
+                return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters it
+     * into this map.
+     *
+     * <p>The mapping function should not modify this map during
+     * computation.  This method throws
+     * {@link ConcurrentModificationException} if it detects that it
+     * did.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     */
+    public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey)
+                return zeroValue;
+        } else {
+            int i = slotOf(key);
+            if (i >= 0)
+                return vals[i];
+        }
+        int mc = modCount;
+        int v = mappingFunction.applyAsInt(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        put(key, v);
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the value
+     * with the results of the given remapping function.  Unlike
+     * {@link Map#merge}, the mapping is never removed, so that summing or
+     * counting, as in {@code map.merge(key, 1, Integer::sum)}, probes the
+     * table only once.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to be merged with the existing value
+     *        associated with the key or, if no existing value is
+     *        associated with the key, to be associated with the key
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public int merge(int key, int value, IntBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey)
+                return zeroValue =
+                    remappingFunction.applyAsInt(zeroValue, value);
+            put(key, value);
+            return value;
+        }
+        int i = insertionSlot(key);
+        if (i >= 0)
+            return vals[i] = remappingFunction.applyAsInt(vals[i], value);
+        vals[-(i + 1)] = value;
+        afterInsert();
+        return value;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            size = 0;
+            hasZeroKey = false;
+            zeroValue = 0;
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, 0);
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * mappings have been processed or the action throws an exception.
+     * Mappings are processed in no particular order.
+     *
+     * @param action the action to be performed for each mapping, receiving
+     *        the key and the value
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action structurally
+     *         modifies this map
+     */
+    public void forEach(IntBiConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, zeroValue);
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length && mc == modCount; ++i) {
+            if (ks[i] != 0)
+                action.accept(ks[i], vs[i]);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a newly allocated array holding the keys of this map, in
+     * no particular order.
+     *
+     * @return an array of the keys of this map
+     */
+    public int[] keys() {
+        int[] a = new int[size];
+        int n = 0;
+        if (hasZeroKey)
+            a[n++] = 0;
+        for (int k : keys) {
+            if (k != 0)
+                a[n++] = k;
+        }
+        return a;
+    }
+
+    /**
+     * Returns a shallow copy of this map.
+     *
+     * @return a copy of this map
+     */
+    @Override
+    public IntIntMap clone() {
+        IntIntMap result;
+        try {
+            result = (IntIntMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code IntIntMap} and
+     * the two maps represent the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntIntMap))
+            return false;
+        IntIntMap m = (IntIntMap)o;
+        if (m.size != size || m.hasZeroKey != hasZeroKey ||
+            m.zeroValue != zeroValue)
+            return false;
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0) {
+                int j = m.slotOf(k);
+                if (j < 0 || vs[i] != m.vals[j])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of
+     * {@code Integer.hashCode(key) ^ Integer.hashCode(value)} over all
+     * mappings, consistent with {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    @Override
+    public int hashCode() {
+        int h = hasZeroKey ? Integer.hashCode(zeroValue) : 0;
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0)
+                h += Integer.hashCode(ks[i]) ^ Integer.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format
+     * as {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    @Override
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach((int k, int v) -> {
+            if (sb.length() > 1)
+                sb.append(',').append(' ');
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Saves this map to a stream.
+     *
+     * @serialData The capacity of the table (int), the number of
+     *             mappings (int), followed by the key (int) and value
+     *             (int) of each mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(keys.length);
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeInt(0);
+            s.writeInt(zeroValue);
+        }
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0) {
+                s.writeInt(ks[i]);
+                s.writeInt(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     loadFactor);
+        int cap = s.readInt();
+        int mappings = s.readInt();
+        if (mappings < 0 || cap < 2 || (cap & (cap - 1)) != 0 ||
+            cap > MAXIMUM_CAPACITY)
+            throw new java.io.InvalidObjectException("Illegal table size: " +
+                                                     cap);
+        allocate(cap);
+        for (int i = 0; i < mappings; ++i)
+            put(s.readInt(), s.readInt());
+    }
+}
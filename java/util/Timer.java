@@ -25,7 +25,15 @@
 
 package java.util;
 import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 
 /**
  * A facility for threads to schedule tasks for future execution in a
@@ -78,7 +86,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  * it uses a binary heap to represent its task queue, so the cost to schedule
  * a task is O(log n), where n is the number of concurrently scheduled tasks.
  *
- * <p>Implementation note: All constructors start a timer thread.
+ * <p>Implementation note: All constructors start a timer thread, except
+ * {@link #Timer(ScheduledExecutorService)}, which creates a timer that
+ * delegates to the given executor.  A delegating timer runs its tasks on
+ * the executor's threads, possibly concurrently with one another, and
+ * cancelling a task removes it from the executor (in constant time when
+ * the executor is a {@code ScheduledThreadPoolExecutor} created with a
+ * tick duration).  If the system property
+ * {@code java.util.Timer.sharedScheduler} is set to {@code true}, the
+ * other constructors also create delegating timers, all sharing one
+ * pool of daemon threads whose size is the number of available
+ * processors; thread names and daemon status requested from those
+ * constructors are then ignored.  By default, the property is not set,
+ * and each timer has its own thread.
  *
  * @author  Josh Bloch
  * @see     TimerTask
@@ -96,9 +116,28 @@ public class Timer {
     private final TaskQueue queue = new TaskQueue();
 
     /**
-     * The timer thread.
+     * The timer thread, or null if this timer delegates to an executor.
      */
-    private final TimerThread thread = new TimerThread(queue);
+    private final TimerThread thread;
+
+    /**
+     * The executor to which this timer delegates, or null if it has its
+     * own thread.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The tasks scheduled on the executor that have not been cancelled
+     * or, if non-repeating, executed.  Used only when delegating;
+     * protected by queue's monitor.
+     */
+    private final IdentityHashMap<TimerTask,Boolean> delegated;
+
+    /**
+     * Set when a delegating timer is cancelled.  Protected by queue's
+     * monitor.
+     */
+    private boolean delegateCancelled;
 
     /**
      * This object causes the timer's task execution thread to exit
@@ -109,9 +148,11 @@ public class Timer {
      */
     private final Object threadReaper = new Object() {
         protected void finalize() throws Throwable {
-            synchronized(queue) {
-                thread.newTasksMayBeScheduled = false;
-                queue.notify(); // In case queue is empty.
+            if (thread != null) {
+                synchronized(queue) {
+                    thread.newTasksMayBeScheduled = false;
+                    queue.notify(); // In case queue is empty.
+                }
             }
         }
     };
@@ -156,8 +197,16 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name) {
-        thread.setName(name);
-        thread.start();
+        executor = SharedScheduler.executor;
+        if (executor == null) {
+            thread = new TimerThread(queue);
+            delegated = null;
+            thread.setName(name);
+            thread.start();
+        } else {
+            thread = null;
+            delegated = new IdentityHashMap<>();
+        }
     }
 
     /**
@@ -171,9 +220,43 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name, boolean isDaemon) {
-        thread.setName(name);
-        thread.setDaemon(isDaemon);
-        thread.start();
+        executor = SharedScheduler.executor;
+        if (executor == null) {
+            thread = new TimerThread(queue);
+            delegated = null;
+            thread.setName(name);
+            thread.setDaemon(isDaemon);
+            thread.start();
+        } else {
+            thread = null;
+            delegated = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * Creates a new timer that runs its tasks on the given executor
+     * rather than on a thread of its own.  Tasks may then run
+     * concurrently with one another, and cancelling a task cancels its
+     * execution on the executor, so that the executor may discard it
+     * (see {@link ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy}).
+     * Repeating tasks are scheduled with the executor's
+     * {@code scheduleAtFixedRate} or {@code scheduleWithFixedDelay}
+     * methods, so they do not "catch up" on executions missed before
+     * their first scheduled time.  Cancelling the timer cancels its
+     * scheduled tasks but does not shut down the executor.  As with a
+     * timer thread that terminates unexpectedly, if a task throws an
+     * exception the timer is cancelled.
+     *
+     * @param executor the executor to run tasks on
+     * @throws NullPointerException if {@code executor} is null
+     * @since 1.8
+     */
+    public Timer(ScheduledExecutorService executor) {
+        if (executor == null)
+            throw new NullPointerException();
+        this.executor = executor;
+        this.thread = null;
+        this.delegated = new IdentityHashMap<>();
     }
 
     /**
@@ -392,6 +475,11 @@ public class Timer {
         if (Math.abs(period) > (Long.MAX_VALUE >> 1))
             period >>= 1;
 
+        if (executor != null) {
+            delegate(task, time, period);
+            return;
+        }
+
         synchronized(queue) {
             if (!thread.newTasksMayBeScheduled)
                 throw new IllegalStateException("Timer already cancelled.");
@@ -426,6 +514,25 @@ public class Timer {
      * calls have no effect.
      */
     public void cancel() {
+        if (executor != null) {
+            TimerTask[] tasks;
+            synchronized(queue) {
+                delegateCancelled = true;
+                tasks = delegated.keySet().toArray(new TimerTask[0]);
+                delegated.clear();
+            }
+            for (TimerTask task : tasks) {
+                ScheduledFuture<?> f;
+                synchronized(task.lock) {
+                    f = task.future;
+                    task.future = null;
+                    task.timer = null;
+                }
+                if (f != null)
+                    f.cancel(false);
+            }
+            return;
+        }
         synchronized(queue) {
             thread.newTasksMayBeScheduled = false;
             queue.clear();
@@ -433,6 +540,133 @@ public class Timer {
         }
     }
 
+    /**
+     * Schedules the task on the executor of a delegating timer.  Called
+     * from sched, after its argument checks.
+     */
+    private void delegate(TimerTask task, long time, long period) {
+        synchronized(queue) {
+            if (delegateCancelled)
+                throw new IllegalStateException("Timer already cancelled.");
+
+            synchronized(task.lock) {
+                if (task.state != TimerTask.VIRGIN)
+                    throw new IllegalStateException(
+                        "Task already scheduled or cancelled");
+                task.nextExecutionTime = time;
+                task.period = period;
+                task.state = TimerTask.SCHEDULED;
+                task.timer = this;
+            }
+            delegated.put(task, Boolean.TRUE);
+        }
+
+        Runnable r = new DelegatedTask(this, task);
+        long delay = time - System.currentTimeMillis();
+        ScheduledFuture<?> f;
+        try {
+            if (period == 0)
+                f = executor.schedule(r, delay, TimeUnit.MILLISECONDS);
+            else if (period > 0)
+                f = executor.scheduleAtFixedRate(r, delay, period,
+                                                 TimeUnit.MILLISECONDS);
+            else
+                f = executor.scheduleWithFixedDelay(r, delay, -period,
+                                                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            remove(task);
+            throw new IllegalStateException("Timer executor shut down.", ex);
+        }
+        boolean cancelled;
+        synchronized(task.lock) {
+            if (!(cancelled = (task.timer != this)))
+                task.future = f;
+        }
+        if (cancelled)
+            f.cancel(false);
+    }
+
+    /**
+     * Forgets a task of a delegating timer that has been cancelled or has
+     * executed for the last time.
+     */
+    void remove(TimerTask task) {
+        synchronized(queue) {
+            delegated.remove(task);
+        }
+    }
+
+    /**
+     * Runs a task of a delegating timer on the executor, maintaining its
+     * state as TimerThread does.
+     */
+    private static final class DelegatedTask implements Runnable {
+        private final Timer timer;
+        private final TimerTask task;
+
+        DelegatedTask(Timer timer, TimerTask task) {
+            this.timer = timer;
+            this.task = task;
+        }
+
+        public void run() {
+            final TimerTask task = this.task;
+            boolean last;
+            synchronized(task.lock) {
+                if (task.state == TimerTask.CANCELLED || task.timer != timer)
+                    return;
+                if (last = (task.period == 0)) {
+                    task.state = TimerTask.EXECUTED;
+                    task.future = null;
+                    task.timer = null;
+                } else {
+                    task.nextExecutionTime = task.period < 0 ?
+                        System.currentTimeMillis() - task.period :
+                        task.nextExecutionTime + task.period;
+                }
+            }
+            if (last)
+                timer.remove(task);
+            try {
+                task.run();
+            } catch (RuntimeException | Error ex) {
+                timer.cancel(); // as if the timer thread had died
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Holder for the executor shared by delegating timers created with
+     * the legacy constructors, which is null unless the
+     * {@code java.util.Timer.sharedScheduler} property is set.
+     */
+    private static final class SharedScheduler {
+        static final ScheduledExecutorService executor = create();
+
+        private static ScheduledExecutorService create() {
+            boolean enabled = AccessController.doPrivileged(
+                new PrivilegedAction<Boolean>() {
+                    public Boolean run() {
+                        return Boolean.getBoolean("java.util.Timer.sharedScheduler");
+                    }});
+            if (!enabled)
+                return null;
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+            ThreadFactory tf = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Timer-shared-" +
+                                          threadNumber.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }};
+            return new ScheduledThreadPoolExecutor
+                (Runtime.getRuntime().availableProcessors(),
+                 1L, TimeUnit.MILLISECONDS, tf,
+                 new ScheduledThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
     /**
      * Removes all cancelled tasks from this timer's task queue.  <i>Calling
      * this method has no effect on the behavior of the timer</i>, but
@@ -450,11 +684,17 @@ public class Timer {
      * <p>Note that it is permissible to call this method from within a
      * a task scheduled on this timer.
      *
+     * <p>A timer that delegates to an executor does not retain cancelled
+     * tasks, so for such a timer this method has no effect and returns
+     * zero.
+     *
      * @return the number of tasks removed from the queue.
      * @since 1.5
      */
      public int purge() {
          int result = 0;
+         if (executor != null)
+             return result;
 
          synchronized(queue) {
              for (int i = queue.size(); i > 0; i--) {
@@ -80,6 +80,19 @@ public abstract class TimerTask implements Runnable {
      */
     long period = 0;
 
+    /**
+     * The timer this task is scheduled on, if that timer delegates to an
+     * executor, or null.  Cleared when the task is cancelled or has
+     * executed for the last time.
+     */
+    Timer timer;
+
+    /**
+     * The pending execution of this task on a delegating timer's executor,
+     * or null.
+     */
+    java.util.concurrent.ScheduledFuture<?> future;
+
     /**
      * Creates a new timer task.
      */
@@ -114,11 +127,22 @@ public abstract class TimerTask implements Runnable {
      *         executions from taking place.)
      */
     public boolean cancel() {
+        boolean result;
+        Timer t;
+        java.util.concurrent.ScheduledFuture<?> f;
         synchronized(lock) {
-            boolean result = (state == SCHEDULED);
+            result = (state == SCHEDULED);
             state = CANCELLED;
-            return result;
+            t = timer;
+            f = future;
+            timer = null;
+            future = null;
         }
+        if (f != null)
+            f.cancel(false);
+        if (t != null)
+            t.remove(this);
+        return result;
     }
 
     /**
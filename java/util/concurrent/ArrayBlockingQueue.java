@@ -116,6 +116,17 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
     /** Condition for waiting puts */
     private final Condition notFull;
 
+    /**
+     * Condition for drainTo calls waiting for a minimum number of
+     * elements. These wait separately from takes so that a batch
+     * waiter that is not yet satisfied does not absorb a signal
+     * meant for a take. Not serialized; recreated on deserialization.
+     */
+    private transient Condition batchReady;
+
+    /** Number of threads waiting on batchReady */
+    private transient int batchWaiters;
+
     /**
      * Shared state for currently active iterators, or null if there
      * are known not to be any.  Allows queue operations to update
@@ -164,6 +175,32 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
             putIndex = 0;
         count++;
         notEmpty.signal();
+        if (batchWaiters > 0)
+            batchReady.signalAll();
+    }
+
+    /**
+     * Inserts elements a[from, to) at current put position, advances,
+     * and signals as many waiting takes as there are new elements.
+     * Call only when holding lock, with enough room for all of them.
+     */
+    private void enqueueAll(Object[] a, int from, int to) {
+        // assert lock.getHoldCount() == 1;
+        // assert items.length - count >= to - from;
+        final Object[] items = this.items;
+        int put = putIndex;
+        for (int i = from; i < to; i++) {
+            items[put] = a[i];
+            if (++put == items.length)
+                put = 0;
+        }
+        putIndex = put;
+        int k = to - from;
+        count += k;
+        for (; k > 0 && lock.hasWaiters(notEmpty); k--)
+            notEmpty.signal();
+        if (batchWaiters > 0)
+            batchReady.signalAll();
     }
 
     /**
@@ -270,6 +307,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         lock = new ReentrantLock(fair);
         notEmpty = lock.newCondition();
         notFull =  lock.newCondition();
+        batchReady = lock.newCondition();
     }
 
     /**
@@ -401,6 +439,82 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, in the order returned by its iterator,
+     * waiting if necessary for space to become available.
+     *
+     * <p>Elements are copied in as large runs as the remaining
+     * capacity allows, so that inserting a batch acquires the lock
+     * once per run rather than once per element. If interrupted while
+     * waiting, the elements already inserted remain in this queue and
+     * the rest are not inserted.
+     *
+     * @param c the elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     * @since 1.8
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        final Object[] a = c.toArray();
+        for (Object e : a)
+            checkNotNull(e);
+        final Object[] items = this.items;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int i = 0;
+            while (i < a.length) {
+                while (count == items.length)
+                    notFull.await();
+                int k = Math.min(a.length - i, items.length - count);
+                enqueueAll(a, i, i + k);
+                i += k;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts as many of the elements of the specified collection as
+     * is possible immediately without exceeding this queue's
+     * capacity, in the order returned by its iterator, and returns the
+     * number inserted. The elements inserted are always a prefix of
+     * that order.
+     *
+     * @param c the elements to insert
+     * @return the number of elements inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements
+     *         are inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        final Object[] a = c.toArray();
+        for (Object e : a)
+            checkNotNull(e);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int k = Math.min(a.length, items.length - count);
+            if (k > 0)
+                enqueueAll(a, 0, k);
+            return k;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     //弹栈
     public E poll() {
         final ReentrantLock lock = this.lock;
@@ -789,6 +903,69 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes at most the given number of available elements from
+     * this queue and adds them to the given collection, first waiting
+     * up to the specified wait time for at least {@code minElements}
+     * elements to become available. If the wait time elapses first,
+     * whatever elements are available (possibly none) are transferred.
+     *
+     * <p>Waiting for a batch does not delay other consumers: elements
+     * may be taken by other threads while this method waits, in which
+     * case it continues to wait for the remainder.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for; values
+     *        larger than {@code maxElements} or this queue's capacity
+     *        are treated as those bounds
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final Object[] items = this.items;
+        int need = Math.min(minElements, Math.min(maxElements, items.length));
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            if (count < need && nanos > 0) {
+                ++batchWaiters;
+                try {
+                    while (count < need && nanos > 0)
+                        nanos = batchReady.awaitNanos(nanos);
+                } finally {
+                    --batchWaiters;
+                }
+            }
+            // Still holding the (reentrant) lock, so no other consumer
+            // can run between the wait and the transfer.
+            return drainTo(c, maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -1464,6 +1641,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
 
         // Read in items array and various fields
         s.defaultReadObject();
+        batchReady = lock.newCondition();
 
         // Check invariants over count and index fields. Note that
         // if putIndex==takeIndex, count can be either 0 or items.length.
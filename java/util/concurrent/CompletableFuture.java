@@ -416,6 +416,102 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return e;
     }
 
+    /**
+     * A receiver of timing events for the asynchronous steps of
+     * CompletableFuture pipelines, installed with
+     * {@link CompletableFuture#setStageTracer}.  Each time a stage's
+     * action is handed to an executor, whether by an {@code async}
+     * method such as {@link #supplyAsync(Supplier) supplyAsync} or
+     * {@link #thenApplyAsync(Function) thenApplyAsync}, the tracer is
+     * told, once the action has run, how long it waited in the executor
+     * and how long it ran.  The running time includes any dependent
+     * stages without an executor that the action's completion triggered
+     * in the same thread.  Stages without an executor are not traced
+     * separately.
+     *
+     * <p>Tracers are invoked in the executor's thread after the stage
+     * has completed, and should be fast and should not throw; an
+     * exception thrown by a tracer propagates to the executor.
+     *
+     * @since 1.8
+     */
+    @FunctionalInterface
+    public static interface StageTracer {
+        /**
+         * Invoked after the action of an asynchronous stage has run.
+         *
+         * @param stage the stage completed by the action
+         * @param executor the executor that ran the action
+         * @param queuedNanos the time, in nanoseconds, from submission to
+         *        the executor until the action started
+         * @param runNanos the time, in nanoseconds, that the action ran
+         */
+        void stageRan(CompletableFuture<?> stage, Executor executor,
+                      long queuedNanos, long runNanos);
+    }
+
+    /** The installed StageTracer, or null if none. */
+    private static volatile StageTracer stageTracer;
+
+    /**
+     * Installs a tracer for the asynchronous steps of all
+     * CompletableFutures, or removes it if {@code tracer} is null.
+     * While no tracer is installed, tracing costs only a read of a
+     * field per asynchronous step.  Steps submitted before a tracer is
+     * installed are not traced.
+     *
+     * @param tracer the tracer, or {@code null} to remove it
+     * @throws SecurityException if a security manager exists and the
+     *         caller does not hold {@link java.lang.RuntimePermission}
+     *         {@code ("setStageTracer")}
+     * @since 1.8
+     */
+    public static void setStageTracer(StageTracer tracer) {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null)
+            sm.checkPermission(new RuntimePermission("setStageTracer"));
+        stageTracer = tracer;
+    }
+
+    /**
+     * Submits an asynchronous task completing d to executor e, wrapped
+     * for tracing if a tracer is installed.
+     */
+    static void execute(Executor e, Runnable task, CompletableFuture<?> d) {
+        StageTracer t = stageTracer;
+        if (t == null)
+            e.execute(task);
+        else
+            e.execute(new TracedTask(t, e, task, d));
+    }
+
+    /** A task timed on behalf of a StageTracer. */
+    static final class TracedTask
+            implements Runnable, AsynchronousCompletionTask {
+        final StageTracer tracer;
+        final Executor executor;
+        final Runnable task;
+        final CompletableFuture<?> dep;
+        final long submitTime;
+
+        TracedTask(StageTracer tracer, Executor executor, Runnable task,
+                   CompletableFuture<?> dep) {
+            this.tracer = tracer; this.executor = executor;
+            this.task = task; this.dep = dep;
+            this.submitTime = System.nanoTime();
+        }
+
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                tracer.stageRan(dep, executor, start - submitTime,
+                                System.nanoTime() - start);
+            }
+        }
+    }
+
     // Modes for Completion.tryFire. Signedness matters.
     static final int SYNC   =  0;
     static final int ASYNC  =  1;
@@ -526,7 +622,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                 if (e == null)
                     return true;
                 executor = null; // disable
-                e.execute(this);
+                execute(e, this, dep);
             }
             return false;
         }
@@ -1601,7 +1697,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                                                      Supplier<U> f) {
         if (f == null) throw new NullPointerException();
         CompletableFuture<U> d = new CompletableFuture<U>();
-        e.execute(new AsyncSupply<U>(d, f));
+        execute(e, new AsyncSupply<U>(d, f), d);
         return d;
     }
 
@@ -1637,7 +1733,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     static CompletableFuture<Void> asyncRunStage(Executor e, Runnable f) {
         if (f == null) throw new NullPointerException();
         CompletableFuture<Void> d = new CompletableFuture<Void>();
-        e.execute(new AsyncRun(d, f));
+        execute(e, new AsyncRun(d, f), d);
         return d;
     }
 
@@ -2176,6 +2272,165 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     // not in interface CompletionStage
 
+    /**
+     * Returns a new {@link Chain} for building a linear sequence of
+     * synchronous stages that depends on this CompletableFuture as a
+     * single stage.  For example,
+     * <pre> {@code
+     * CompletableFuture<Reply> r = request.chain()
+     *     .thenApply(Codec::decode)
+     *     .thenApply(Handler::handle)
+     *     .thenApply(Reply::of)
+     *     .toCompletableFuture();}</pre>
+     * yields the same result as the corresponding sequence of
+     * {@code thenApply} calls, but creates one dependent
+     * CompletableFuture and one completion rather than one of each per
+     * step.
+     *
+     * @return a new Chain starting from this CompletableFuture
+     * @since 1.8
+     */
+    public Chain<T,T> chain() {
+        return new Chain<T,T>(this);
+    }
+
+    /**
+     * A builder for a linear sequence of synchronous stages that are
+     * fused into a single dependent of a source CompletableFuture,
+     * obtained from {@link CompletableFuture#chain}.  The steps are
+     * composed into one function, which runs when the source completes
+     * normally, in the thread that completes it (or the thread calling
+     * {@link #toCompletableFuture} if it is already complete), or in
+     * the given executor for {@link #toCompletableFutureAsync}.  If the
+     * source completes exceptionally, or a step throws an exception,
+     * later steps are skipped and the resulting CompletableFuture
+     * completes exceptionally with a {@link CompletionException}, just
+     * as the last of a sequence of {@code thenApply} stages would.
+     * Intermediate results are not available as stages.
+     *
+     * <p>Each step method updates and returns this builder, which is
+     * not thread-safe and should not be used after its
+     * {@code toCompletableFuture} method has been called.
+     *
+     * @param <T> the source's result type
+     * @param <U> the result type of the steps added so far
+     * @since 1.8
+     */
+    public static final class Chain<T,U> {
+        private final CompletableFuture<T> source;
+        private Function<? super T, ?> fn; // null for identity
+
+        Chain(CompletableFuture<T> source) {
+            this.source = source;
+        }
+
+        /**
+         * Adds a step that applies the given function to the result of
+         * the previous step.
+         *
+         * @param f the function to apply
+         * @param <V> the function's return type
+         * @return this builder
+         * @throws NullPointerException if the function is null
+         */
+        @SuppressWarnings("unchecked")
+        public <V> Chain<T,V> thenApply(Function<? super U, ? extends V> f) {
+            if (f == null) throw new NullPointerException();
+            Function<? super T, ?> g = fn;
+            fn = (g == null) ? (Function<? super T, ?>)f :
+                new Composed<T,U,V>((Function<? super T, ? extends U>)g, f);
+            return (Chain<T,V>)this;
+        }
+
+        /**
+         * Adds a step that performs the given action on the result of
+         * the previous step.
+         *
+         * @param action the action to perform
+         * @return this builder
+         * @throws NullPointerException if the action is null
+         */
+        public Chain<T,Void> thenAccept(Consumer<? super U> action) {
+            if (action == null) throw new NullPointerException();
+            return thenApply(new AcceptStep<U>(action));
+        }
+
+        /**
+         * Adds a step that runs the given action after the previous
+         * step.
+         *
+         * @param action the action to run
+         * @return this builder
+         * @throws NullPointerException if the action is null
+         */
+        public Chain<T,Void> thenRun(Runnable action) {
+            if (action == null) throw new NullPointerException();
+            return thenApply(new RunStep<U>(action));
+        }
+
+        /**
+         * Returns a new CompletableFuture that is completed with the
+         * result of the steps, applied when the source completes
+         * normally.
+         *
+         * @return the new CompletableFuture
+         */
+        public CompletableFuture<U> toCompletableFuture() {
+            return source.uniApplyStage(null, function());
+        }
+
+        /**
+         * Returns a new CompletableFuture that is completed with the
+         * result of the steps, applied using the given executor when the
+         * source completes normally.
+         *
+         * @param executor the executor to use for asynchronous execution
+         * @return the new CompletableFuture
+         * @throws NullPointerException if the executor is null
+         */
+        public CompletableFuture<U> toCompletableFutureAsync(Executor executor) {
+            return source.uniApplyStage(screenExecutor(executor), function());
+        }
+
+        @SuppressWarnings("unchecked")
+        private Function<? super T, ? extends U> function() {
+            Function<? super T, ?> f = fn;
+            return (Function<? super T, ? extends U>)
+                ((f == null) ? Identity.INSTANCE : f);
+        }
+    }
+
+    /** Function composition for Chain. */
+    static final class Composed<T,U,V> implements Function<T,V> {
+        final Function<? super T, ? extends U> first;
+        final Function<? super U, ? extends V> second;
+        Composed(Function<? super T, ? extends U> first,
+                 Function<? super U, ? extends V> second) {
+            this.first = first; this.second = second;
+        }
+        public V apply(T t) { return second.apply(first.apply(t)); }
+    }
+
+    /** Adapts a Consumer as a Chain step. */
+    static final class AcceptStep<U> implements Function<U,Void> {
+        final Consumer<? super U> action;
+        AcceptStep(Consumer<? super U> action) { this.action = action; }
+        public Void apply(U u) { action.accept(u); return null; }
+    }
+
+    /** Adapts a Runnable as a Chain step. */
+    static final class RunStep<U> implements Function<U,Void> {
+        final Runnable action;
+        RunStep(Runnable action) { this.action = action; }
+        public Void apply(U u) { action.run(); return null; }
+    }
+
+    /** The identity function, for an empty Chain. */
+    static final class Identity implements Function<Object,Object> {
+        static final Identity INSTANCE = new Identity();
+        public Object apply(Object x) { return x; }
+    }
+
     /**
      * Returns a new CompletableFuture that is completed when this
      * CompletableFuture completes, with the result of the given
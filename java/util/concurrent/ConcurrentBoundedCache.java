@@ -0,0 +1,801 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A concurrent cache bounded by the number or the total weight of its
+ * entries, which evicts entries as the bound is exceeded and optionally
+ * expires them a fixed time after they were written or last accessed.
+ *
+ * <p>{@link java.util.LinkedHashMap#removeEldestEntry} supports an LRU
+ * cache, but an access-ordered {@code LinkedHashMap} relinks its list on
+ * every read, so that it must be wrapped in a synchronized map and reads
+ * serialize on one monitor.  This class instead keeps its entries in a
+ * {@link ConcurrentHashMap}, so that retrievals do not lock, and chooses
+ * victims with the CLOCK approximation of LRU: a read merely sets a
+ * <em>referenced</em> bit of the entry, and the clock hand clears the bits
+ * of referenced entries, giving them a second chance, while it sweeps for
+ * an entry to evict.  Eviction and other bookkeeping run under a single
+ * lock that is only taken by updates and, opportunistically, by a read
+ * that fills a read buffer.
+ *
+ * <p>With the {@link Policy#TINY_LFU TINY_LFU} policy, the cache
+ * additionally tracks the recent access frequency of keys in a compact
+ * count-min sketch, and only admits a new entry at the expense of the
+ * CLOCK victim if the new key has been used more often.  This protects
+ * the cache against scans and one-hit wonders.  Reads are recorded for
+ * the sketch in striped, lossy buffers that are drained under the
+ * eviction lock, so that readers do not contend on the sketch.
+ *
+ * <p>Like {@code ConcurrentHashMap}, this class does not allow
+ * {@code null} to be used as a key or value.  Hit, miss and eviction
+ * counts are available through {@link #stats}.  Expired entries are not
+ * returned by any retrieval operation, and are removed as they are
+ * encountered, during eviction, or by {@link #cleanUp}.
+ *
+ * <p>Instances are created through a {@link Builder}, for example:
+ * <pre> {@code
+ * ConcurrentBoundedCache<Long, Session> sessions =
+ *     new ConcurrentBoundedCache.Builder<Long, Session>()
+ *         .maximumSize(100_000)
+ *         .expireAfterAccess(30, TimeUnit.MINUTES)
+ *         .build();}</pre>
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @since 1.8
+ */
+public class ConcurrentBoundedCache<K,V> {
+
+    /**
+     * The policies that may be used to select the entries to evict.
+     */
+    public enum Policy {
+        /**
+         * Evicts the first unreferenced entry found by the clock hand.
+         */
+        CLOCK,
+        /**
+         * Selects a victim as {@link #CLOCK} does, but evicts the entry
+         * being added instead of the victim if the key of the victim has
+         * been used at least as frequently.
+         */
+        TINY_LFU
+    }
+
+    /**
+     * A builder of {@link ConcurrentBoundedCache} instances.  A bound,
+     * set by {@link #maximumSize} or {@link #maximumWeight}, must be
+     * configured; all other settings are optional.
+     *
+     * @param <K> the type of keys of the built cache
+     * @param <V> the type of values of the built cache
+     */
+    public static final class Builder<K,V> {
+        long maximum = -1L;
+        ToIntBiFunction<? super K, ? super V> weigher;
+        long expireAfterWriteNanos;
+        long expireAfterAccessNanos;
+        Policy policy = Policy.TINY_LFU;
+        int initialCapacity = 16;
+
+        /**
+         * Creates a builder with the {@link Policy#TINY_LFU TINY_LFU}
+         * policy and no expiry.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Bounds the cache to the given number of entries.
+         *
+         * @param maximumSize the maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if maximumSize is negative
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0L)
+                throw new IllegalArgumentException();
+            this.maximum = maximumSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * Bounds the cache to the given total weight of its entries, the
+         * weight of each entry being computed by the given weigher when
+         * it is added.
+         *
+         * @param maximumWeight the maximum total weight
+         * @param weigher the function computing the non-negative weight
+         *        of an entry
+         * @return this builder
+         * @throws IllegalArgumentException if maximumWeight is negative
+         * @throws NullPointerException if the weigher is null
+         */
+        public Builder<K,V> maximumWeight(long maximumWeight,
+                                          ToIntBiFunction<? super K, ? super V> weigher) {
+            if (maximumWeight < 0L)
+                throw new IllegalArgumentException();
+            if (weigher == null)
+                throw new NullPointerException();
+            this.maximum = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Expires each entry once the given duration has elapsed after
+         * its value was last written.
+         *
+         * @param duration the duration, which must be positive
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if duration is not positive
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Expires each entry once the given duration has elapsed after
+         * it was last written or read.
+         *
+         * @param duration the duration, which must be positive
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if duration is not positive
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        private static long toNanos(long duration, TimeUnit unit) {
+            if (duration <= 0L)
+                throw new IllegalArgumentException();
+            return unit.toNanos(duration);
+        }
+
+        /**
+         * Sets the eviction policy.
+         *
+         * @param policy the policy
+         * @return this builder
+         * @throws NullPointerException if the policy is null
+         */
+        public Builder<K,V> policy(Policy policy) {
+            if (policy == null)
+                throw new NullPointerException();
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * Sets the initial capacity of the underlying hash table.
+         *
+         * @param initialCapacity the expected number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if initialCapacity is negative
+         */
+        public Builder<K,V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException();
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Builds a cache with the settings of this builder.
+         *
+         * @param <K1> the type of keys of the cache
+         * @param <V1> the type of values of the cache
+         * @return a new, empty cache
+         * @throws IllegalStateException if no bound has been set
+         */
+        public <K1 extends K, V1 extends V> ConcurrentBoundedCache<K1,V1> build() {
+            if (maximum < 0L)
+                throw new IllegalStateException("No maximum size or weight");
+            return new ConcurrentBoundedCache<K1,V1>(this);
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a cache.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        Stats(long hitCount, long missCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * Returns the number of lookups that found a live entry.
+         *
+         * @return the hit count
+         */
+        public long hitCount() { return hitCount; }
+
+        /**
+         * Returns the number of lookups that found no live entry.
+         *
+         * @return the miss count
+         */
+        public long missCount() { return missCount; }
+
+        /**
+         * Returns the number of entries removed to respect the bound or
+         * because they expired.
+         *
+         * @return the eviction count
+         */
+        public long evictionCount() { return evictionCount; }
+
+        /**
+         * Returns the ratio of hits to lookups, or {@code 1.0} if there
+         * were no lookups.
+         *
+         * @return the hit rate
+         */
+        public double hitRate() {
+            long n = hitCount + missCount;
+            return (n == 0L) ? 1.0 : (double)hitCount / n;
+        }
+
+        /**
+         * Returns a string describing these statistics.
+         *
+         * @return a string describing these statistics
+         */
+        public String toString() {
+            return "Stats[hits=" + hitCount + ", misses=" + missCount +
+                ", evictions=" + evictionCount + "]";
+        }
+    }
+
+    /**
+     * A cache entry.  The value, weight and timestamps are set before
+     * the node is published in the map, and never change afterwards,
+     * except for the access time and the referenced bit; a write of a
+     * new value replaces the node.  The ring links and the linked flag
+     * are guarded by the eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        final V value;
+        final int weight;
+        final long writeTime;
+        volatile long accessTime;
+        volatile boolean referenced;
+        Node<K,V> prev, next;  // clock ring
+        boolean linked;        // in ring and counted in weightedSize
+        boolean retired;       // removed from map; never (re)link
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /** The number of read buffer stripes, a power of two. */
+    static final int READ_BUFFER_STRIPES;
+    static {
+        int n = 1;
+        while (n < ConcurrentHashMap.NCPU && n < 64)
+            n <<= 1;
+        READ_BUFFER_STRIPES = n;
+    }
+
+    /** The capacity of each read buffer stripe. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** The entries, by key. */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    /** The bound on the total weight of entries. */
+    final long maximum;
+
+    /** The weigher, or null if each entry weighs one. */
+    final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /** Expiry durations, or zero if disabled. */
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+
+    /** Guards the clock ring, weightedSize and the sketch. */
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** The clock hand; null if the ring is empty. */
+    Node<K,V> hand;
+
+    /** The total weight of linked entries. */
+    volatile long weightedSize;
+
+    /** The frequency sketch, or null for the CLOCK policy. */
+    final FrequencySketch sketch;
+
+    /** Striped buffers of recent reads, or null for the CLOCK policy. */
+    final AtomicReferenceArray<Node<K,V>>[] readBuffers;
+    final AtomicInteger[] readCounts;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    ConcurrentBoundedCache(Builder<? super K, ? super V> b) {
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(b.initialCapacity);
+        this.maximum = b.maximum;
+        this.weigher = b.weigher;
+        this.expireAfterWriteNanos = b.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = b.expireAfterAccessNanos;
+        if (b.policy == Policy.TINY_LFU) {
+            this.sketch = new FrequencySketch(maximum);
+            int n = READ_BUFFER_STRIPES;
+            this.readBuffers = (AtomicReferenceArray<Node<K,V>>[])
+                new AtomicReferenceArray<?>[n];
+            this.readCounts = new AtomicInteger[n];
+            for (int i = 0; i < n; ++i) {
+                readBuffers[i] = new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+                readCounts[i] = new AtomicInteger();
+            }
+        } else {
+            this.sketch = null;
+            this.readBuffers = null;
+            this.readCounts = null;
+        }
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no live mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> n = data.get(key);
+        if (n != null) {
+            long now = ticker();
+            if (!isExpired(n, now)) {
+                onHit(n, now);
+                return n.value;
+            }
+            expire(n);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, computing
+     * it with the given function and entering it into this cache if there
+     * is no live mapping for the key.  The function is applied at most
+     * once per absent key, and other updates of this key are blocked
+     * while it runs.
+     *
+     * @param key the key
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the key, or null if the computed value is null
+     * @throws NullPointerException if the key or mappingFunction is null
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        Node<K,V> n = data.get(key);
+        long now = ticker();
+        if (n != null && !isExpired(n, now)) {
+            onHit(n, now);
+            return n.value;
+        }
+        misses.increment();
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] replaced = (Node<K,V>[])new Node<?,?>[1];
+        boolean[] computed = new boolean[1];
+        Node<K,V> r = data.compute(key, (k, old) -> {
+            if (old != null && !isExpired(old, now))
+                return old;
+            replaced[0] = old;
+            computed[0] = true;
+            V v = mappingFunction.apply(k);
+            return (v == null) ? null : newNode(k, v, now);
+        });
+        if (computed[0])
+            afterWrite(replaced[0], r, replaced[0] != null);
+        return (r == null) ? null : r.value;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this cache,
+     * replacing any previous mapping, and evicts entries if the bound is
+     * then exceeded.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous live value associated with the key, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        long now = ticker();
+        Node<K,V> n = newNode(key, value, now);
+        Node<K,V> old = data.put(key, n);
+        afterWrite(old, n, false);
+        return (old == null || isExpired(old, now)) ? null : old.value;
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param key key whose mapping is to be removed
+     * @return the previous live value associated with the key, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> old = data.remove(key);
+        if (old == null)
+            return null;
+        afterWrite(old, null, false);
+        return isExpired(old, ticker()) ? null : old.value;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            for (Node<K,V> n : data.values()) {
+                if (data.remove(n.key, n))
+                    retire(n);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of mappings in this cache, including expired
+     * mappings that have not yet been removed.
+     *
+     * @return the number of mappings
+     */
+    public long size() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Returns the total weight of the entries in this cache, which
+     * equals the number of entries if no weigher was configured.
+     *
+     * @return the total weight of the entries
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counts of this
+     * cache since its creation.
+     *
+     * @return the statistics
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Performs pending maintenance: drains the read buffers, removes
+     * all expired entries, and evicts entries while the bound is
+     * exceeded.  Maintenance is otherwise performed as a side effect of
+     * other operations, so that calling this method is only needed to
+     * promptly release expired entries of an idle cache.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if (expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L) {
+                long now = ticker();
+                for (Node<K,V> n : data.values()) {
+                    if (isExpired(n, now) && data.remove(n.key, n)) {
+                        evictions.increment();
+                        retire(n);
+                    }
+                }
+            }
+            evict(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ---------------- Internals -------------- */
+
+    final long ticker() {
+        return (expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L) ?
+            System.nanoTime() : 0L;
+    }
+
+    final boolean isExpired(Node<K,V> n, long now) {
+        return (expireAfterWriteNanos > 0L &&
+                now - n.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos > 0L &&
+             now - n.accessTime >= expireAfterAccessNanos);
+    }
+
+    private Node<K,V> newNode(K key, V value, long now) {
+        int w = 1;
+        if (weigher != null && (w = weigher.applyAsInt(key, value)) < 0)
+            throw new IllegalArgumentException("Negative weight");
+        return new Node<K,V>(key, value, w, now);
+    }
+
+    private void onHit(Node<K,V> n, long now) {
+        n.referenced = true;
+        if (expireAfterAccessNanos > 0L)
+            n.accessTime = now;
+        hits.increment();
+        if (readBuffers != null)
+            recordRead(n);
+    }
+
+    /**
+     * Adds a read to a read buffer stripe, dropping it if the stripe is
+     * full, and drains all stripes if the stripe filled and the eviction
+     * lock is free.
+     */
+    private void recordRead(Node<K,V> n) {
+        int h = ThreadLocalRandom.getProbe();
+        if (h == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        int s = h & (READ_BUFFER_STRIPES - 1);
+        int i = readCounts[s].getAndIncrement();
+        if (i < READ_BUFFER_SIZE)
+            readBuffers[s].lazySet(i, n);
+        if (i >= READ_BUFFER_SIZE - 1 && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /** Feeds buffered reads to the sketch. Call with lock held. */
+    private void drainReadBuffers() {
+        AtomicReferenceArray<Node<K,V>>[] bufs = readBuffers;
+        if (bufs == null)
+            return;
+        for (int s = 0; s < bufs.length; ++s) {
+            AtomicReferenceArray<Node<K,V>> buf = bufs[s];
+            int n = Math.min(readCounts[s].get(), READ_BUFFER_SIZE);
+            for (int i = 0; i < n; ++i) {
+                Node<K,V> e = buf.getAndSet(i, null);
+                if (e != null)
+                    sketch.increment(e.key.hashCode());
+            }
+            readCounts[s].set(0);
+        }
+    }
+
+    /**
+     * Expires a node found by a read: removes it from the map unless
+     * already replaced, and from the ring.
+     */
+    private void expire(Node<K,V> n) {
+        if (data.remove(n.key, n)) {
+            evictions.increment();
+            afterWrite(n, null, false);
+        }
+    }
+
+    /**
+     * Updates the ring after a write: retires the replaced or removed
+     * node if any, links the added node if any, and evicts while the
+     * bound is exceeded.
+     */
+    private void afterWrite(Node<K,V> removed, Node<K,V> added,
+                            boolean expiredReplaced) {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            if (removed != null) {
+                if (expiredReplaced)
+                    evictions.increment();
+                retire(removed);
+            }
+            if (added != null && !added.retired && !added.linked) {
+                if (sketch != null)
+                    sketch.increment(added.key.hashCode());
+                link(added);
+            }
+            drainReadBuffers();
+            evict(added);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Links n before the hand, that is, last in sweep order. */
+    private void link(Node<K,V> n) {
+        Node<K,V> h = hand;
+        if (h == null) {
+            n.prev = n.next = n;
+            hand = n;
+        } else {
+            Node<K,V> p = h.prev;
+            n.prev = p;
+            n.next = h;
+            p.next = n;
+            h.prev = n;
+        }
+        n.linked = true;
+        weightedSize += n.weight;
+    }
+
+    /** Unlinks n if linked, and marks it so that it is never linked. */
+    private void retire(Node<K,V> n) {
+        n.retired = true;
+        if (n.linked) {
+            n.linked = false;
+            weightedSize -= n.weight;
+            Node<K,V> next = n.next;
+            if (next == n)
+                hand = null;
+            else {
+                Node<K,V> prev = n.prev;
+                prev.next = next;
+                next.prev = prev;
+                if (hand == n)
+                    hand = next;
+            }
+            n.prev = n.next = null;
+        }
+    }
+
+    /**
+     * Evicts entries while the bound is exceeded.  The clock hand skips
+     * and clears referenced live entries.  With TinyLFU admission, the
+     * newly added candidate is evicted instead of the victim unless its
+     * key is the more frequently used one.
+     */
+    private void evict(Node<K,V> candidate) {
+        long now = ticker();
+        Node<K,V> n;
+        while (weightedSize > maximum && (n = hand) != null) {
+            boolean expired = isExpired(n, now);
+            if (n.referenced && !expired) {
+                n.referenced = false;
+                hand = n.next;
+                continue;
+            }
+            Node<K,V> victim = n;
+            if (sketch != null && !expired && candidate != null &&
+                candidate != n && candidate.linked &&
+                sketch.frequency(candidate.key.hashCode()) <=
+                sketch.frequency(n.key.hashCode()))
+                victim = candidate;
+            if (victim == candidate)
+                candidate = null;
+            else
+                hand = n.next;
+            data.remove(victim.key, victim);
+            retire(victim);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating the frequency of
+     * keys, from their hash codes, over a sample of recent accesses.
+     * Once the number of recorded accesses reaches ten times the width
+     * of the sketch, all counters are halved, so that the sketch ages
+     * out stale popularity.  Guarded by the eviction lock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+
+        final long[] table;
+        final int counterMask;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(long maximum) {
+            long m = Math.max(16L, Math.min(maximum, 1L << 26));
+            int cap = Integer.highestOneBit((int)m - 1) << 1;
+            table = new long[Math.max(cap >>> 2, 1)];  // 16 counters per long
+            counterMask = (table.length << 4) - 1;
+            sampleSize = 10 * cap;
+        }
+
+        private int indexOf(int h, int i) {
+            long x = (h + SEEDS[i]) * SEEDS[i];
+            x += x >>> 32;
+            return (int)x & counterMask;
+        }
+
+        int frequency(int h) {
+            int f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int c = indexOf(h, i);
+                int v = (int)((table[c >>> 4] >>> ((c & 15) << 2)) & 0xfL);
+                if (v < f)
+                    f = v;
+            }
+            return f;
+        }
+
+        void increment(int h) {
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int c = indexOf(h, i);
+                int j = c >>> 4, shift = (c & 15) << 2;
+                if (((table[j] >>> shift) & 0xfL) != 0xfL) {
+                    table[j] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int j = 0; j < table.length; ++j)
+                    table[j] = (table[j] >>> 1) & RESET_MASK;
+                additions >>>= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,932 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A concurrent hash table mapping byte-array keys to byte-array values,
+ * whose entries are held outside of the Java heap.  Large caches kept in
+ * a {@code ConcurrentHashMap<String,byte[]>} inflate the live set that
+ * the garbage collector must trace and copy; the mappings of this map
+ * instead live in direct or memory-mapped {@link ByteBuffer} segments,
+ * and only a compact primitive index per segment remains on the heap.
+ *
+ * <p>The map is divided into a fixed number of <em>segments</em>, each
+ * guarded by its own {@link ReentrantReadWriteLock}, in the manner of the
+ * segments of earlier releases of {@link ConcurrentHashMap}: retrievals
+ * in a segment may proceed concurrently with each other, while updates
+ * are exclusive within the segment.  Within a segment, entries are
+ * appended to a log; replaced or removed entries become garbage that is
+ * reclaimed by compacting the segment in place when it fills, or by an
+ * explicit call to {@link #compact}.  A segment whose live data does not
+ * fit is grown by doubling.
+ *
+ * <p>Direct segments are obtained from {@link ByteBuffer#allocateDirect},
+ * so they count against the limit set by
+ * {@code -XX:MaxDirectMemorySize}.  Buffers replaced by growing, and all
+ * buffers upon {@link #close}, are released eagerly rather than when
+ * they become unreachable, returning their reservation immediately.
+ *
+ * <p>A map created by {@link #open} keeps each segment in a file of the
+ * given directory, mapped with {@link FileChannel#map}.  Such a map may
+ * be reopened with its previous contents after it has been closed, which
+ * permits a warm restart of a cache.  The files are not synchronously
+ * journaled, so their contents are only guaranteed to be consistent
+ * after {@link #close} or {@link #force} returns.
+ *
+ * <p>Keys and values are copied on the way in and on the way out, so
+ * arrays passed to or returned by this map may be modified freely.
+ * Neither keys nor values may be {@code null}.  Operations on a closed
+ * map throw {@link IllegalStateException}.
+ *
+ * @since 1.8
+ */
+public class ConcurrentOffHeapMap implements Closeable {
+
+    /*
+     * Segment layout: a header of HEADER_SIZE bytes holding MAGIC, the
+     * append position and the number of segments of the map, followed
+     * by records of the form
+     *
+     *     int keyLength (sign bit set once the record is dead)
+     *     int valueLength
+     *     byte[keyLength] key
+     *     byte[valueLength] value
+     *
+     * Each segment keeps an on-heap open-addressing index of its live
+     * records, as two parallel int arrays holding hashes and record
+     * offsets.  Since no record starts within the header, offset 0
+     * marks a free index slot.  The index is rebuilt after compaction
+     * and when a file-backed segment is reopened.
+     */
+
+    /** Identifies a segment file and its format version. */
+    private static final int MAGIC = 0x4f484d31; // "OHM1"
+
+    /** Offset of the append position within the segment header. */
+    private static final int TOP_OFFSET = 4;
+
+    /** Offset of the map's segment count within the segment header. */
+    private static final int SEGMENTS_OFFSET = 8;
+
+    /** Size of the segment header, and the offset of the first record. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Size of the per-record header. */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /** The largest possible segment capacity. */
+    private static final int MAXIMUM_SEGMENT_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /** The largest number of segments. */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    /** Size of the buffer used when moving records during compaction. */
+    private static final int COPY_CHUNK = 8192;
+
+    /** The segments, indexed by the high bits of the key hash. */
+    private final Segment[] segments;
+
+    /** Shift and mask for segment selection. */
+    private final int segmentShift;
+    private final int segmentMask;
+
+    /** Set once closed. */
+    private volatile boolean closed;
+
+    /**
+     * Creates a new, empty map with the given number of segments, each
+     * initially holding {@code segmentCapacity} bytes of direct memory.
+     *
+     * @param segments the number of segments, which is rounded up to a
+     *        power of two and bounds the number of concurrent writers
+     * @param segmentCapacity the initial capacity of each segment, in bytes
+     * @throws IllegalArgumentException if either argument is not positive
+     * @throws OutOfMemoryError if the direct memory cannot be reserved
+     */
+    public ConcurrentOffHeapMap(int segments, int segmentCapacity) {
+        this(segments, segmentCapacity, null);
+    }
+
+    private ConcurrentOffHeapMap(int segments, int segmentCapacity,
+                                 FileChannel[] channels) {
+        int n = sizeFor(segments);
+        checkCapacity(segmentCapacity);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(n);
+        this.segmentMask = n - 1;
+        Segment[] ss = new Segment[n];
+        boolean ok = false;
+        try {
+            for (int i = 0; i < n; ++i)
+                ss[i] = new Segment(segmentCapacity, n,
+                                    (channels == null) ? null : channels[i]);
+            ok = true;
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        } finally {
+            if (!ok) {
+                for (Segment s : ss) {
+                    if (s != null)
+                        s.release();
+                }
+            }
+        }
+        this.segments = ss;
+    }
+
+    /**
+     * Opens a map whose segments are memory-mapped files in the given
+     * directory, creating the files if they do not exist.  If the
+     * directory holds the segment files of a previously closed map, the
+     * map is opened with their contents and with the number of segments
+     * recorded in them, and the {@code segments} argument is ignored.
+     *
+     * @param dir the directory holding the segment files
+     * @param segments the number of segments of a new map, rounded up to
+     *        a power of two
+     * @param segmentCapacity the minimum initial size of each segment
+     *        file, in bytes
+     * @return the map
+     * @throws IllegalArgumentException if either numeric argument is not
+     *         positive
+     * @throws IOException if a segment file cannot be opened or mapped,
+     *         or is not a valid segment file
+     */
+    public static ConcurrentOffHeapMap open(Path dir, int segments,
+                                            int segmentCapacity)
+        throws IOException {
+        int n = sizeFor(segments);
+        checkCapacity(segmentCapacity);
+        int stored = storedSegmentCount(dir.resolve("segment-0"));
+        if (stored != 0)
+            n = stored;
+        FileChannel[] channels = new FileChannel[n];
+        try {
+            for (int i = 0; i < n; ++i)
+                channels[i] = FileChannel.open(dir.resolve("segment-" + i),
+                                               StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+            return new ConcurrentOffHeapMap(n, segmentCapacity, channels);
+        } catch (IOException | RuntimeException | Error e) {
+            for (FileChannel ch : channels) {
+                if (ch != null) {
+                    try {
+                        ch.close();
+                    } catch (IOException ignore) {
+                        e.addSuppressed(ignore);
+                    }
+                }
+            }
+            if (e instanceof java.io.UncheckedIOException)
+                throw ((java.io.UncheckedIOException)e).getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the segment count recorded in the given segment file, or 0
+     * if there is no such file or it is empty.
+     */
+    private static int storedSegmentCount(Path file) throws IOException {
+        if (!Files.exists(file))
+            return 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() == 0L)
+                return 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && ch.read(header) >= 0) { }
+            int n = header.getInt(SEGMENTS_OFFSET);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC ||
+                n <= 0 || n > MAX_SEGMENTS || (n & (n - 1)) != 0)
+                throw new IOException("Not a segment file");
+            return n;
+        }
+    }
+
+    private static int sizeFor(int segments) {
+        if (segments <= 0)
+            throw new IllegalArgumentException("Illegal segment count: " +
+                                               segments);
+        int n = 1;
+        while (n < segments && n < MAX_SEGMENTS)
+            n <<= 1;
+        return n;
+    }
+
+    private static void checkCapacity(int segmentCapacity) {
+        if (segmentCapacity <= 0)
+            throw new IllegalArgumentException("Illegal segment capacity: " +
+                                               segmentCapacity);
+    }
+
+    /**
+     * Spreads the hash of a key, as in ConcurrentHashMap.
+     */
+    static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        h += (h <<  15) ^ 0xffffcd7d;
+        h ^= (h >>> 10);
+        h += (h <<   3);
+        h ^= (h >>>  6);
+        h += (h <<   2) + (h << 14);
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int h) {
+        if (closed)
+            throw new IllegalStateException("Map is closed");
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return a copy of the mapped value, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public byte[] get(byte[] key) {
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        s.readLock().lock();
+        try {
+            s.ensureOpen();
+            int i = s.find(h, key);
+            return (i < 0) ? null : s.value(s.offsets[i]);
+        } finally {
+            s.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tests if the specified key is a key in this map.
+     *
+     * @param key possible key
+     * @return {@code true} if the key is mapped in this map
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean containsKey(byte[] key) {
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        s.readLock().lock();
+        try {
+            s.ensureOpen();
+            return s.find(h, key) >= 0;
+        } finally {
+            s.readLock().unlock();
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map,
+     * replacing any previous mapping.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return {@code true} if a previous mapping was replaced
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the entry could never fit in a
+     *         segment
+     * @throws IllegalStateException if this map has been closed
+     * @throws OutOfMemoryError if a segment must grow and direct memory
+     *         cannot be reserved, in which case any previous mapping for
+     *         the key has been removed
+     */
+    public boolean put(byte[] key, byte[] value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return {@code true} if the mapping was added, {@code false} if the
+     *         key was already mapped
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the entry could never fit in a
+     *         segment
+     * @throws IllegalStateException if this map has been closed
+     * @throws OutOfMemoryError if a segment must grow and direct memory
+     *         cannot be reserved
+     */
+    public boolean putIfAbsent(byte[] key, byte[] value) {
+        return !putVal(key, value, true);
+    }
+
+    private boolean putVal(byte[] key, byte[] value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException();
+        long need = (long)RECORD_HEADER_SIZE + key.length + value.length;
+        if (need > MAXIMUM_SEGMENT_CAPACITY - HEADER_SIZE)
+            throw new IllegalArgumentException("Entry too large");
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        s.writeLock().lock();
+        try {
+            s.ensureOpen();
+            int i = s.find(h, key);
+            if (i >= 0) {
+                if (onlyIfAbsent)
+                    return true;
+                s.kill(i);
+            }
+            s.append(h, key, value, (int)need);
+            return i >= 0;
+        } finally {
+            s.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     *
+     * @param key the key that needs to be removed
+     * @return {@code true} if a mapping was removed
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean remove(byte[] key) {
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        s.writeLock().lock();
+        try {
+            s.ensureOpen();
+            int i = s.find(h, key);
+            if (i < 0)
+                return false;
+            s.kill(i);
+            return true;
+        } finally {
+            s.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  The result
+     * is an estimate if the map is concurrently modified.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.count;
+        return n;
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory currently held by
+     * the segments of this map, including unreclaimed garbage.
+     *
+     * @return the off-heap footprint of this map, in bytes
+     */
+    public long capacity() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.capacity;
+        return n;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, one
+     * segment at a time.  Each segment is read-locked while its mappings
+     * are processed, so the action must not update this map.
+     *
+     * @param action the action, receiving copies of each key and value
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void forEach(BiConsumer<? super byte[], ? super byte[]> action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (Segment s : segments) {
+            s.readLock().lock();
+            try {
+                s.ensureOpen();
+                int[] offs = s.offsets;
+                for (int i = 0; i < offs.length; ++i) {
+                    int off;
+                    if ((off = offs[i]) != 0)
+                        action.accept(s.key(off), s.value(off));
+                }
+            } finally {
+                s.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Compacts every segment, reclaiming the space of replaced and
+     * removed entries.  Segments are compacted one at a time, so that
+     * other segments remain available.
+     *
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void compact() {
+        for (Segment s : segments) {
+            s.writeLock().lock();
+            try {
+                s.ensureOpen();
+                s.compact();
+            } finally {
+                s.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The memory of the
+     * segments is retained for reuse.
+     *
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            s.writeLock().lock();
+            try {
+                s.ensureOpen();
+                s.reset();
+            } finally {
+                s.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Forces any changes to the segment files of a map created by
+     * {@link #open} to be written to the storage device.  Has no effect
+     * on a map held in direct memory.
+     *
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void force() {
+        for (Segment s : segments) {
+            s.readLock().lock();
+            try {
+                s.ensureOpen();
+                if (s.buf instanceof MappedByteBuffer)
+                    ((MappedByteBuffer)s.buf).force();
+            } finally {
+                s.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes this map, releasing the memory of all segments.  File-backed
+     * segments are forced to storage before being unmapped.  Closing an
+     * already closed map has no effect.
+     *
+     * @throws IOException if a segment file cannot be closed
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        IOException ex = null;
+        for (Segment s : segments) {
+            s.writeLock().lock();
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (ex == null)
+                    ex = e;
+                else
+                    ex.addSuppressed(e);
+            } finally {
+                s.writeLock().unlock();
+            }
+        }
+        if (ex != null)
+            throw ex;
+    }
+
+    /* ---------------- Segments -------------- */
+
+    /**
+     * Releases the memory of a direct or mapped buffer now, rather than
+     * when it becomes unreachable.  For a direct buffer this also
+     * returns its reservation against the direct memory limit.
+     */
+    static void free(ByteBuffer buf) {
+        if (buf instanceof DirectBuffer) {
+            Cleaner c = ((DirectBuffer)buf).cleaner();
+            if (c != null)
+                c.clean();
+        }
+    }
+
+    /**
+     * A segment: a lock, a buffer holding a log of records, and the
+     * on-heap index of its live records.  All methods other than the
+     * constructor must be called with the lock held; those that modify
+     * the segment require the write lock.
+     */
+    @SuppressWarnings("serial")
+    static final class Segment extends ReentrantReadWriteLock {
+        /** The file backing this segment, or null if in direct memory. */
+        final FileChannel channel;
+        /** The number of segments of the map, recorded in the header. */
+        final int segmentCount;
+        /** The segment buffer; null once closed. */
+        ByteBuffer buf;
+        /** The capacity of buf, in bytes. */
+        volatile int capacity;
+        /** The offset at which the next record is appended. */
+        int top;
+        /** The number of live records. */
+        volatile int count;
+        /** The number of bytes held by dead records. */
+        long garbage;
+        /** The index: hash and offset of live records, by slot. */
+        int[] hashes, offsets;
+
+        Segment(int initialCapacity, int segmentCount, FileChannel channel)
+            throws IOException {
+            this.channel = channel;
+            this.segmentCount = segmentCount;
+            int cap = Math.max(initialCapacity, HEADER_SIZE);
+            if (channel == null) {
+                buf = ByteBuffer.allocateDirect(cap);
+                capacity = cap;
+                reset();
+            } else {
+                long size = channel.size();
+                if (size == 0L) {
+                    buf = channel.map(FileChannel.MapMode.READ_WRITE, 0L, cap);
+                    capacity = cap;
+                    reset();
+                } else {
+                    if (size < HEADER_SIZE || size > MAXIMUM_SEGMENT_CAPACITY)
+                        throw new IOException("Not a segment file");
+                    buf = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+                    capacity = (int)size;
+                    int t = buf.getInt(TOP_OFFSET);
+                    if (buf.getInt(0) != MAGIC || t < HEADER_SIZE ||
+                        t > capacity) {
+                        free(buf);
+                        buf = null;
+                        throw new IOException("Not a segment file");
+                    }
+                    int stored = buf.getInt(SEGMENTS_OFFSET);
+                    if (stored != segmentCount) {
+                        free(buf);
+                        buf = null;
+                        throw new IOException("Segment file of a map with " +
+                                              stored + " segments, expected " +
+                                              segmentCount);
+                    }
+                    top = t;
+                    rebuildIndex();
+                }
+            }
+        }
+
+        void ensureOpen() {
+            if (buf == null)
+                throw new IllegalStateException("Map is closed");
+        }
+
+        /** Empties the segment. */
+        void reset() {
+            buf.putInt(0, MAGIC);
+            buf.putInt(SEGMENTS_OFFSET, segmentCount);
+            setTop(HEADER_SIZE);
+            count = 0;
+            garbage = 0L;
+            hashes = new int[16];
+            offsets = new int[16];
+        }
+
+        private void setTop(int t) {
+            top = t;
+            buf.putInt(TOP_OFFSET, t);
+        }
+
+        /** Returns the index slot of the live record for key, or -1. */
+        int find(int h, byte[] key) {
+            int[] hs = hashes, offs = offsets;
+            int mask = offs.length - 1;
+            for (int i = h & mask, off; (off = offs[i]) != 0; i = (i + 1) & mask) {
+                if (hs[i] == h && keyEquals(off, key))
+                    return i;
+            }
+            return -1;
+        }
+
+        private boolean keyEquals(int off, byte[] key) {
+            ByteBuffer b = buf;
+            int n = key.length;
+            if (b.getInt(off) != n)
+                return false;
+            int p = off + RECORD_HEADER_SIZE;
+            int i = 0;
+            for (; i + 8 <= n; i += 8) {
+                long x = b.getLong(p + i);
+                for (int j = 0; j < 8; ++j) {
+                    if ((byte)(x >>> (56 - (j << 3))) != key[i + j])
+                        return false;
+                }
+            }
+            for (; i < n; ++i) {
+                if (b.get(p + i) != key[i])
+                    return false;
+            }
+            return true;
+        }
+
+        byte[] key(int off) {
+            return copyOut(off + RECORD_HEADER_SIZE, buf.getInt(off));
+        }
+
+        byte[] value(int off) {
+            int kl = buf.getInt(off);
+            return copyOut(off + RECORD_HEADER_SIZE + kl, buf.getInt(off + 4));
+        }
+
+        private byte[] copyOut(int pos, int len) {
+            byte[] a = new byte[len];
+            ByteBuffer d = buf.duplicate();
+            d.position(pos);
+            d.get(a);
+            return a;
+        }
+
+        /** Marks the record in index slot i dead and unlinks it. */
+        void kill(int i) {
+            int off = offsets[i];
+            int kl = buf.getInt(off);
+            buf.putInt(off, kl | Integer.MIN_VALUE);
+            garbage += (long)RECORD_HEADER_SIZE + kl + buf.getInt(off + 4);
+            removeSlot(i);
+            count--;
+        }
+
+        /** Appends a live record and indexes it. */
+        void append(int h, byte[] key, byte[] value, int need) {
+            if ((long)top + need > capacity)
+                makeRoom(need);
+            int off = top;
+            buf.putInt(off, key.length);
+            buf.putInt(off + 4, value.length);
+            ByteBuffer d = buf.duplicate();
+            d.position(off + RECORD_HEADER_SIZE);
+            d.put(key);
+            d.put(value);
+            setTop(off + need);
+            insert(h, off);
+            count++;
+        }
+
+        /**
+         * Ensures that need bytes may be appended, compacting if at
+         * least half of the segment would be reclaimed or if that
+         * suffices, and otherwise growing.
+         */
+        private void makeRoom(int need) {
+            if (garbage >= need || garbage >= (capacity >>> 1)) {
+                compact();
+                if ((long)top + need <= capacity)
+                    return;
+            }
+            long live = (long)top - garbage;
+            long cap = capacity;
+            while (cap < live + need)
+                cap <<= 1;
+            if (cap > MAXIMUM_SEGMENT_CAPACITY)
+                cap = MAXIMUM_SEGMENT_CAPACITY;
+            if (cap < live + need)
+                throw new OutOfMemoryError("Segment capacity exceeded");
+            grow((int)cap);
+            if ((long)top + need > capacity)
+                compact();
+        }
+
+        /**
+         * Replaces the buffer with one of the given capacity holding the
+         * same records.  A mapped segment is remapped over its extended
+         * file.
+         */
+        private void grow(int newCapacity) {
+            ByteBuffer old = buf, nb;
+            if (channel == null) {
+                nb = ByteBuffer.allocateDirect(newCapacity);
+                ByteBuffer src = old.duplicate();
+                src.position(0).limit(top);
+                nb.put(src);
+                nb.clear();
+            } else {
+                try {
+                    if (old instanceof MappedByteBuffer)
+                        ((MappedByteBuffer)old).force();
+                    nb = channel.map(FileChannel.MapMode.READ_WRITE, 0L,
+                                     newCapacity);
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            }
+            buf = nb;
+            capacity = newCapacity;
+            free(old);
+        }
+
+        /**
+         * Slides all live records towards the start of the segment and
+         * rebuilds the index.  Since records only move to lower offsets,
+         * copying through a chunk buffer in increasing order never
+         * overwrites bytes not yet copied.
+         */
+        void compact() {
+            if (garbage == 0L)
+                return;
+            ByteBuffer b = buf;
+            byte[] chunk = new byte[COPY_CHUNK];
+            ByteBuffer src = b.duplicate(), dst = b.duplicate();
+            int r = HEADER_SIZE, w = HEADER_SIZE, end = top;
+            while (r < end) {
+                int kl = b.getInt(r);
+                int size = RECORD_HEADER_SIZE + (kl & Integer.MAX_VALUE) +
+                    b.getInt(r + 4);
+                if (kl >= 0) {
+                    if (r != w) {
+                        for (int done = 0; done < size; ) {
+                            int n = Math.min(COPY_CHUNK, size - done);
+                            src.position(r + done);
+                            src.get(chunk, 0, n);
+                            dst.position(w + done);
+                            dst.put(chunk, 0, n);
+                            done += n;
+                        }
+                    }
+                    w += size;
+                }
+                r += size;
+            }
+            setTop(w);
+            garbage = 0L;
+            rebuildIndex();
+        }
+
+        /** Rebuilds the index by scanning the records. */
+        private void rebuildIndex() {
+            ByteBuffer b = buf;
+            int n = 0;
+            for (int r = HEADER_SIZE; r < top; ) {
+                int kl = b.getInt(r);
+                if (kl >= 0)
+                    ++n;
+                r += RECORD_HEADER_SIZE + (kl & Integer.MAX_VALUE) +
+                    b.getInt(r + 4);
+            }
+            int cap = 16;
+            while (cap < n * 2 + 2)
+                cap <<= 1;
+            hashes = new int[cap];
+            offsets = new int[cap];
+            garbage = 0L;
+            for (int r = HEADER_SIZE; r < top; ) {
+                int kl = b.getInt(r);
+                int size = RECORD_HEADER_SIZE + (kl & Integer.MAX_VALUE) +
+                    b.getInt(r + 4);
+                if (kl >= 0) {
+                    byte[] k = copyOut(r + RECORD_HEADER_SIZE, kl);
+                    int h = hash(k);
+                    int i = find(h, k);
+                    if (i >= 0) { // unclean shutdown while replacing
+                        b.putInt(offsets[i], b.getInt(offsets[i]) |
+                                 Integer.MIN_VALUE);
+                        garbage += RECORD_HEADER_SIZE + k.length +
+                            b.getInt(offsets[i] + 4);
+                        offsets[i] = r;
+                        --n;
+                    }
+                    else
+                        insertSlot(h, r);
+                }
+                else
+                    garbage += size;
+                r += size;
+            }
+            count = n;
+        }
+
+        private void insert(int h, int off) {
+            if ((count + 1) * 2 > offsets.length)
+                resizeIndex();
+            insertSlot(h, off);
+        }
+
+        private void insertSlot(int h, int off) {
+            int[] hs = hashes, offs = offsets;
+            int mask = offs.length - 1;
+            int i = h & mask;
+            while (offs[i] != 0)
+                i = (i + 1) & mask;
+            hs[i] = h;
+            offs[i] = off;
+        }
+
+        private void resizeIndex() {
+            int[] oldHashes = hashes, oldOffsets = offsets;
+            hashes = new int[oldOffsets.length << 1];
+            offsets = new int[oldOffsets.length << 1];
+            for (int j = 0; j < oldOffsets.length; ++j) {
+                if (oldOffsets[j] != 0)
+                    insertSlot(oldHashes[j], oldOffsets[j]);
+            }
+        }
+
+        /**
+         * Removes index slot pos by backward-shift deletion, as in
+         * java.util.LongObjectMap.
+         */
+        private void removeSlot(int pos) {
+            int[] hs = hashes, offs = offsets;
+            int mask = offs.length - 1;
+            for (int last;;) {
+                pos = ((last = pos) + 1) & mask;
+                for (;;) {
+                    if (offs[pos] == 0) {
+                        offs[last] = 0;
+                        hs[last] = 0;
+                        return;
+                    }
+                    int home = hs[pos] & mask;
+                    if (last <= pos ? (last >= home || home > pos)
+                                    : (last >= home && home > pos))
+                        break;
+                    pos = (pos + 1) & mask;
+                }
+                hs[last] = hs[pos];
+                offs[last] = offs[pos];
+            }
+        }
+
+        /** Frees the buffer, if not already freed. */
+        void release() {
+            ByteBuffer b = buf;
+            if (b != null) {
+                buf = null;
+                free(b);
+            }
+        }
+
+        void close() throws IOException {
+            ByteBuffer b = buf;
+            try {
+                if (b instanceof MappedByteBuffer)
+                    ((MappedByteBuffer)b).force();
+            } finally {
+                release();
+                hashes = offsets = null;
+                count = 0;
+                if (channel != null)
+                    channel.close();
+            }
+        }
+    }
+}
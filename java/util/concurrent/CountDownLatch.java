@@ -35,6 +35,7 @@
 
 package java.util.concurrent;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.SynchronizerMXBean;
 
 /**
  * 倒数计数器，构造时设定计数值，当计数值归零后，所有阻塞线程恢复执行；其内部实现了AQS框架
@@ -314,6 +315,30 @@ public class CountDownLatch {
         return sync.getCount();
     }
 
+    /**
+     * Enables or disables the collection of contention statistics for
+     * this latch.
+     *
+     * @param enabled {@code true} to collect statistics
+     * @see AbstractQueuedSynchronizer#setStatisticsEnabled
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        sync.setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Returns the contention statistics of this latch, or {@code null}
+     * if they are not enabled.
+     *
+     * @return the statistics, or {@code null} if not enabled
+     * @see AbstractQueuedSynchronizer#getStatistics
+     * @since 1.8
+     */
+    public SynchronizerMXBean getStatistics() {
+        return sync.getStatistics();
+    }
+
     /**
      * Returns a string identifying this latch, as well as its state.
      * The state, in brackets, includes the String {@code "Count ="}
@@ -92,6 +92,49 @@ public class Executors {
                                       new LinkedBlockingQueue<Runnable>());
     }
 
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a shared unbounded {@link ShardedBlockingQueue},
+     * which spreads queued tasks over one shard per available
+     * processor. This reduces contention between the threads when
+     * there are many of them and tasks are short, at the cost of
+     * tasks not necessarily starting in the order they were
+     * submitted. In all other respects the pool behaves as one created
+     * by {@link #newFixedThreadPool(int)}.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newShardedThreadPool(int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new ShardedBlockingQueue<Runnable>());
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a shared unbounded {@link ShardedBlockingQueue},
+     * using the provided ThreadFactory to create new threads when
+     * needed. In all other respects the pool behaves as one created
+     * by {@link #newShardedThreadPool(int)}.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param threadFactory the factory to use when creating new threads
+     * @return the newly created thread pool
+     * @throws NullPointerException if threadFactory is null
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newShardedThreadPool(int nThreads,
+                                                       ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new ShardedBlockingQueue<Runnable>(),
+                                      threadFactory);
+    }
+
     /**
      * Creates a thread pool that maintains enough threads to support
      * the given parallelism level, and may use multiple queues to
@@ -302,6 +345,27 @@ public class Executors {
         return new ScheduledThreadPoolExecutor(corePoolSize, threadFactory);
     }
 
+    /**
+     * Creates a thread pool that can schedule commands to run after a
+     * given delay, or to execute periodically, holding scheduled
+     * commands in a timing wheel of the given resolution so that
+     * scheduling and cancellation take constant time. Delays are
+     * rounded up to a whole number of ticks.
+     * @param corePoolSize the number of threads to keep in the pool,
+     * even if they are idle
+     * @param tickDuration the resolution of the timing wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @return a newly created scheduled thread pool
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     * {@code tickDuration} is not positive
+     * @throws NullPointerException if unit is null
+     * @since 1.8
+     */
+    public static ScheduledExecutorService newScheduledThreadPool(
+            int corePoolSize, long tickDuration, TimeUnit unit) {
+        return new ScheduledThreadPoolExecutor(corePoolSize, tickDuration, unit);
+    }
+
     /**
      * Returns an object that delegates all defined {@link
      * ExecutorService} methods to the given executor, but not any
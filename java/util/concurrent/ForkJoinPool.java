@@ -134,7 +134,7 @@ import java.security.Permissions;
  * </table>
  *
  * <p>The common pool is by default constructed with default
- * parameters, but these may be controlled by setting three
+ * parameters, but these may be controlled by setting four
  * {@linkplain System#getProperty system properties}:
  * <ul>
  * <li>{@code java.util.concurrent.ForkJoinPool.common.parallelism}
@@ -143,6 +143,10 @@ import java.security.Permissions;
  * - the class name of a {@link ForkJoinWorkerThreadFactory}
  * <li>{@code java.util.concurrent.ForkJoinPool.common.exceptionHandler}
  * - the class name of a {@link UncaughtExceptionHandler}
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.stealHalf}
+ * - {@code true} to use the steal-half policy described in
+ * {@link #ForkJoinPool(int, ForkJoinWorkerThreadFactory,
+ * UncaughtExceptionHandler, boolean, boolean)}
  * </ul>
  * If a {@link SecurityManager} is present and no factory is
  * specified, then the default pool uses a factory supplying
@@ -763,8 +767,12 @@ public class ForkJoinPool extends AbstractExecutorService {
     static final int MODE_MASK    = 0xffff << 16;  // top half of int
     static final int LIFO_QUEUE   = 0;
     static final int FIFO_QUEUE   = 1 << 16;
+    static final int STEAL_HALF   = 1 << 17;       // batch steals
     static final int SHARED_QUEUE = 1 << 31;       // must be negative
 
+    // Maximum number of tasks moved by one batch steal
+    static final int MAX_STEAL_BATCH = 1 << 6;
+
     /**
      * Queues supporting work-stealing as well as external task
      * submission. See above for descriptions and algorithms.
@@ -802,6 +810,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         int stackPred;             // pool stack (ctl) predecessor
         int nsteals;               // number of steals
         int hint;                  // randomization and stealer index hint
+        long nexecuted;            // number of tasks run by owner
+        long idleNanos;            // time owner spent parked in awaitWork
         int config;                // pool index and mode
         volatile int qlock;        // 1: locked, < 0: terminate; else 0
         volatile int base;         // index of next slot for poll
@@ -1017,8 +1027,15 @@ public class ForkJoinPool extends AbstractExecutorService {
          * Polls and runs tasks until empty.
          */
         final void pollAndExecAll() {
-            for (ForkJoinTask<?> t; (t = poll()) != null;)
+            boolean track = (config & STEAL_HALF) != 0;
+            for (ForkJoinTask<?> t; (t = poll()) != null;) {
+                if (track)
+                    U.putOrderedObject(this, QCURRENTSTEAL, t);
                 t.doExec();
+                ++nexecuted;
+            }
+            if (track)
+                U.putOrderedObject(this, QCURRENTSTEAL, null);
         }
 
         /**
@@ -1032,15 +1049,23 @@ public class ForkJoinPool extends AbstractExecutorService {
             if (b - (s = top - 1) <= 0 && a != null &&
                 (m = a.length - 1) >= 0) {
                 if ((config & FIFO_QUEUE) == 0) {
+                    // in steal-half mode, expose each task as currentSteal
+                    // so that joiners of batch-stolen tasks can find it
+                    boolean track = (config & STEAL_HALF) != 0;
                     for (ForkJoinTask<?> t;;) {
                         if ((t = (ForkJoinTask<?>)U.getAndSetObject
                              (a, ((m & s) << ASHIFT) + ABASE, null)) == null)
                             break;
                         U.putOrderedInt(this, QTOP, s);
+                        if (track)
+                            U.putOrderedObject(this, QCURRENTSTEAL, t);
                         t.doExec();
+                        ++nexecuted;
                         if (base - (s = top - 1) > 0)
                             break;
                     }
+                    if (track)
+                        U.putOrderedObject(this, QCURRENTSTEAL, null);
                 }
                 else
                     pollAndExecAll();
@@ -1055,6 +1080,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 scanState &= ~SCANNING; // mark as busy
                 (currentSteal = task).doExec();
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
+                ++nexecuted;
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
                 if (++nsteals < 0)      // collect on overflow
@@ -1065,6 +1091,41 @@ public class ForkJoinPool extends AbstractExecutorService {
             }
         }
 
+        /**
+         * After a steal from q, which held n tasks, moves up to half of
+         * them (at most MAX_STEAL_BATCH, including the one stolen) into
+         * this queue, so that deep recursive computations split by q's
+         * owner are not stolen one task per scan.  Call only by owner.
+         * The moved tasks are found by joiners either in this queue (see
+         * helpHolder) or, once run, as currentSteal (see execLocalTasks).
+         */
+        final void stealBatch(WorkQueue q, int n) {
+            for (int k = Math.min(n >>> 1, MAX_STEAL_BATCH) - 1; k > 0; --k) {
+                ForkJoinTask<?> t; int b;
+                if ((b = q.base) - q.top >= 0 || (t = q.pollAt(b)) == null)
+                    break;
+                push(t);
+                ++nsteals;
+            }
+        }
+
+        /**
+         * Returns true if the given task is in this queue. The result is
+         * only a hint, as the queue may change concurrently.
+         */
+        final boolean holds(ForkJoinTask<?> task) {
+            ForkJoinTask<?>[] a; int m;
+            if ((a = array) != null && (m = a.length - 1) >= 0 &&
+                task != null) {
+                for (int b = base, s = top; s - b > 0; ++b) {
+                    if (U.getObjectVolatile(a, ((m & b) << ASHIFT) + ABASE)
+                        == task)
+                        return true;
+                }
+            }
+            return false;
+        }
+
         /**
          * Adds steal count to pool stealCounter if it exists, and resets.
          */
@@ -1396,6 +1457,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    volatile long spareCount;            // spares created by tryCompensate
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -1729,8 +1791,11 @@ public class ForkJoinPool extends AbstractExecutorService {
                             if (ss >= 0) {
                                 if (U.compareAndSwapObject(a, i, t, null)) {
                                     q.base = b + 1;
-                                    if (n < -1)       // signal others
-                                        signalWork(ws, q);
+                                    if (n < -1) {
+                                        if ((config & STEAL_HALF) != 0)
+                                            w.stealBatch(q, -n);
+                                        signalWork(ws, q); // signal others
+                                    }
                                     return t;
                                 }
                             }
@@ -1820,8 +1885,10 @@ public class ForkJoinPool extends AbstractExecutorService {
                 Thread wt = Thread.currentThread();
                 U.putObject(wt, PARKBLOCKER, this);   // emulate LockSupport
                 w.parker = wt;
+                long parkStart = System.nanoTime();
                 if (w.scanState < 0 && ctl == c)      // recheck before park
                     U.park(false, parkTime);
+                w.idleNanos += System.nanoTime() - parkStart;
                 U.putOrderedObject(w, QPARKER, null);
                 U.putObject(wt, PARKBLOCKER, null);
                 if (w.scanState >= 0)
@@ -1920,8 +1987,11 @@ public class ForkJoinPool extends AbstractExecutorService {
                 WorkQueue j = w, v;                    // v is subtask stealer
                 descent: for (subtask = task; subtask.status >= 0; ) {
                     for (int h = j.hint | 1, k = 0, i; ; k += 2) {
-                        if (k > m)                     // can't find stealer
+                        if (k > m) {                   // can't find stealer
+                            if ((config & STEAL_HALF) != 0)
+                                helpHolder(w, task, subtask);
                             break descent;
+                        }
                         if ((v = ws[i = (h + k) & m]) != null) {
                             if (v.currentSteal == subtask) {
                                 j.hint = i;
@@ -1970,6 +2040,50 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /**
+     * In steal-half mode, tries to locate a worker queue still holding
+     * the given subtask of a join, which stealBatch may have moved there
+     * rather than to a thread running it as currentSteal, and steals and
+     * executes tasks from the base of that queue until the subtask is
+     * done or no longer in it. Used by helpStealer.
+     *
+     * @param w caller
+     * @param task the task to join
+     * @param subtask the task, or a task it depends on, to look for
+     */
+    private void helpHolder(WorkQueue w, ForkJoinTask<?> task,
+                           ForkJoinTask<?> subtask) {
+        WorkQueue[] ws = workQueues; WorkQueue v = null; int m;
+        if (ws != null && (m = ws.length - 1) >= 0) {
+            for (int i = 1; i <= m; i += 2) {
+                WorkQueue q;
+                if ((q = ws[i]) != null && q != w && q.holds(subtask)) {
+                    v = q;
+                    break;
+                }
+            }
+        }
+        if (v != null) {
+            ForkJoinTask<?> t; int b;
+            while (task.status >= 0 && subtask.status >= 0 &&
+                   (b = v.base) - v.top < 0 && v.holds(subtask)) {
+                if ((t = v.pollAt(b)) != null) {
+                    ForkJoinTask<?> ps = w.currentSteal;
+                    int top = w.top;
+                    do {
+                        U.putOrderedObject(w, QCURRENTSTEAL, t);
+                        t.doExec();        // clear local tasks too
+                    } while (task.status >= 0 &&
+                             w.top != top &&
+                             (t = w.pop()) != null);
+                    U.putOrderedObject(w, QCURRENTSTEAL, ps);
+                    if (w.base != w.top)
+                        break;             // can't further help
+                }
+            }
+        }
+    }
+
     /**
      * Tries to decrement active count (sometimes implicitly) and
      * possibly release or create a compensating worker in preparation
@@ -2018,6 +2132,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                     add = U.compareAndSwapLong(this, CTL, c, nc);
                 unlockRunState(rs, rs & ~RSLOCK);
                 canBlock = add && createWorker(); // throws on exception
+                if (canBlock)
+                    U.getAndAddLong(this, SPARECOUNT, 1L);
             }
         }
         return canBlock;
@@ -2541,6 +2657,54 @@ public class ForkJoinPool extends AbstractExecutorService {
         checkPermission();
     }
 
+    /**
+     * Creates a {@code ForkJoinPool} with the given parameters and
+     * steal policy.  By default, a worker that steals from another
+     * worker's queue takes a single task.  In steal-half mode it instead
+     * takes up to half of the tasks in that queue (to a small bound),
+     * running the first and placing the rest in its own queue.  This
+     * may reduce contention on the oldest tasks of a few busy queues in
+     * deeply recursive computations whose subtasks are cheap, at the
+     * price of less even load balance.  A worker joining a task that was
+     * moved this way helps by executing tasks from the queue holding it,
+     * as it does for a task stolen singly, but it may need to scan the
+     * queues of other workers to find it.
+     *
+     * @param parallelism the parallelism level. For default value,
+     * use {@link java.lang.Runtime#availableProcessors}.
+     * @param factory the factory for creating new threads. For default value,
+     * use {@link #defaultForkJoinWorkerThreadFactory}.
+     * @param handler the handler for internal worker threads that
+     * terminate due to unrecoverable errors encountered while executing
+     * tasks. For default value, use {@code null}.
+     * @param asyncMode if true,
+     * establishes local first-in-first-out scheduling mode for forked
+     * tasks that are never joined. For default value, use {@code false}.
+     * @param stealHalf if true, establishes steal-half mode.
+     * For default value, use {@code false}.
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero, or greater than implementation limit
+     * @throws NullPointerException if the factory is null
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     * @since 1.8
+     */
+    public ForkJoinPool(int parallelism,
+                        ForkJoinWorkerThreadFactory factory,
+                        UncaughtExceptionHandler handler,
+                        boolean asyncMode,
+                        boolean stealHalf) {
+        this(checkParallelism(parallelism),
+             checkFactory(factory),
+             handler,
+             (asyncMode ? FIFO_QUEUE : LIFO_QUEUE) |
+             (stealHalf ? STEAL_HALF : 0),
+             "ForkJoinPool-" + nextPoolId() + "-worker-");
+        checkPermission();
+    }
+
     private static int checkParallelism(int parallelism) {
         if (parallelism <= 0 || parallelism > MAX_CAP)
             throw new IllegalArgumentException();
@@ -2793,6 +2957,17 @@ public class ForkJoinPool extends AbstractExecutorService {
         return (config & FIFO_QUEUE) != 0;
     }
 
+    /**
+     * Returns {@code true} if workers of this pool steal up to half of
+     * the tasks of a queue at a time.
+     *
+     * @return {@code true} if this pool uses steal-half mode
+     * @since 1.8
+     */
+    public boolean getStealHalfMode() {
+        return (config & STEAL_HALF) != 0;
+    }
+
     /**
      * Returns an estimate of the number of worker threads that are
      * not blocked waiting to join tasks or for other managed
@@ -2973,6 +3148,106 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Returns a snapshot of statistics for this pool and each of its
+     * current workers.  Values are gathered without synchronization
+     * while workers run, so they are estimates and need not be mutually
+     * consistent.  Counts for workers that have terminated are not
+     * included, except in the pool-wide steal count.
+     *
+     * @return the statistics
+     * @since 1.8
+     */
+    public ForkJoinPoolStatistics getStatistics() {
+        AtomicLong sc = stealCounter;
+        long st = (sc == null) ? 0L : sc.get();
+        long qt = 0L; int qs = 0, rc = 0, nw = 0;
+        WorkQueue[] ws; WorkQueue w;
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if (ws[i] != null)
+                    ++nw;
+            }
+        }
+        String[] names = new String[nw];
+        long[] steals = new long[nw], executed = new long[nw],
+            idle = new long[nw];
+        long[] hist = new long[33];
+        int maxBucket = 0;
+        if (ws != null) {
+            for (int i = 0, k = 0; i < ws.length; ++i) {
+                if ((w = ws[i]) == null)
+                    continue;
+                int size = w.queueSize();
+                if ((i & 1) == 0) {
+                    qs += size;
+                    continue;
+                }
+                qt += size;
+                int bucket = 32 - Integer.numberOfLeadingZeros(size);
+                ++hist[bucket];
+                if (bucket > maxBucket)
+                    maxBucket = bucket;
+                if (w.isApparentlyUnblocked())
+                    ++rc;
+                if (k < nw) {           // ignore workers added since count
+                    ForkJoinWorkerThread owner = w.owner;
+                    names[k] = (owner == null) ? null : owner.getName();
+                    steals[k] = w.nsteals;
+                    executed[k] = w.nexecuted;
+                    idle[k] = w.idleNanos;
+                    ++k;
+                }
+                st += w.nsteals;
+            }
+        }
+        long c = ctl;
+        int pc = config & SMASK;
+        int ac = pc + (int)(c >> AC_SHIFT);
+        return new ForkJoinPoolStatistics
+            (pc, pc + (short)(c >>> TC_SHIFT), (ac < 0) ? 0 : ac, rc,
+             st, qt, qs, spareCount, names, steals, executed, idle,
+             Arrays.copyOf(hist, maxBucket + 1));
+    }
+
+    /**
+     * Returns a view of this pool's statistics, suitable for
+     * registration with the platform {@code MBeanServer}.  Each
+     * attribute read takes a new snapshot.
+     *
+     * @return an MXBean for this pool
+     * @see #getStatistics
+     * @since 1.8
+     */
+    public ForkJoinPoolMXBean getMXBean() {
+        return new PoolMXBean(this);
+    }
+
+    /**
+     * The ForkJoinPoolMXBean returned by getMXBean.
+     */
+    static final class PoolMXBean implements ForkJoinPoolMXBean {
+        final ForkJoinPool pool;
+        PoolMXBean(ForkJoinPool pool) { this.pool = pool; }
+        public ForkJoinPoolStatistics getStatistics() {
+            return pool.getStatistics();
+        }
+        public int getParallelism() { return pool.getParallelism(); }
+        public int getPoolSize() { return pool.getPoolSize(); }
+        public int getActiveThreadCount() {
+            return pool.getActiveThreadCount();
+        }
+        public long getStealCount() { return pool.getStealCount(); }
+        public long getQueuedTaskCount() {
+            return pool.getQueuedTaskCount();
+        }
+        public int getQueuedSubmissionCount() {
+            return pool.getQueuedSubmissionCount();
+        }
+        public long getSpareThreadCount() { return pool.spareCount; }
+        public boolean isQuiescent() { return pool.isQuiescent(); }
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state, parallelism level, and
@@ -3343,6 +3618,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     private static final long CTL;
     private static final long RUNSTATE;
     private static final long STEALCOUNTER;
+    private static final long SPARECOUNT;
     private static final long PARKBLOCKER;
     private static final long QTOP;
     private static final long QLOCK;
@@ -3362,6 +3638,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                 (k.getDeclaredField("runState"));
             STEALCOUNTER = U.objectFieldOffset
                 (k.getDeclaredField("stealCounter"));
+            SPARECOUNT = U.objectFieldOffset
+                (k.getDeclaredField("spareCount"));
             Class<?> tk = Thread.class;
             PARKBLOCKER = U.objectFieldOffset
                 (tk.getDeclaredField("parkBlocker"));
@@ -3405,7 +3683,7 @@ public class ForkJoinPool extends AbstractExecutorService {
      * specified via system properties.
      */
     private static ForkJoinPool makeCommonPool() {
-        int parallelism = -1;
+        int parallelism = -1, mode = LIFO_QUEUE;
         ForkJoinWorkerThreadFactory factory = null;
         UncaughtExceptionHandler handler = null;
         try {  // ignore exceptions in accessing/parsing properties
@@ -3415,6 +3693,10 @@ public class ForkJoinPool extends AbstractExecutorService {
                 ("java.util.concurrent.ForkJoinPool.common.threadFactory");
             String hp = System.getProperty
                 ("java.util.concurrent.ForkJoinPool.common.exceptionHandler");
+            String sp = System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.stealHalf");
+            if (sp != null && Boolean.parseBoolean(sp))
+                mode = STEAL_HALF;
             if (pp != null)
                 parallelism = Integer.parseInt(pp);
             if (fp != null)
@@ -3436,7 +3718,7 @@ public class ForkJoinPool extends AbstractExecutorService {
             parallelism = 1;
         if (parallelism > MAX_CAP)
             parallelism = MAX_CAP;
-        return new ForkJoinPool(parallelism, factory, handler, LIFO_QUEUE,
+        return new ForkJoinPool(parallelism, factory, handler, mode,
                                 "ForkJoinPool.commonPool-worker-");
     }
 
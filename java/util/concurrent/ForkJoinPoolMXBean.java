@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * The management interface for a {@link ForkJoinPool}, obtained with
+ * {@link ForkJoinPool#getMXBean} and suitable for registration with the
+ * platform {@code MBeanServer}.  Attributes are estimates with the same
+ * meanings as the corresponding {@code ForkJoinPool} methods.
+ *
+ * @since 1.8
+ */
+public interface ForkJoinPoolMXBean {
+
+    /**
+     * Returns a snapshot of statistics for the pool and its workers.
+     *
+     * @return the statistics
+     * @see ForkJoinPool#getStatistics
+     */
+    ForkJoinPoolStatistics getStatistics();
+
+    /**
+     * Returns the targeted parallelism level of the pool.
+     *
+     * @return the targeted parallelism level
+     */
+    int getParallelism();
+
+    /**
+     * Returns the number of worker threads that have started but not
+     * yet terminated.
+     *
+     * @return the number of worker threads
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of threads that are currently
+     * stealing or executing tasks.
+     *
+     * @return the number of active threads
+     */
+    int getActiveThreadCount();
+
+    /**
+     * Returns an estimate of the total number of tasks stolen from one
+     * thread's work queue by another.
+     *
+     * @return the number of steals
+     */
+    long getStealCount();
+
+    /**
+     * Returns an estimate of the total number of tasks currently held in
+     * queues by worker threads.
+     *
+     * @return the number of queued tasks
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns an estimate of the number of tasks submitted to the pool
+     * that have not yet begun executing.
+     *
+     * @return the number of queued submissions
+     */
+    int getQueuedSubmissionCount();
+
+    /**
+     * Returns the number of spare threads created to compensate for
+     * workers blocked in joins or in
+     * {@link ForkJoinPool#managedBlock managed blocking}.
+     *
+     * @return the number of spare threads created
+     */
+    long getSpareThreadCount();
+
+    /**
+     * Returns {@code true} if all worker threads are currently idle.
+     *
+     * @return {@code true} if all threads are currently idle
+     */
+    boolean isQuiescent();
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the state of a {@link ForkJoinPool} and of each of its
+ * workers, returned by {@link ForkJoinPool#getStatistics}.  Per-worker
+ * values are reported in arrays indexed alike, one element per worker
+ * that existed when the snapshot was taken; the order of workers is
+ * unspecified but stable while the pool does not add or remove
+ * workers.
+ *
+ * <p>Per-worker counts are kept by each worker in plain fields and read
+ * without synchronization, so they may lag slightly behind the worker.
+ * A worker's steal count is transferred to the pool-wide total, and
+ * reset, if it overflows.
+ *
+ * @since 1.8
+ */
+public final class ForkJoinPoolStatistics implements java.io.Serializable {
+    private static final long serialVersionUID = 4153307396012335744L;
+
+    private final int parallelism;
+    private final int poolSize;
+    private final int activeThreadCount;
+    private final int runningThreadCount;
+    private final long stealCount;
+    private final long queuedTaskCount;
+    private final int queuedSubmissionCount;
+    private final long spareThreadCount;
+    private final String[] workerNames;
+    private final long[] workerStealCounts;
+    private final long[] workerExecutedCounts;
+    private final long[] workerIdleTimes;
+    private final long[] queueLengthHistogram;
+
+    ForkJoinPoolStatistics(int parallelism, int poolSize,
+                           int activeThreadCount, int runningThreadCount,
+                           long stealCount, long queuedTaskCount,
+                           int queuedSubmissionCount, long spareThreadCount,
+                           String[] workerNames, long[] workerStealCounts,
+                           long[] workerExecutedCounts,
+                           long[] workerIdleTimes,
+                           long[] queueLengthHistogram) {
+        this.parallelism = parallelism;
+        this.poolSize = poolSize;
+        this.activeThreadCount = activeThreadCount;
+        this.runningThreadCount = runningThreadCount;
+        this.stealCount = stealCount;
+        this.queuedTaskCount = queuedTaskCount;
+        this.queuedSubmissionCount = queuedSubmissionCount;
+        this.spareThreadCount = spareThreadCount;
+        this.workerNames = workerNames;
+        this.workerStealCounts = workerStealCounts;
+        this.workerExecutedCounts = workerExecutedCounts;
+        this.workerIdleTimes = workerIdleTimes;
+        this.queueLengthHistogram = queueLengthHistogram;
+    }
+
+    /**
+     * Returns the targeted parallelism level of the pool.
+     *
+     * @return the parallelism level
+     */
+    public int getParallelism() { return parallelism; }
+
+    /**
+     * Returns the number of worker threads that had started but not
+     * terminated.
+     *
+     * @return the number of worker threads
+     */
+    public int getPoolSize() { return poolSize; }
+
+    /**
+     * Returns the estimated number of threads stealing or executing
+     * tasks.
+     *
+     * @return the number of active threads
+     */
+    public int getActiveThreadCount() { return activeThreadCount; }
+
+    /**
+     * Returns the estimated number of worker threads not blocked
+     * waiting to join tasks or for other managed synchronization.
+     *
+     * @return the number of running threads
+     */
+    public int getRunningThreadCount() { return runningThreadCount; }
+
+    /**
+     * Returns the estimated total number of steals, including those of
+     * workers that have terminated.
+     *
+     * @return the number of steals
+     */
+    public long getStealCount() { return stealCount; }
+
+    /**
+     * Returns the estimated number of tasks held in worker queues.
+     *
+     * @return the number of queued tasks
+     */
+    public long getQueuedTaskCount() { return queuedTaskCount; }
+
+    /**
+     * Returns the estimated number of submitted tasks not yet begun.
+     *
+     * @return the number of queued submissions
+     */
+    public int getQueuedSubmissionCount() { return queuedSubmissionCount; }
+
+    /**
+     * Returns the number of spare threads the pool has created to
+     * compensate for blocked workers.
+     *
+     * @return the number of spare threads created
+     */
+    public long getSpareThreadCount() { return spareThreadCount; }
+
+    /**
+     * Returns the names of the workers, or null elements for workers
+     * without an owning thread.
+     *
+     * @return the worker names
+     */
+    public String[] getWorkerNames() { return workerNames.clone(); }
+
+    /**
+     * Returns the number of tasks each worker has stolen.
+     *
+     * @return the per-worker steal counts
+     */
+    public long[] getWorkerStealCounts() { return workerStealCounts.clone(); }
+
+    /**
+     * Returns the number of tasks each worker has run, not counting
+     * tasks run while waiting to join another task.
+     *
+     * @return the per-worker executed task counts
+     */
+    public long[] getWorkerExecutedCounts() {
+        return workerExecutedCounts.clone();
+    }
+
+    /**
+     * Returns the time, in nanoseconds, each worker has spent parked
+     * waiting for work.
+     *
+     * @return the per-worker idle times in nanoseconds
+     */
+    public long[] getWorkerIdleTimes() { return workerIdleTimes.clone(); }
+
+    /**
+     * Returns a histogram of worker queue lengths.  Element 0 is the
+     * number of empty queues, and element {@code i > 0} is the number of
+     * queues holding at least 2<sup>i-1</sup> and fewer than
+     * 2<sup>i</sup> tasks.  The array ends at the last non-empty
+     * bucket.
+     *
+     * @return the queue length histogram
+     */
+    public long[] getQueueLengthHistogram() {
+        return queueLengthHistogram.clone();
+    }
+
+    /**
+     * Returns a string summarizing these statistics.
+     *
+     * @return a string summarizing these statistics
+     */
+    public String toString() {
+        return super.toString() +
+            "[parallelism = " + parallelism +
+            ", size = " + poolSize +
+            ", active = " + activeThreadCount +
+            ", running = " + runningThreadCount +
+            ", steals = " + stealCount +
+            ", tasks = " + queuedTaskCount +
+            ", submissions = " + queuedSubmissionCount +
+            ", spares = " + spareThreadCount +
+            ", queueLengths = " + Arrays.toString(queueLengthHistogram) +
+            "]";
+    }
+}
@@ -114,8 +114,30 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
      * be of the kind understood by the GC.  We use the trick of
      * linking a Node that has just been dequeued to itself.  Such a
      * self-link implicitly means to advance to head.next.
+     *
+     * Batch operations (putAll, offerAll) link a pre-built chain of
+     * nodes under a single acquisition of putLock and publish them
+     * with a single count.getAndAdd, so that a batch of k elements
+     * costs one lock handoff and at most one signal rather than k.
+     * The batch form of drainTo waits on its own condition,
+     * batchReady, rather than notEmpty, because a batch waiter that
+     * is not yet satisfied would otherwise absorb a signal intended
+     * for an ordinary taker.  Puts only touch batchReady when the
+     * volatile batchWaiters count is nonzero; the count is written
+     * before the waiter rechecks the atomic count, and read by puts
+     * after they update it, so at least one side sees the other.
+     *
+     * Optionally, takers may spin on count for a bounded number of
+     * iterations before acquiring takeLock and parking.  When
+     * producers and consumers run on different cores and the queue
+     * is usually near empty, this avoids the park/unpark round trip
+     * that otherwise dominates handoff latency.  Spinning is disabled
+     * on uniprocessors, as in SynchronousQueue.
      */
 
+    /** The number of CPUs, for spin control */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
     /**
      * Linked list node class
      */
@@ -163,6 +185,21 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
     /** Wait queue for waiting puts */
     private final Condition notFull = putLock.newCondition();
 
+    /**
+     * The number of times take and timed poll check count before
+     * blocking, or zero if they should block immediately.
+     */
+    private final int maxSpins;
+
+    /**
+     * Wait queue for drainTo calls waiting for a minimum number of
+     * elements. Not serialized; recreated on deserialization.
+     */
+    private transient Condition batchReady;
+
+    /** Number of threads waiting on batchReady */
+    private transient volatile int batchWaiters;
+
     /**
      * Signals a waiting take. Called only from put/offer (which do not
      * otherwise ordinarily lock takeLock.)
@@ -172,11 +209,37 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         takeLock.lock();
         try {
             notEmpty.signal();
+            if (batchWaiters > 0)
+                batchReady.signalAll();
         } finally {
             takeLock.unlock();
         }
     }
 
+    /**
+     * Wakes up drainTo calls waiting for a minimum number of elements.
+     * Called only from puts that did not need to signalNotEmpty.
+     */
+    private void signalBatchReady() {
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            batchReady.signalAll();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    /**
+     * Spins until the queue appears non-empty or maxSpins checks
+     * have been made, without acquiring any lock.
+     */
+    private void spinWhileEmpty() {
+        final AtomicInteger count = this.count;
+        for (int spins = maxSpins; spins > 0 && count.get() == 0; --spins)
+            ;
+    }
+
     /**
      * Signals a waiting put. Called only from take/poll.
      */
@@ -258,8 +321,33 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
      *         than zero
      */
     public LinkedBlockingQueue(int capacity) {
-        if (capacity <= 0) throw new IllegalArgumentException();
+        this(capacity, 0);
+    }
+
+    /**
+     * Creates a {@code LinkedBlockingQueue} with the given (fixed)
+     * capacity, whose {@code take} and timed {@code poll} operations
+     * spin for up to the given number of checks for an element to
+     * arrive before blocking.
+     *
+     * <p>Spinning trades processor time for lower handoff latency
+     * when producers and consumers run concurrently on different
+     * processors and the queue is usually empty. It is ignored on
+     * uniprocessors. A value of zero gives the default behavior of
+     * blocking immediately.
+     *
+     * @param capacity the capacity of this queue
+     * @param maxSpins the maximum number of times to check for an
+     *        element before blocking
+     * @throws IllegalArgumentException if {@code capacity} is not greater
+     *         than zero, or {@code maxSpins} is negative
+     * @since 1.8
+     */
+    public LinkedBlockingQueue(int capacity, int maxSpins) {
+        if (capacity <= 0 || maxSpins < 0) throw new IllegalArgumentException();
         this.capacity = capacity;
+        this.maxSpins = (NCPU < 2) ? 0 : maxSpins;
+        this.batchReady = takeLock.newCondition();
         last = head = new Node<E>(null);
     }
 
@@ -358,6 +446,8 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
         if (c == 0)
             signalNotEmpty();
+        else if (c > 0 && batchWaiters > 0)
+            signalBatchReady();
     }
 
     /**
@@ -393,6 +483,8 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
         if (c == 0)
             signalNotEmpty();
+        else if (c > 0 && batchWaiters > 0)
+            signalBatchReady();
         return true;
     }
 
@@ -428,14 +520,160 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
         if (c == 0)
             signalNotEmpty();
+        else if (c > 0 && batchWaiters > 0)
+            signalBatchReady();
         return c >= 0;
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, in the order returned by its iterator,
+     * waiting if necessary for space to become available.
+     *
+     * <p>Elements are linked in as large runs as the remaining
+     * capacity allows, each published to consumers at once, so that
+     * inserting a batch acquires the put lock and signals waiting
+     * consumers once rather than once per element. If interrupted
+     * while waiting, the elements already inserted remain in this
+     * queue and the rest are not inserted.
+     *
+     * @param c the elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     * @since 1.8
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> first = null, tail = null;
+        int n = 0;
+        for (E e : c) {
+            if (e == null)
+                throw new NullPointerException();
+            Node<E> node = new Node<E>(e);
+            if (first == null)
+                first = node;
+            else
+                tail.next = node;
+            tail = node;
+            ++n;
+        }
+        if (n == 0)
+            return;
+        int c0 = -1;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            while (n > 0) {
+                while (count.get() == capacity) {
+                    notFull.await();
+                }
+                int k = Math.min(n, capacity - count.get());
+                Node<E> runLast = first;
+                for (int i = 1; i < k; ++i)
+                    runLast = runLast.next;
+                Node<E> rest = runLast.next;
+                runLast.next = null;
+                last.next = first;
+                last = runLast;
+                c0 = count.getAndAdd(k);
+                first = rest;
+                n -= k;
+                if (c0 + k < capacity)
+                    notFull.signal();
+                // Consumers must see this run before we wait for space
+                // again; taking takeLock under putLock is the same
+                // order as fullyLock.
+                if (n > 0) {
+                    if (c0 == 0)
+                        signalNotEmpty();
+                    else if (batchWaiters > 0)
+                        signalBatchReady();
+                    c0 = -1;
+                }
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c0 == 0)
+            signalNotEmpty();
+        else if (c0 > 0 && batchWaiters > 0)
+            signalBatchReady();
+    }
+
+    /**
+     * Inserts as many of the elements of the specified collection as
+     * is possible immediately without exceeding this queue's
+     * capacity, in the order returned by its iterator, and returns the
+     * number inserted. The elements inserted are always a prefix of
+     * that order. Like {@link #putAll}, the put lock is acquired and
+     * consumers are signalled at most once for the whole batch.
+     *
+     * @param c the elements to insert
+     * @return the number of elements inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements
+     *         are inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> first = null, tail = null;
+        int n = 0;
+        for (E e : c) {
+            if (e == null)
+                throw new NullPointerException();
+            Node<E> node = new Node<E>(e);
+            if (first == null)
+                first = node;
+            else
+                tail.next = node;
+            tail = node;
+            ++n;
+        }
+        final AtomicInteger count = this.count;
+        if (n == 0 || count.get() == capacity)
+            return 0;
+        int c0 = -1, k = 0;
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            k = Math.min(n, capacity - count.get());
+            if (k > 0) {
+                Node<E> runLast = first;
+                for (int i = 1; i < k; ++i)
+                    runLast = runLast.next;
+                runLast.next = null;
+                last.next = first;
+                last = runLast;
+                c0 = count.getAndAdd(k);
+                if (c0 + k < capacity)
+                    notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c0 == 0)
+            signalNotEmpty();
+        else if (c0 > 0 && batchWaiters > 0)
+            signalBatchReady();
+        return k;
+    }
+
     public E take() throws InterruptedException {
         E x;
         int c = -1;
         final AtomicInteger count = this.count;
         final ReentrantLock takeLock = this.takeLock;
+        if (maxSpins > 0)
+            spinWhileEmpty();
         takeLock.lockInterruptibly();
         try {
             while (count.get() == 0) {
@@ -459,6 +697,8 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         long nanos = unit.toNanos(timeout);
         final AtomicInteger count = this.count;
         final ReentrantLock takeLock = this.takeLock;
+        if (maxSpins > 0 && nanos > 0)
+            spinWhileEmpty();
         takeLock.lockInterruptibly();
         try {
             while (count.get() == 0) {
@@ -762,6 +1002,95 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes at most the given number of available elements from
+     * this queue and adds them to the given collection, first waiting
+     * up to the specified wait time for at least {@code minElements}
+     * elements to become available. If the wait time elapses first,
+     * whatever elements are available (possibly none) are transferred.
+     *
+     * <p>This allows a consumer to process elements in batches of a
+     * useful size without either polling repeatedly or blocking
+     * indefinitely when the producer rate is low. Waiting for a batch
+     * does not delay other consumers: elements may be taken by other
+     * threads while this method waits, in which case it continues to
+     * wait for the remainder.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for; values
+     *        larger than {@code maxElements} or this queue's capacity
+     *        are treated as those bounds
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int need = Math.min(minElements, Math.min(maxElements, capacity));
+        boolean signalNotFull = false;
+        final AtomicInteger count = this.count;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lockInterruptibly();
+        try {
+            if (count.get() < need && nanos > 0) {
+                ++batchWaiters;
+                try {
+                    while (count.get() < need && nanos > 0)
+                        nanos = batchReady.awaitNanos(nanos);
+                } finally {
+                    --batchWaiters;
+                }
+            }
+            int n = Math.min(maxElements, count.get());
+            // count.get provides visibility to first n Nodes
+            Node<E> h = head;
+            int i = 0;
+            try {
+                while (i < n) {
+                    Node<E> p = h.next;
+                    c.add(p.item);
+                    p.item = null;
+                    h.next = h;
+                    h = p;
+                    ++i;
+                }
+                return n;
+            } finally {
+                // Restore invariants even if c.add() threw
+                if (i > 0) {
+                    // assert h.item == null;
+                    head = h;
+                    signalNotFull = (count.getAndAdd(-i) == capacity);
+                }
+            }
+        } finally {
+            takeLock.unlock();
+            if (signalNotFull)
+                signalNotFull();
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -1029,6 +1358,8 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         // Read in capacity, and any hidden stuff
         s.defaultReadObject();
 
+        batchReady = takeLock.newCondition();
+
         count.set(0);
         last = head = new Node<E>(null);
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.function.Supplier;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a ring
+ * buffer, for use by any number of producer threads and a single
+ * consumer thread. This queue orders elements FIFO
+ * (first-in-first-out) with respect to the order in which producers
+ * claim their positions.
+ *
+ * <p>Producers claim a position with a single compare-and-set of a
+ * shared index and then publish the element with an ordered write, so
+ * insertion never blocks other producers or the consumer, and no node
+ * is allocated per element. The producer and consumer positions are
+ * kept on separate cache lines, and producers consult the consumer's
+ * position only when their cached view of the free space is used up.
+ * The batch operation {@link #fill fill} claims many positions with
+ * one compare-and-set, and {@link #drain drain} removes many elements
+ * for the cost of one.
+ *
+ * <p>Removal is designed for one consumer thread, but other threads
+ * may safely remove elements as well (for example by
+ * {@link #drainTo} or {@link #remove(Object)}), at some cost in
+ * throughput while they do. A {@code MpscArrayQueue} is therefore
+ * well suited as the work queue of a single-threaded
+ * {@link ThreadPoolExecutor} to which many threads submit tasks, and
+ * may also be used with several worker threads, although those then
+ * serialize their removals.
+ *
+ * <p>The capacity is the requested capacity rounded up to a power of
+ * two. Consumers that wait for elements block; producers that wait for
+ * space retry with exponential backoff, as described in {@link #put}.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link java.util.Collection} and
+ * {@link java.util.Iterator} interfaces. The iterator traverses a
+ * snapshot of the queue.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class MpscArrayQueue<E> extends RingBufferQueue<E> {
+
+    /**
+     * A lower bound on consumerIndex + capacity, below which
+     * producers may claim slots without reading consumerIndex.
+     * Written by any producer that finds it stale; since
+     * consumerIndex only increases, any value written is a valid
+     * bound, and a smaller one only costs a recomputation.
+     */
+    @sun.misc.Contended("p") private volatile long producerLimit;
+
+    /**
+     * Creates a {@code MpscArrayQueue} with at least the given
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         one or greater than {@code 1 << 30}
+     */
+    public MpscArrayQueue(int capacity) {
+        super(capacity);
+        this.producerLimit = buffer.length;
+    }
+
+    /**
+     * Claims up to n consecutive slots, returning the index of the
+     * first, or -1 if the queue is full. The number claimed is
+     * returned in claimed[0] when more than one is requested.
+     */
+    private long claim(int n, int[] claimed) {
+        long limit = producerLimit, p;
+        int k;
+        do {
+            p = producerIndex;
+            if (p >= limit) {
+                limit = consumerIndex + buffer.length;
+                if (p >= limit)
+                    return -1L;
+                producerLimit = limit;
+            }
+            k = (int)Math.min((long)n, limit - p);
+        } while (!U.compareAndSwapLong(this, PRODUCERINDEX, p, p + k));
+        if (claimed != null)
+            claimed[0] = k;
+        return p;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long p = claim(1, null);
+        if (p < 0L)
+            return false;
+        U.putOrderedObject(buffer, offset(p), e);
+        signalNotEmpty(1);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * All positions are claimed with a single compare-and-set before
+     * the supplier is invoked, and the supplier is then invoked once
+     * for each of them. Because the consumer waits for claimed
+     * positions to be filled, the supplier should not block, and if it
+     * throws an exception or supplies {@code null}, the remaining
+     * claimed positions are filled with removed-element markers that
+     * the consumer skips.
+     */
+    public int fill(Supplier<? extends E> s, int limit) {
+        checkNotNull(s);
+        if (limit <= 0)
+            return 0;
+        int[] claimed = new int[1];
+        long p = claim(limit, claimed);
+        if (p < 0L)
+            return 0;
+        final Object[] buffer = this.buffer;
+        final int n = claimed[0];
+        int i = 0;
+        try {
+            for (; i < n; i++) {
+                E e = s.get();
+                checkNotNull(e);
+                U.putOrderedObject(buffer, offset(p + i), e);
+            }
+        } finally {
+            for (int j = i; j < n; j++)
+                U.putOrderedObject(buffer, offset(p + j), REMOVED);
+            signalNotEmpty(i);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,619 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Common state and consumer-side operations for the array-backed ring
+ * buffer queues {@link SpscArrayQueue} and {@link MpscArrayQueue}.
+ * Subclasses supply the producer side: {@code offer} and {@code fill}.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+abstract class RingBufferQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Elements live in a power-of-two sized array indexed by two
+     * ever-increasing long counters, producerIndex and
+     * consumerIndex, each taken modulo the array length. A slot is
+     * free when it holds null. Producers claim the slot at
+     * producerIndex, store the element with an ordered (lazySet)
+     * write, and publish the new index; the consumer reads the slot
+     * at consumerIndex, clears it with an ordered write, and
+     * publishes the advanced index. No per-element node is
+     * allocated, and in the common case neither side writes to a
+     * cache line the other side is writing: the two indices and the
+     * fields used only by one side are kept on separate lines using
+     * @Contended groups "p" (producer) and "c" (consumer).
+     *
+     * The consumer side is designed for one thread at a time, but
+     * operations that may be invoked by other threads (drainTo from
+     * ThreadPoolExecutor.shutdownNow, remove, iteration, or several
+     * pool workers polling the same queue) must not corrupt it. So
+     * all consumer-side operations hold consumerLock, a simple
+     * test-and-set flag that the expected single consumer always
+     * acquires uncontended, on a line it already owns. Batched
+     * consumer operations (drain, drainTo) acquire it once.
+     *
+     * remove(Object) and Iterator.remove cannot shift elements,
+     * because producers may be writing concurrently behind them.
+     * Instead they overwrite the removed element's slot with the
+     * REMOVED marker, which the consumer later clears and skips.
+     * This is safe because, with consumerLock held, every non-null
+     * slot between consumerIndex and producerIndex is owned by the
+     * consumer side.
+     *
+     * An MpscArrayQueue producer claims its slot by CAS on
+     * producerIndex before writing the element, so the consumer may
+     * see a null slot below producerIndex; it then spins until the
+     * element appears.
+     *
+     * Blocking. Consumers that find the queue empty spin briefly and
+     * then wait on notEmpty under waitLock, after incrementing the
+     * volatile waiters count. Producers check waiters only after
+     * publishing (with a full fence, either a CAS or an explicit
+     * fence), so either the waiter sees the element or the producer
+     * sees the waiter, and only take the lock to signal when there
+     * is one. Producers that find the queue full do not wait on a
+     * condition (which would make every consumer operation pay for
+     * signalling); they instead park with exponential backoff.
+     */
+
+    /** The number of CPUs, for spin control */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times to poll an empty queue before blocking.
+     * Zero on uniprocessors, where spinning cannot help.
+     */
+    static final int MAX_SPINS = (NCPU < 2) ? 0 : 128;
+
+    /** Longest time a blocked producer parks between retries */
+    static final long MAX_PRODUCER_PARK_NANOS = 1000000L;
+
+    /** Marker for elements removed from the middle of the queue */
+    static final Object REMOVED = new Object();
+
+    /** The element slots; length is a power of two */
+    final Object[] buffer;
+
+    /** buffer.length - 1 */
+    final int mask;
+
+    /** Index of the next slot a producer will fill */
+    @sun.misc.Contended("p") volatile long producerIndex;
+
+    /** Index of the next slot the consumer will read */
+    @sun.misc.Contended("c") volatile long consumerIndex;
+
+    /** Nonzero while a thread is performing a consumer operation */
+    @sun.misc.Contended("c") volatile int consumerLock;
+
+    /** Number of consumers waiting on notEmpty */
+    @sun.misc.Contended("c") volatile int waiters;
+
+    /** Lock for blocked consumers */
+    final ReentrantLock waitLock = new ReentrantLock();
+
+    /** Wait queue for waiting takes */
+    final Condition notEmpty = waitLock.newCondition();
+
+    /**
+     * Creates a queue with at least the given capacity, rounded up to
+     * a power of two.
+     */
+    RingBufferQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = (capacity < 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new Object[n];
+        this.mask = n - 1;
+    }
+
+    /**
+     * Returns the address of the slot for the given index.
+     */
+    final long offset(long index) {
+        return ((index & mask) << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Throws NullPointerException if argument is null.
+     */
+    static void checkNotNull(Object v) {
+        if (v == null)
+            throw new NullPointerException();
+    }
+
+    /**
+     * Signals up to k waiting consumers, if there are any. Called by
+     * producers after publishing k elements and a full fence.
+     */
+    final void signalNotEmpty(int k) {
+        if (waiters > 0) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                for (; k > 0 && lock.hasWaiters(notEmpty); k--)
+                    notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Acquires consumerLock.
+     */
+    final void lockConsumer() {
+        if (!U.compareAndSwapInt(this, CONSUMERLOCK, 0, 1)) {
+            for (int spins = MAX_SPINS;;) {
+                if (consumerLock == 0 &&
+                    U.compareAndSwapInt(this, CONSUMERLOCK, 0, 1))
+                    break;
+                if (spins > 0)
+                    --spins;
+                else
+                    Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Releases consumerLock.
+     */
+    final void unlockConsumer() {
+        U.putOrderedInt(this, CONSUMERLOCK, 0);
+    }
+
+    /**
+     * Returns the head element, skipping and clearing removed ones,
+     * or null if empty. Does not consume it. Call only when holding
+     * consumerLock.
+     */
+    private Object first() {
+        final Object[] buffer = this.buffer;
+        for (long c = consumerIndex;; c++) {
+            long off = offset(c);
+            Object e = U.getObjectVolatile(buffer, off);
+            if (e == null) {
+                if (c == producerIndex)
+                    return null;
+                // an MPSC producer has claimed the slot; wait for it
+                while ((e = U.getObjectVolatile(buffer, off)) == null)
+                    Thread.yield();
+            }
+            if (e != REMOVED)
+                return e;
+            U.putOrderedObject(buffer, off, null);
+            U.putOrderedLong(this, CONSUMERINDEX, c + 1);
+        }
+    }
+
+    /**
+     * Consumes the head element returned by first().
+     */
+    private void advance() {
+        long c = consumerIndex;
+        U.putOrderedObject(buffer, offset(c), null);
+        U.putOrderedLong(this, CONSUMERINDEX, c + 1);
+    }
+
+    public E poll() {
+        Object e;
+        lockConsumer();
+        try {
+            if ((e = first()) != null)
+                advance();
+        } finally {
+            unlockConsumer();
+        }
+        @SuppressWarnings("unchecked") E x = (E)e;
+        return x;
+    }
+
+    public E peek() {
+        Object e;
+        lockConsumer();
+        try {
+            e = first();
+        } finally {
+            unlockConsumer();
+        }
+        @SuppressWarnings("unchecked") E x = (E)e;
+        return x;
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        for (int spins = MAX_SPINS; spins >= 0; --spins) {
+            if ((e = poll()) != null)
+                return e;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while ((e = poll()) == null)
+                    notEmpty.await();
+            } finally {
+                waiters--;
+            }
+            if (!isEmpty())
+                notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return e;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E e;
+        for (int spins = (nanos > 0) ? MAX_SPINS : 0; spins >= 0; --spins) {
+            if ((e = poll()) != null)
+                return e;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while ((e = poll()) == null) {
+                    if (nanos <= 0)
+                        return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waiters--;
+            }
+            if (!isEmpty())
+                notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return e;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full. Waiting
+     * producers are not signalled by consumers, but instead retry
+     * after parking for exponentially increasing periods of at most a
+     * millisecond.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        for (long parkNanos = 1000L; !offer(e); ) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(this, parkNanos);
+            if (parkNanos < MAX_PRODUCER_PARK_NANOS)
+                parkNanos <<= 1;
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full. Waiting is performed as for {@link #put}.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(e);
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        for (long parkNanos = 1000L; !offer(e); ) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (nanos <= 0L)
+                return false;
+            LockSupport.parkNanos(this, Math.min(parkNanos, nanos));
+            if (parkNanos < MAX_PRODUCER_PARK_NANOS)
+                parkNanos <<= 1;
+            nanos = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
+    /**
+     * Inserts elements obtained from the given supplier until this
+     * queue is full or {@code limit} elements have been inserted,
+     * publishing them to the consumer together. The supplier is only
+     * invoked for elements that can be inserted.
+     *
+     * @param s the supplier of elements
+     * @param limit the maximum number of elements to insert
+     * @return the number of elements inserted
+     * @throws NullPointerException if the supplier is null or supplies
+     *         a null element
+     */
+    public abstract int fill(Supplier<? extends E> s, int limit);
+
+    /**
+     * Removes up to {@code limit} elements from the head of this
+     * queue, performing the given action on each. Consumer-side
+     * synchronization is performed once for the whole batch, and each
+     * slot is released as soon as its action completes. If an action
+     * throws an exception, the element it was applied to remains at
+     * the head of this queue and the exception is relayed to the
+     * caller. The action must not itself remove elements from this
+     * queue.
+     *
+     * @param action the action to perform on each element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the action is null
+     */
+    public int drain(Consumer<? super E> action, int limit) {
+        checkNotNull(action);
+        int n = 0;
+        lockConsumer();
+        try {
+            Object e;
+            while (n < limit && (e = first()) != null) {
+                @SuppressWarnings("unchecked") E x = (E)e;
+                action.accept(x);
+                advance();
+                ++n;
+            }
+        } finally {
+            unlockConsumer();
+        }
+        return n;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        return drain(c::add, maxElements);
+    }
+
+    /**
+     * Returns the number of elements in this queue. The value is an
+     * estimate if producers or consumers are active, and includes
+     * elements removed from the interior of the queue whose slots the
+     * consumer has not yet passed.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long c = consumerIndex;
+        for (;;) {
+            long p = producerIndex;
+            long c2 = consumerIndex;
+            if (c == c2) {
+                long n = p - c;
+                return (n < 0L) ? 0 : (n > buffer.length) ? buffer.length : (int)n;
+            }
+            c = c2;
+        }
+    }
+
+    public boolean isEmpty() {
+        return consumerIndex == producerIndex;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * accept without blocking, as estimated from {@link #size}.
+     */
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    /**
+     * Returns the capacity of this queue, which is the requested
+     * capacity rounded up to a power of two.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        final Object[] buffer = this.buffer;
+        lockConsumer();
+        try {
+            for (long i = consumerIndex, p = producerIndex; i < p; i++) {
+                long off = offset(i);
+                Object e = U.getObjectVolatile(buffer, off);
+                if (e != null && e != REMOVED && o.equals(e)) {
+                    U.putOrderedObject(buffer, off, REMOVED);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            unlockConsumer();
+        }
+    }
+
+    public void clear() {
+        lockConsumer();
+        try {
+            while (first() != null)
+                advance();
+        } finally {
+            unlockConsumer();
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence. The iterator traverses a snapshot of the elements
+     * present when it was created, and its {@code remove} method
+     * removes the last element returned if it is still in this queue.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        final Object[] buffer = this.buffer;
+        long[] indices;
+        Object[] items;
+        int n = 0;
+        lockConsumer();
+        try {
+            long c = consumerIndex, p = producerIndex;
+            int cap = (int)Math.min(p - c, (long)buffer.length);
+            indices = new long[cap];
+            items = new Object[cap];
+            for (long i = c; i < p && n < cap; i++) {
+                Object e = U.getObjectVolatile(buffer, offset(i));
+                if (e != null && e != REMOVED) {
+                    indices[n] = i;
+                    items[n++] = e;
+                }
+            }
+        } finally {
+            unlockConsumer();
+        }
+        return new Itr(indices, items, n);
+    }
+
+    /**
+     * Removes the element e from slot index, if it is still there.
+     */
+    final void removeAt(long index, Object e) {
+        lockConsumer();
+        try {
+            long off;
+            if (index >= consumerIndex &&
+                U.getObjectVolatile(buffer, off = offset(index)) == e)
+                U.putOrderedObject(buffer, off, REMOVED);
+        } finally {
+            unlockConsumer();
+        }
+    }
+
+    /**
+     * Snapshot iterator.
+     */
+    final class Itr implements Iterator<E> {
+        final long[] indices;
+        final Object[] items;
+        final int fence;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(long[] indices, Object[] items, int fence) {
+            this.indices = indices;
+            this.items = items;
+            this.fence = fence;
+        }
+
+        public boolean hasNext() {
+            return cursor < fence;
+        }
+
+        public E next() {
+            if (cursor >= fence)
+                throw new NoSuchElementException();
+            @SuppressWarnings("unchecked") E x = (E)items[lastRet = cursor++];
+            return x;
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeAt(indices[lastRet], items[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    // Unsafe mechanics
+    static final sun.misc.Unsafe U;
+    static final long PRODUCERINDEX;
+    static final long CONSUMERINDEX;
+    private static final long CONSUMERLOCK;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = RingBufferQueue.class;
+            PRODUCERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("producerIndex"));
+            CONSUMERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("consumerIndex"));
+            CONSUMERLOCK = U.objectFieldOffset
+                (k.getDeclaredField("consumerLock"));
+            Class<?> ak = Object[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -63,6 +63,16 @@ import java.util.*;
  * causes tasks to be immediately removed from the work queue at
  * time of cancellation.
  *
+ * <p>By default, scheduled tasks are held in a priority queue, so
+ * that scheduling and cancelling a task takes time logarithmic in
+ * the number of queued tasks. The constructors that accept a
+ * {@code tickDuration} instead hold them in a hierarchical timing
+ * wheel, in which scheduling and cancellation take constant time,
+ * at the cost of rounding each task's delay up to a whole number of
+ * ticks. This suits applications that schedule and cancel very many
+ * timeouts, most of which never fire. Such executors remove tasks
+ * from the work queue on cancellation by default.
+ *
  * <p>Successive executions of a task scheduled via
  * {@code scheduleAtFixedRate} or
  * {@code scheduleWithFixedDelay} do not overlap. While different
@@ -199,9 +209,14 @@ public class ScheduledThreadPoolExecutor
 
         /**
          * Index into delay queue, to support faster cancellation.
+         * A TimingWheelWorkQueue sets this to zero while the task is
+         * queued and to -1 otherwise.
          */
         int heapIndex;
 
+        /** The node holding this task in a TimingWheelWorkQueue */
+        TimingWheelWorkQueue.Node wheelNode;
+
         /**
          * Creates a one-shot action with given nanoTime-based trigger time.
          */
@@ -486,6 +501,62 @@ public class ScheduledThreadPoolExecutor
               new DelayedWorkQueue(), threadFactory, handler);
     }
 
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} with the
+     * given core pool size, whose scheduled tasks are held in a
+     * hierarchical timing wheel of the given tick duration. Delays
+     * are rounded up to a whole number of ticks, so tasks never run
+     * early but may run up to one tick late. Cancelled tasks are
+     * removed from the work queue by default; see
+     * {@link #setRemoveOnCancelPolicy}.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the resolution of the timing wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     *         {@code tickDuration} is not positive
+     * @throws NullPointerException if {@code unit} is null
+     * @since 1.8
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration, TimeUnit unit) {
+        super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS,
+              new TimingWheelWorkQueue(unit.toNanos(tickDuration)));
+        removeOnCancel = true;
+    }
+
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} with the
+     * given initial parameters, whose scheduled tasks are held in a
+     * hierarchical timing wheel of the given tick duration, as
+     * described in {@link #ScheduledThreadPoolExecutor(int, long,
+     * TimeUnit)}.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the resolution of the timing wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     *         {@code tickDuration} is not positive
+     * @throws NullPointerException if {@code unit}, {@code threadFactory}
+     *         or {@code handler} is null
+     * @since 1.8
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration, TimeUnit unit,
+                                       ThreadFactory threadFactory,
+                                       RejectedExecutionHandler handler) {
+        super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS,
+              new TimingWheelWorkQueue(unit.toNanos(tickDuration)),
+              threadFactory, handler);
+        removeOnCancel = true;
+    }
+
     /**
      * Returns the trigger time of a delayed action.
      */
@@ -1280,4 +1351,645 @@ public class ScheduledThreadPoolExecutor
             }
         }
     }
+
+    /**
+     * Delay queue based on a hierarchical timing wheel. As with
+     * DelayedWorkQueue, this class must be declared as a
+     * BlockingQueue<Runnable> even though it can only hold
+     * RunnableScheduledFutures.
+     */
+    static class TimingWheelWorkQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * Time is divided into ticks of tickNanos, counted from the
+         * creation of the queue, and each task is assigned the first
+         * tick at which its delay has elapsed. The wheel has LEVELS
+         * levels of WHEEL_SIZE buckets each; bucket s of level L holds
+         * tasks whose deadline tick has digit s in position L when
+         * written in base WHEEL_SIZE, and agrees with the wheel's
+         * current tick in all higher digits. A task is placed at the
+         * level of the highest digit in which its deadline differs
+         * from the current tick, so that its bucket lies strictly
+         * ahead of the current position on that level (or at it, on
+         * level zero). When the current tick reaches the start of a
+         * higher-level bucket's span, that bucket is emptied and its
+         * tasks are re-placed on lower levels ("cascaded"); when it
+         * reaches a level-zero bucket, that bucket's tasks are moved
+         * to the ready list. Tasks with no remaining delay go
+         * straight to the ready list.
+         *
+         * Each bucket is a doubly-linked list of Nodes, so insertion
+         * and removal are constant time. A ScheduledFutureTask
+         * records its node in wheelNode, so removal (and hence
+         * cancellation, when removeOnCancel is set) need not search;
+         * other RunnableScheduledFutures are found by linear search,
+         * as in DelayedWorkQueue.
+         *
+         * To avoid stepping through every tick while idle, a bitmap
+         * per level records the non-empty buckets, from which
+         * nextEventTick finds the next tick at which a bucket must be
+         * cascaded or expired; advance jumps directly between such
+         * ticks. Waiting uses the same leader-follower scheme as
+         * DelayedWorkQueue, with the leader waiting until the next
+         * event tick, and insertions signalling only if they create
+         * an earlier event than the one the leader is waiting for.
+         */
+
+        private static final int WHEEL_BITS = 6;
+        private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+        private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+        private static final int LEVELS = (63 + WHEEL_BITS - 1) / WHEEL_BITS;
+
+        /** Bucket index of nodes in the ready list */
+        private static final int READY = -1;
+
+        /** Bucket index of nodes not in the queue */
+        private static final int UNLINKED = -2;
+
+        /**
+         * Bucket list node.
+         */
+        static final class Node {
+            final TimingWheelWorkQueue queue;
+            final RunnableScheduledFuture<?> task;
+            final long deadline; // in ticks
+            Node prev, next;
+            int bucket = UNLINKED;
+            Node(TimingWheelWorkQueue queue, RunnableScheduledFuture<?> task,
+                 long deadline) {
+                this.queue = queue;
+                this.task = task;
+                this.deadline = deadline;
+            }
+        }
+
+        private final long tickNanos;
+        private final long origin = System.nanoTime();
+        private final Node[] heads = new Node[LEVELS * WHEEL_SIZE];
+        private final Node[] tails = new Node[LEVELS * WHEEL_SIZE];
+        private final long[] occupied = new long[LEVELS];
+        private Node readyHead, readyTail;
+
+        /** The next tick to be processed */
+        private long tick;
+
+        private int size;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Thread designated to wait for the next event tick, as in
+         * DelayedWorkQueue.
+         */
+        private Thread leader = null;
+
+        /** The tick the leader is waiting for, or Long.MAX_VALUE */
+        private long leaderTick = Long.MAX_VALUE;
+
+        /**
+         * Condition signalled when an earlier event tick or a ready
+         * task becomes available, or a new thread may need to become
+         * leader.
+         */
+        private final Condition available = lock.newCondition();
+
+        TimingWheelWorkQueue(long tickNanos) {
+            if (tickNanos <= 0)
+                throw new IllegalArgumentException();
+            this.tickNanos = tickNanos;
+        }
+
+        /**
+         * Returns the number of whole ticks elapsed since creation.
+         */
+        private long currentTick() {
+            return (System.nanoTime() - origin) / tickNanos;
+        }
+
+        /**
+         * Returns the first tick at which a task with the given
+         * positive delay in nanoseconds has become enabled.
+         */
+        private long deadlineTick(long delay) {
+            long t = (System.nanoTime() - origin) + delay;
+            if (t < 0) // overflow
+                t = Long.MAX_VALUE;
+            return (t - 1) / tickNanos + 1;
+        }
+
+        /**
+         * Returns the delay in nanoseconds until the given tick.
+         */
+        private long nanosUntil(long t) {
+            long n = (t >= Long.MAX_VALUE / tickNanos) ?
+                Long.MAX_VALUE : t * tickNanos;
+            return n - (System.nanoTime() - origin);
+        }
+
+        /**
+         * Records queue membership in f if it is a ScheduledFutureTask.
+         */
+        private static void setNode(RunnableScheduledFuture<?> f, Node n) {
+            if (f instanceof ScheduledFutureTask) {
+                ScheduledFutureTask<?> t = (ScheduledFutureTask<?>)f;
+                t.wheelNode = n;
+                t.heapIndex = (n == null) ? -1 : 0;
+            }
+        }
+
+        private void link(Node n, int b) {
+            Node t = tails[b];
+            n.bucket = b;
+            n.prev = t;
+            n.next = null;
+            if (t == null) {
+                heads[b] = n;
+                occupied[b >>> WHEEL_BITS] |= 1L << (b & WHEEL_MASK);
+            }
+            else
+                t.next = n;
+            tails[b] = n;
+        }
+
+        private void linkReady(Node n) {
+            Node t = readyTail;
+            n.bucket = READY;
+            n.prev = t;
+            n.next = null;
+            if (t == null)
+                readyHead = n;
+            else
+                t.next = n;
+            readyTail = n;
+        }
+
+        private void unlink(Node n) {
+            int b = n.bucket;
+            Node p = n.prev, s = n.next;
+            if (p == null) {
+                if (b == READY)
+                    readyHead = s;
+                else
+                    heads[b] = s;
+            }
+            else
+                p.next = s;
+            if (s == null) {
+                if (b == READY)
+                    readyTail = p;
+                else
+                    tails[b] = p;
+            }
+            else
+                s.prev = p;
+            if (b >= 0 && heads[b] == null)
+                occupied[b >>> WHEEL_BITS] &= ~(1L << (b & WHEEL_MASK));
+            n.prev = n.next = null;
+            n.bucket = UNLINKED;
+        }
+
+        /**
+         * Removes and returns the list of nodes in bucket b.
+         */
+        private Node detach(int b) {
+            Node h = heads[b];
+            heads[b] = tails[b] = null;
+            occupied[b >>> WHEEL_BITS] &= ~(1L << (b & WHEEL_MASK));
+            return h;
+        }
+
+        /**
+         * Places n in the bucket for its deadline relative to the
+         * current tick, or in the ready list if already due.
+         */
+        private void place(Node n) {
+            long d = n.deadline, t = tick;
+            if (d < t)
+                linkReady(n);
+            else {
+                long x = d ^ t;
+                int level = (x < WHEEL_SIZE) ? 0 :
+                    (63 - Long.numberOfLeadingZeros(x)) / WHEEL_BITS;
+                int shift = level * WHEEL_BITS;
+                link(n, level * WHEEL_SIZE + ((int)(d >>> shift) & WHEEL_MASK));
+            }
+        }
+
+        /**
+         * Returns the first tick, at or after the current one, at
+         * which some bucket must be cascaded or expired, or
+         * Long.MAX_VALUE if the wheel is empty.
+         */
+        private long nextEventTick() {
+            final long t = tick;
+            long best = Long.MAX_VALUE;
+            for (int level = 0; level < LEVELS; ++level) {
+                long occ = occupied[level];
+                if (occ != 0L) {
+                    int shift = level * WHEEL_BITS;
+                    int digit = (int)(t >>> shift) & WHEEL_MASK;
+                    long pending = occ & (-1L << digit);
+                    if (pending != 0L) {
+                        int upper = shift + WHEEL_BITS;
+                        long base = (upper >= 64) ? 0L : (t >>> upper) << upper;
+                        long e = base |
+                            ((long)Long.numberOfTrailingZeros(pending) << shift);
+                        if (e < t)
+                            e = t;
+                        if (e < best)
+                            best = e;
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Processes all event ticks up to and including now, moving
+         * tasks that have become due to the ready list.
+         */
+        private void advance(long now) {
+            for (long e; (e = nextEventTick()) <= now; ) {
+                tick = e;
+                for (int level = LEVELS - 1; level > 0; --level) {
+                    int shift = level * WHEEL_BITS;
+                    if ((e & ((1L << shift) - 1)) == 0L) {
+                        int b = level * WHEEL_SIZE + ((int)(e >>> shift) & WHEEL_MASK);
+                        for (Node n = detach(b), next; n != null; n = next) {
+                            next = n.next;
+                            place(n);
+                        }
+                    }
+                }
+                for (Node n = detach((int)e & WHEEL_MASK), next; n != null; n = next) {
+                    next = n.next;
+                    linkReady(n);
+                }
+                tick = e + 1;
+            }
+            if (tick <= now)
+                tick = now + 1;
+        }
+
+        /**
+         * Finds the node holding x, or null if absent.
+         */
+        private Node nodeFor(Object x) {
+            if (x instanceof ScheduledFutureTask) {
+                Node n = ((ScheduledFutureTask<?>)x).wheelNode;
+                // Sanity check; x could be a task from some other pool.
+                return (n != null && n.queue == this && n.task == x &&
+                        n.bucket != UNLINKED) ? n : null;
+            }
+            else if (x != null) {
+                for (Node p = readyHead; p != null; p = p.next)
+                    if (x.equals(p.task))
+                        return p;
+                for (int b = 0; b < heads.length; ++b)
+                    for (Node p = heads[b]; p != null; p = p.next)
+                        if (x.equals(p.task))
+                            return p;
+            }
+            return null;
+        }
+
+        public boolean contains(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return nodeFor(x) != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean remove(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node n = nodeFor(x);
+                if (n == null)
+                    return false;
+                unlink(n);
+                setNode(n.task, null);
+                --size;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Returns a task that is due, if any, or else a task with the
+         * earliest deadline tick.
+         */
+        public RunnableScheduledFuture<?> peek() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (readyHead != null)
+                    return readyHead.task;
+                long e = nextEventTick();
+                if (e == Long.MAX_VALUE)
+                    return null;
+                // The earliest non-empty bucket holds the earliest task
+                Node best = null;
+                for (int level = 0; level < LEVELS && best == null; ++level) {
+                    int shift = level * WHEEL_BITS;
+                    if (level > 0 && (e & ((1L << shift) - 1)) != 0L)
+                        break;
+                    int b = level * WHEEL_SIZE + ((int)(e >>> shift) & WHEEL_MASK);
+                    for (Node p = heads[b]; p != null; p = p.next)
+                        if (best == null || p.deadline < best.deadline)
+                            best = p;
+                }
+                return (best == null) ? null : best.task;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            RunnableScheduledFuture<?> e = (RunnableScheduledFuture<?>)x;
+            long delay = e.getDelay(NANOSECONDS);
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node n = new Node(this, e, (delay <= 0) ? Long.MIN_VALUE :
+                                  deadlineTick(delay));
+                setNode(e, n);
+                place(n);
+                ++size;
+                if (n.bucket == READY || n.deadline < leaderTick) {
+                    leader = null;
+                    leaderTick = Long.MAX_VALUE;
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        public boolean add(Runnable e) {
+            return offer(e);
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        /**
+         * Removes and returns the first ready task. Call only when
+         * holding lock, with the ready list non-empty.
+         */
+        private RunnableScheduledFuture<?> finishPoll() {
+            Node n = readyHead;
+            unlink(n);
+            setNode(n.task, null);
+            --size;
+            return n.task;
+        }
+
+        public RunnableScheduledFuture<?> poll() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (readyHead == null)
+                    advance(currentTick());
+                return (readyHead == null) ? null : finishPoll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> take() throws InterruptedException {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    if (readyHead == null)
+                        advance(currentTick());
+                    if (readyHead != null)
+                        return finishPoll();
+                    long e = nextEventTick();
+                    if (e == Long.MAX_VALUE || leader != null)
+                        available.await();
+                    else {
+                        long delay = nanosUntil(e);
+                        if (delay <= 0)
+                            continue;
+                        Thread thisThread = Thread.currentThread();
+                        leader = thisThread;
+                        leaderTick = e;
+                        try {
+                            available.awaitNanos(delay);
+                        } finally {
+                            if (leader == thisThread) {
+                                leader = null;
+                                leaderTick = Long.MAX_VALUE;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                if (leader == null && size > 0)
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    if (readyHead == null)
+                        advance(currentTick());
+                    if (readyHead != null)
+                        return finishPoll();
+                    if (nanos <= 0)
+                        return null;
+                    long e = nextEventTick();
+                    long delay;
+                    if (e == Long.MAX_VALUE || leader != null ||
+                        nanos < (delay = nanosUntil(e)))
+                        nanos = available.awaitNanos(nanos);
+                    else if (delay > 0) {
+                        Thread thisThread = Thread.currentThread();
+                        leader = thisThread;
+                        leaderTick = e;
+                        try {
+                            long timeLeft = available.awaitNanos(delay);
+                            nanos -= delay - timeLeft;
+                        } finally {
+                            if (leader == thisThread) {
+                                leader = null;
+                                leaderTick = Long.MAX_VALUE;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                if (leader == null && size > 0)
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public void clear() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (Node n = readyHead, next; n != null; n = next) {
+                    next = n.next;
+                    n.prev = n.next = null;
+                    n.bucket = UNLINKED;
+                    setNode(n.task, null);
+                }
+                readyHead = readyTail = null;
+                for (int b = 0; b < heads.length; ++b) {
+                    for (Node n = detach(b), next; n != null; n = next) {
+                        next = n.next;
+                        n.prev = n.next = null;
+                        n.bucket = UNLINKED;
+                        setNode(n.task, null);
+                    }
+                }
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            if (maxElements <= 0)
+                return 0;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                advance(currentTick());
+                int n = 0;
+                while (n < maxElements && readyHead != null) {
+                    c.add(readyHead.task); // In this order, in case add() throws.
+                    finishPoll();
+                    ++n;
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Object[] toArray() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return snapshot();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                RunnableScheduledFuture<?>[] q = snapshot();
+                if (a.length < size)
+                    return (T[]) Arrays.copyOf(q, size, a.getClass());
+                System.arraycopy(q, 0, a, 0, size);
+                if (a.length > size)
+                    a[size] = null;
+                return a;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the queued tasks, due ones first. Call only when
+         * holding lock.
+         */
+        private RunnableScheduledFuture<?>[] snapshot() {
+            RunnableScheduledFuture<?>[] q = new RunnableScheduledFuture<?>[size];
+            int i = 0;
+            for (Node p = readyHead; p != null; p = p.next)
+                q[i++] = p.task;
+            for (int b = 0; b < heads.length; ++b)
+                for (Node p = heads[b]; p != null; p = p.next)
+                    q[i++] = p.task;
+            return q;
+        }
+
+        public Iterator<Runnable> iterator() {
+            return new Itr(toArray());
+        }
+
+        /**
+         * Snapshot iterator that works off a copy of the queued tasks.
+         */
+        private class Itr implements Iterator<Runnable> {
+            final Object[] array;
+            int cursor = 0;     // index of next element to return
+            int lastRet = -1;   // index of last element, or -1 if no such
+
+            Itr(Object[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return (Runnable)array[cursor++];
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                TimingWheelWorkQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        }
+    }
 }
@@ -36,6 +36,7 @@
 package java.util.concurrent;
 import java.util.Collection;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.SynchronizerMXBean;
 
 /**
  * Semaphore，又名信号量，这个类的作用有点类似于“许可证”。有时，
@@ -722,6 +723,30 @@ public class Semaphore implements java.io.Serializable {
         return sync.getQueueLength();
     }
 
+    /**
+     * Enables or disables the collection of contention statistics for
+     * this semaphore.
+     *
+     * @param enabled {@code true} to collect statistics
+     * @see AbstractQueuedSynchronizer#setStatisticsEnabled
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        sync.setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Returns the contention statistics of this semaphore, or {@code null}
+     * if they are not enabled.
+     *
+     * @return the statistics, or {@code null} if not enabled
+     * @see AbstractQueuedSynchronizer#getStatistics
+     * @since 1.8
+     */
+    public SynchronizerMXBean getStatistics() {
+        return sync.getStatistics();
+    }
+
     /**
      * Returns a collection containing threads that may be waiting to acquire.
      * Because the actual set of threads may change dynamically while
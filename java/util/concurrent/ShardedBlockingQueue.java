@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An optionally-bounded {@linkplain BlockingQueue blocking queue} that
+ * spreads its elements over several independently locked shards, for
+ * use as the work queue of a {@link ThreadPoolExecutor} with many
+ * worker threads and short tasks.
+ *
+ * <p>Each thread has a <em>home</em> shard, chosen from the same
+ * per-thread probe that {@link java.util.concurrent.atomic.LongAdder}
+ * uses. Insertions go to the inserting thread's home shard, and
+ * removals first try the removing thread's home shard and then
+ * <em>steal</em> from the others in turn. A thread that finds its
+ * home shard's lock contended when inserting moves to another shard.
+ * Tasks submitted by a pool worker are therefore usually run by that
+ * same worker, and workers contend for a single lock only when their
+ * own shards are empty. Since a pool built on this queue is still an
+ * ordinary {@code ThreadPoolExecutor}, its core and maximum pool
+ * sizes, keep-alive, rejection policy, {@code beforeExecute} and
+ * {@code afterExecute} hooks, and shutdown behavior are unchanged.
+ *
+ * <p>This queue orders elements FIFO (first-in-first-out) within each
+ * shard, but <em>not</em> across shards: an element may be removed
+ * before one inserted earlier by another thread. Applications that
+ * require tasks to start in submission order should not use it. The
+ * capacity is divided among the shards, and insertion fails or blocks
+ * only when all shards are full.
+ *
+ * <p>Threads blocked waiting for elements or for space wait on a
+ * single lock, which inserting and removing threads acquire only when
+ * there is such a waiter.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces. The iterator traverses a snapshot of the
+ * queue.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class ShardedBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Each shard is a ReentrantLock guarding an ArrayDeque, plus a
+     * volatile count that is written under the lock and read without
+     * it, so that scans can skip empty or full shards cheaply.
+     * Shards are padded to avoid false sharing between the locks.
+     *
+     * Blocking uses the same scheme as in the ring buffer queues: a
+     * waiting taker increments the volatile takeWaiters before
+     * rechecking the shard counts, and an inserting thread reads
+     * takeWaiters after updating a shard count; since both are
+     * volatile accesses, at least one of them sees the other, so
+     * inserts need to touch waitLock only when someone is waiting.
+     * Waiting puts are handled symmetrically with putWaiters.
+     *
+     * Lock ordering: waitLock may be held while acquiring a shard
+     * lock (by waiting takes and puts rechecking the shards), so
+     * waitLock is never acquired while holding a shard lock.
+     */
+
+    /** The number of CPUs, to size the default number of shards */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The maximum number of shards */
+    private static final int MAX_SHARDS = 1 << 16;
+
+    /**
+     * A shard of the queue.
+     */
+    @sun.misc.Contended static final class Shard extends ReentrantLock {
+        private static final long serialVersionUID = 4236210837451736432L;
+        final ArrayDeque<Object> items = new ArrayDeque<Object>();
+        final int capacity;
+        volatile int count;
+        Shard(int capacity) { this.capacity = capacity; }
+    }
+
+    /** The shards; length is a power of two */
+    private final Shard[] shards;
+
+    /** The capacity bound, or Integer.MAX_VALUE if none */
+    private final int capacity;
+
+    /** Lock held by waiting takes and puts */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    /** Wait queue for waiting takes */
+    private final Condition notEmpty = waitLock.newCondition();
+
+    /** Wait queue for waiting puts */
+    private final Condition notFull = waitLock.newCondition();
+
+    /** Number of threads waiting on notEmpty */
+    private volatile int takeWaiters;
+
+    /** Number of threads waiting on notFull */
+    private volatile int putWaiters;
+
+    /**
+     * Creates a {@code ShardedBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE} and one shard per available processor,
+     * rounded up to a power of two.
+     */
+    public ShardedBlockingQueue() {
+        this(NCPU, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code ShardedBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE} and the given number of shards, rounded
+     * up to a power of two.
+     *
+     * @param shards the number of shards
+     * @throws IllegalArgumentException if {@code shards} is not greater
+     *         than zero
+     */
+    public ShardedBlockingQueue(int shards) {
+        this(shards, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code ShardedBlockingQueue} with the given (fixed)
+     * capacity and number of shards, rounded up to a power of two.
+     *
+     * @param shards the number of shards
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code shards} or
+     *         {@code capacity} is not greater than zero
+     */
+    public ShardedBlockingQueue(int shards, int capacity) {
+        if (shards <= 0 || capacity <= 0)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < shards && n < MAX_SHARDS)
+            n <<= 1;
+        this.capacity = capacity;
+        Shard[] ss = new Shard[n];
+        for (int i = 0; i < n; ++i)
+            ss[i] = new Shard((capacity == Integer.MAX_VALUE) ?
+                              Integer.MAX_VALUE :
+                              capacity / n + ((i < capacity % n) ? 1 : 0));
+        this.shards = ss;
+    }
+
+    /**
+     * Returns the probe value of the current thread, initializing it
+     * if necessary.
+     */
+    private static int probe() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        return h;
+    }
+
+    /**
+     * Tries to insert e in some shard that is not full, starting
+     * with the home shard of the current thread.
+     */
+    private boolean tryInsert(Object e) {
+        final Shard[] ss = shards;
+        final int m = ss.length - 1;
+        int h = probe();
+        // First pass: avoid both full and contended shards
+        for (int i = 0; i <= m; ++i) {
+            Shard s = ss[(h + i) & m];
+            if (s.count < s.capacity) {
+                if (s.tryLock()) {
+                    try {
+                        int c = s.count;
+                        if (c < s.capacity) {
+                            s.items.addLast(e);
+                            s.count = c + 1;
+                            return true;
+                        }
+                    } finally {
+                        s.unlock();
+                    }
+                }
+                else if (i == 0)
+                    ThreadLocalRandom.advanceProbe(h); // move home next time
+            }
+        }
+        // Second pass: wait for locks
+        for (int i = 0; i <= m; ++i) {
+            Shard s = ss[(h + i) & m];
+            if (s.count < s.capacity) {
+                s.lock();
+                try {
+                    int c = s.count;
+                    if (c < s.capacity) {
+                        s.items.addLast(e);
+                        s.count = c + 1;
+                        return true;
+                    }
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes and returns an element from the home shard of the
+     * current thread, or if empty, from another shard, or returns
+     * null if all shards are empty.
+     */
+    private Object tryRemove() {
+        final Shard[] ss = shards;
+        final int m = ss.length - 1;
+        int h = probe();
+        for (int i = 0; i <= m; ++i) {
+            Shard s = ss[(h + i) & m];
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    int c = s.count;
+                    if (c > 0) {
+                        Object x = s.items.pollFirst();
+                        s.count = c - 1;
+                        return x;
+                    }
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Signals a waiting take, if there is one. Called after inserting.
+     */
+    private void signalNotEmpty() {
+        if (takeWaiters > 0) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Signals up to k waiting puts, if there are any. Called after
+     * removing k elements.
+     */
+    private void signalNotFull(int k) {
+        if (putWaiters > 0) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                for (; k > 0 && lock.hasWaiters(notFull); k--)
+                    notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element into this queue if it is possible
+     * to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and {@code false} if this
+     * queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        if (!tryInsert(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary for space to become available.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        if (!tryInsert(e)) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                putWaiters++;
+                try {
+                    while (!tryInsert(e))
+                        notFull.await();
+                } finally {
+                    putWaiters--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary up to the specified wait time for space to become
+     * available.
+     *
+     * @return {@code true} if successful, or {@code false} if
+     *         the specified waiting time elapses before space is available
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        if (!tryInsert(e)) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                putWaiters++;
+                try {
+                    while (!tryInsert(e)) {
+                        if (nanos <= 0)
+                            return false;
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    putWaiters--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+        return true;
+    }
+
+    public E poll() {
+        Object x = tryRemove();
+        if (x == null)
+            return null;
+        signalNotFull(1);
+        @SuppressWarnings("unchecked") E e = (E)x;
+        return e;
+    }
+
+    public E take() throws InterruptedException {
+        Object x = tryRemove();
+        if (x == null) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                takeWaiters++;
+                try {
+                    while ((x = tryRemove()) == null)
+                        notEmpty.await();
+                } finally {
+                    takeWaiters--;
+                }
+                if (!isEmpty())
+                    notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull(1);
+        @SuppressWarnings("unchecked") E e = (E)x;
+        return e;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        Object x = tryRemove();
+        if (x == null) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                takeWaiters++;
+                try {
+                    while ((x = tryRemove()) == null) {
+                        if (nanos <= 0)
+                            return null;
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    takeWaiters--;
+                }
+                if (!isEmpty())
+                    notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull(1);
+        @SuppressWarnings("unchecked") E e = (E)x;
+        return e;
+    }
+
+    /**
+     * Returns, but does not remove, the element that {@link #poll}
+     * called by the current thread would most likely remove, or
+     * returns {@code null} if this queue is empty.
+     *
+     * @return an element of this queue, or {@code null} if empty
+     */
+    public E peek() {
+        final Shard[] ss = shards;
+        final int m = ss.length - 1;
+        int h = probe();
+        for (int i = 0; i <= m; ++i) {
+            Shard s = ss[(h + i) & m];
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    Object x = s.items.peekFirst();
+                    if (x != null) {
+                        @SuppressWarnings("unchecked") E e = (E)x;
+                        return e;
+                    }
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements in this queue. The value is the
+     * sum of the sizes of the shards, each read at a slightly
+     * different time.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long n = 0L;
+        for (Shard s : shards)
+            n += s.count;
+        return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    public boolean isEmpty() {
+        for (Shard s : shards) {
+            if (s.count > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking, or {@code Integer.MAX_VALUE} if there is no
+     * intrinsic limit. This is the capacity of this queue less its
+     * current {@code size}.
+     */
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        for (Shard s : shards) {
+            if (s.count > 0) {
+                boolean removed;
+                s.lock();
+                try {
+                    if (removed = s.items.remove(o))
+                        s.count = s.count - 1;
+                } finally {
+                    s.unlock();
+                }
+                if (removed) {
+                    signalNotFull(1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the element o, compared by identity, if still present.
+     */
+    void removeEq(Object o) {
+        for (Shard s : shards) {
+            if (s.count > 0) {
+                boolean removed = false;
+                s.lock();
+                try {
+                    for (Iterator<Object> it = s.items.iterator(); it.hasNext(); ) {
+                        if (it.next() == o) {
+                            it.remove();
+                            s.count = s.count - 1;
+                            removed = true;
+                            break;
+                        }
+                    }
+                } finally {
+                    s.unlock();
+                }
+                if (removed) {
+                    signalNotFull(1);
+                    return;
+                }
+            }
+        }
+    }
+
+    public boolean contains(Object o) {
+        if (o == null) return false;
+        for (Shard s : shards) {
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    if (s.items.contains(o))
+                        return true;
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        int n = 0;
+        for (Shard s : shards) {
+            s.lock();
+            try {
+                n += s.count;
+                s.items.clear();
+                s.count = 0;
+            } finally {
+                s.unlock();
+            }
+        }
+        signalNotFull(n);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        try {
+            for (Shard s : shards) {
+                if (n >= maxElements)
+                    break;
+                if (s.count > 0) {
+                    s.lock();
+                    try {
+                        Object x;
+                        while (n < maxElements &&
+                               (x = s.items.peekFirst()) != null) {
+                            @SuppressWarnings("unchecked") E e = (E)x;
+                            c.add(e);
+                            s.items.pollFirst();
+                            s.count = s.count - 1;
+                            ++n;
+                        }
+                    } finally {
+                        s.unlock();
+                    }
+                }
+            }
+        } finally {
+            if (n > 0)
+                signalNotFull(n);
+        }
+        return n;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * shard by shard.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        ArrayList<Object> list = new ArrayList<Object>();
+        for (Shard s : shards) {
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    list.addAll(s.items);
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return list.toArray();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, shard by shard. Its {@code remove} method removes the
+     * last element returned if it is still in this queue.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * Snapshot iterator.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] items;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(Object[] items) { this.items = items; }
+
+        public boolean hasNext() {
+            return cursor < items.length;
+        }
+
+        public E next() {
+            if (cursor >= items.length)
+                throw new NoSuchElementException();
+            @SuppressWarnings("unchecked") E e = (E)items[lastRet = cursor++];
+            return e;
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeEq(items[lastRet]);
+            lastRet = -1;
+        }
+    }
+}
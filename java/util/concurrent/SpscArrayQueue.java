@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.function.Supplier;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a ring
+ * buffer, for use by a single producer thread and a single consumer
+ * thread. This queue orders elements FIFO (first-in-first-out).
+ *
+ * <p>Unlike {@link ArrayBlockingQueue}, insertion and removal do not
+ * acquire a lock shared by both ends, and unlike
+ * {@link ConcurrentLinkedQueue}, no node is allocated per element.
+ * The producer and consumer positions are kept on separate cache
+ * lines, elements are published with ordered rather than volatile
+ * writes, and the producer checks for free space a block of slots at
+ * a time, so that in steady state the two threads rarely touch the
+ * same cache line. The batch operations {@link #fill fill} and
+ * {@link #drain drain} transfer many elements for the cost of one.
+ *
+ * <p><b>At most one thread may insert elements at any time.</b>
+ * Concurrent insertions by several threads corrupt the queue; use
+ * {@link MpscArrayQueue} if there may be more than one producer.
+ * Removal is designed for one consumer thread, but other threads may
+ * safely remove elements as well (for example by {@link #drainTo} or
+ * {@link #remove(Object)}), at some cost in throughput while they do.
+ * This allows a {@code SpscArrayQueue} to serve as the work queue of
+ * a {@link ThreadPoolExecutor}, typically one with a single worker
+ * thread, provided all tasks are submitted by a single thread, such
+ * as an event loop.
+ *
+ * <p>The capacity is the requested capacity rounded up to a power of
+ * two. Consumers that wait for elements block; producers that wait for
+ * space retry with exponential backoff, as described in {@link #put}.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link java.util.Collection} and
+ * {@link java.util.Iterator} interfaces. The iterator traverses a
+ * snapshot of the queue.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class SpscArrayQueue<E> extends RingBufferQueue<E> {
+
+    /**
+     * The largest number of slots the producer claims as free after a
+     * single check of the buffer.
+     */
+    private static final int MAX_LOOK_AHEAD_STEP = 4096;
+
+    /**
+     * The number of slots ahead of producerIndex that the producer
+     * checks for space, when it has used up producerLimit.
+     */
+    private final int lookAheadStep;
+
+    /**
+     * Index below which all slots are known to be free. Accessed only
+     * by the producer.
+     */
+    @sun.misc.Contended("p") private long producerLimit;
+
+    /**
+     * Creates a {@code SpscArrayQueue} with at least the given
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         one or greater than {@code 1 << 30}
+     */
+    public SpscArrayQueue(int capacity) {
+        super(capacity);
+        this.lookAheadStep = Math.min(buffer.length / 4, MAX_LOOK_AHEAD_STEP);
+    }
+
+    /**
+     * Returns true if the slot at index p is free, advancing
+     * producerLimit if the whole look-ahead block is. Since the
+     * consumer clears slots in order, a free slot implies that all
+     * slots before it are also free.
+     */
+    private boolean hasSpace(long p) {
+        final Object[] buffer = this.buffer;
+        if (p < producerLimit)
+            return true;
+        long limit = p + lookAheadStep;
+        if (U.getObjectVolatile(buffer, offset(limit)) == null) {
+            producerLimit = limit;
+            return true;
+        }
+        return U.getObjectVolatile(buffer, offset(p)) == null;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long p = producerIndex;
+        if (!hasSpace(p))
+            return false;
+        U.putOrderedObject(buffer, offset(p), e);
+        U.putOrderedLong(this, PRODUCERINDEX, p + 1);
+        U.fullFence(); // order publication before reading waiters
+        signalNotEmpty(1);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The elements are stored with ordered writes and made visible
+     * together by a single update of the producer position.
+     */
+    public int fill(Supplier<? extends E> s, int limit) {
+        checkNotNull(s);
+        final Object[] buffer = this.buffer;
+        final long p = producerIndex;
+        int n = 0;
+        try {
+            while (n < limit && hasSpace(p + n)) {
+                E e = s.get();
+                checkNotNull(e);
+                U.putOrderedObject(buffer, offset(p + n), e);
+                ++n;
+            }
+        } finally {
+            if (n > 0) {
+                U.putOrderedLong(this, PRODUCERINDEX, p + n);
+                U.fullFence();
+                signalNotEmpty(n);
+            }
+        }
+        return n;
+    }
+}
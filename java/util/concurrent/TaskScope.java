@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A scope for a group of concurrent subtasks that should finish, or be
+ * cancelled, together.  The owner of a scope {@linkplain #fork forks}
+ * subtasks to run on an {@link Executor}, then {@linkplain #join joins}
+ * them, waiting until all have completed or the scope has been
+ * {@linkplain #shutdown shut down}.  Shutting down a scope cancels,
+ * with interruption, every subtask that has not completed, so that
+ * siblings of a subtask whose outcome makes theirs irrelevant stop
+ * holding threads.  Closing a scope shuts it down and waits for the
+ * subtasks that are running to finish, so a scope used in a
+ * try-with-resources statement never outlives its block:
+ *
+ * <pre> {@code
+ * Response handle() throws ExecutionException, InterruptedException, TimeoutException {
+ *   try (TaskScope.ShutdownOnFailure scope =
+ *            new TaskScope.ShutdownOnFailure(executor, 2, TimeUnit.SECONDS)) {
+ *     Future<String>  user  = scope.fork(() -> findUser());
+ *     Future<Integer> order = scope.fork(() -> fetchOrder());
+ *     scope.join();           // wait for both, or the first failure
+ *     scope.throwIfFailed();  // propagate that failure
+ *     return new Response(user.get(), order.get());
+ *   }
+ * }}</pre>
+ *
+ * <p>The policy for shutting down is given by overriding
+ * {@link #handleComplete}, which is invoked as each subtask completes
+ * normally or exceptionally.  Two policies are provided:
+ * {@link ShutdownOnFailure} shuts down when any subtask fails, and
+ * {@link ShutdownOnSuccess} shuts down when any subtask succeeds.
+ *
+ * <p>A scope may have a deadline, after which {@link #join} shuts it
+ * down and throws {@link TimeoutException}.  Deadlines propagate: a
+ * scope created while running a subtask of another scope has the
+ * earlier of its own deadline, if any, and that of the enclosing scope.
+ * A subtask cancelled by the shutdown of its scope is interrupted, and
+ * a scope whose owner is interrupted while joining shuts down, so
+ * cancellation also propagates to nested scopes.
+ *
+ * <p>Subtasks are {@link FutureTask}s; a subtask forked after the scope
+ * has shut down is cancelled without being run.  Methods of a scope may
+ * be invoked from any thread, but are intended to be invoked by the
+ * thread that created it.
+ *
+ * @param <T> the result type of subtasks
+ * @since 1.8
+ */
+public class TaskScope<T> implements AutoCloseable {
+
+    /** The scope of the subtask the current thread is running, if any */
+    private static final ThreadLocal<TaskScope<?>> current =
+        new ThreadLocal<TaskScope<?>>();
+
+    private final Executor executor;
+
+    /** Whether this scope has a deadline */
+    private final boolean timed;
+
+    /** The System.nanoTime deadline, if timed */
+    private final long deadline;
+
+    /** Main lock guarding the following fields */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for join */
+    private final Condition finished = lock.newCondition();
+
+    /** Condition for close */
+    private final Condition terminated = lock.newCondition();
+
+    /** Subtasks forked and not yet completed */
+    private final Set<Subtask<?>> live = new HashSet<Subtask<?>>();
+
+    /** Subtasks whose run method has been entered and not exited */
+    private int running;
+
+    /** Whether shutdown has been called */
+    private boolean isShutdown;
+
+    /**
+     * Creates a new scope, with no deadline of its own, that runs
+     * subtasks on the given executor.
+     *
+     * @param executor the executor to run subtasks on
+     * @throws NullPointerException if executor is null
+     */
+    public TaskScope(Executor executor) {
+        this(executor, false, 0L);
+    }
+
+    /**
+     * Creates a new scope, with a deadline the given time from now, that
+     * runs subtasks on the given executor.
+     *
+     * @param executor the executor to run subtasks on
+     * @param timeout the time from now until the deadline
+     * @param unit the time unit of the timeout argument
+     * @throws NullPointerException if executor or unit is null
+     */
+    public TaskScope(Executor executor, long timeout, TimeUnit unit) {
+        this(executor, true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    private TaskScope(Executor executor, boolean timed, long deadline) {
+        if (executor == null)
+            throw new NullPointerException();
+        TaskScope<?> parent = current.get();
+        if (parent != null && parent.timed &&
+            (!timed || parent.deadline - deadline < 0L)) {
+            timed = true;
+            deadline = parent.deadline;
+        }
+        this.executor = executor;
+        this.timed = timed;
+        this.deadline = deadline;
+    }
+
+    /**
+     * A subtask of a scope.
+     */
+    static final class Subtask<V> extends FutureTask<V> {
+        final TaskScope<?> scope;
+
+        Subtask(TaskScope<?> scope, Callable<V> callable) {
+            super(callable);
+            this.scope = scope;
+        }
+
+        public void run() {
+            TaskScope<?> prev = current.get();
+            current.set(scope);
+            scope.enter();
+            try {
+                super.run();
+            } finally {
+                scope.exit();
+                if (prev == null)
+                    current.remove();
+                else
+                    current.set(prev);
+            }
+        }
+
+        void fail(Throwable ex) {
+            setException(ex);
+        }
+
+        protected void done() {
+            scope.onDone(this);
+        }
+    }
+
+    /**
+     * Forks a subtask that runs the given task on this scope's
+     * executor.  If the scope has been shut down, the returned future
+     * is cancelled and the task is not run.  If the executor rejects the
+     * task, the returned future completes exceptionally with the
+     * {@link RejectedExecutionException}.
+     *
+     * @param task the task to run
+     * @param <U> the result type of the task
+     * @return a future for the subtask
+     * @throws NullPointerException if task is null
+     */
+    public <U extends T> Future<U> fork(Callable<? extends U> task) {
+        if (task == null)
+            throw new NullPointerException();
+        @SuppressWarnings("unchecked")
+        Subtask<U> s = new Subtask<U>(this, (Callable<U>)task);
+        boolean run;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (run = !isShutdown)
+                live.add(s);
+        } finally {
+            lock.unlock();
+        }
+        if (!run)
+            s.cancel(false);
+        else {
+            try {
+                executor.execute(s);
+            } catch (RejectedExecutionException ex) {
+                s.fail(ex);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Waits until all subtasks have completed or this scope has been
+     * shut down.  If the scope has a deadline that passes first, shuts
+     * it down and throws {@code TimeoutException}.  If interrupted,
+     * shuts the scope down and throws {@code InterruptedException}.
+     *
+     * @return this scope
+     * @throws InterruptedException if interrupted while waiting
+     * @throws TimeoutException if the deadline passed
+     */
+    public TaskScope<T> join()
+        throws InterruptedException, TimeoutException {
+        boolean timedOut = false;
+        InterruptedException interrupted = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            while (!isShutdown && !live.isEmpty()) {
+                if (!timed)
+                    finished.await();
+                else if (finished.awaitNanos(deadline - System.nanoTime())
+                         <= 0L && !isShutdown && !live.isEmpty()) {
+                    timedOut = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException ie) {
+            interrupted = ie;
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted != null) {
+            shutdown();
+            throw interrupted;
+        }
+        if (timedOut) {
+            shutdown();
+            throw new TimeoutException();
+        }
+        return this;
+    }
+
+    /**
+     * Shuts down this scope: cancels, with interruption, every subtask
+     * that has not completed, causes later forks to be cancelled without
+     * running, and wakes up a thread waiting in {@link #join}.  Has no
+     * effect if the scope has already been shut down.
+     */
+    public void shutdown() {
+        Subtask<?>[] subtasks;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (isShutdown)
+                return;
+            isShutdown = true;
+            subtasks = live.toArray(new Subtask<?>[0]);
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Subtask<?> s : subtasks)
+            s.cancel(true);
+    }
+
+    /**
+     * Returns {@code true} if this scope has been shut down.
+     *
+     * @return {@code true} if this scope has been shut down
+     */
+    public boolean isShutdown() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return isShutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the time remaining until this scope's deadline, in the
+     * given unit, or {@code Long.MAX_VALUE} if it has no deadline.
+     * Subtasks may use it to bound blocking calls that do not respond
+     * to interruption.
+     *
+     * @param unit the time unit of the result
+     * @return the remaining time, negative or zero if the deadline has
+     *         passed
+     */
+    public long getRemainingTime(TimeUnit unit) {
+        return timed ?
+            unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) :
+            Long.MAX_VALUE;
+    }
+
+    /**
+     * Shuts down this scope, then waits until every subtask that has
+     * started running has finished.  Subtasks that had not started when
+     * the scope shut down are cancelled and never run, so they are not
+     * waited for.  If interrupted while waiting, continues to wait and
+     * then re-asserts the interrupt status, so that a subtask that
+     * ignores interruption delays, but cannot outlive, the close.  When
+     * invoked from a subtask of this scope, which cannot wait for
+     * itself, only shuts the scope down.
+     */
+    public void close() {
+        shutdown();
+        if (current.get() == this)
+            return;
+        boolean interrupted = false;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            while (running > 0) {
+                try {
+                    terminated.await();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Called from Subtask.run before running the task.
+     */
+    final void enter() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            ++running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called from Subtask.run after running the task.
+     */
+    final void exit() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (--running == 0)
+                terminated.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Invoked when a subtask completes normally or exceptionally, but
+     * not when it is cancelled, in the thread that completed it.  The
+     * given future is done, so its {@code get} methods do not block.
+     * Implementations may invoke {@link #shutdown}.  The default
+     * implementation does nothing.
+     *
+     * @param future the completed subtask
+     */
+    protected void handleComplete(Future<? extends T> future) {
+    }
+
+    /**
+     * Called from Subtask.done.
+     */
+    @SuppressWarnings("unchecked")
+    final void onDone(Subtask<?> s) {
+        if (!s.isCancelled())
+            handleComplete((Future<? extends T>)s);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (live.remove(s) && live.isEmpty())
+                finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the exception with which a done future completed, or null
+     * if it completed normally or was cancelled.
+     */
+    static Throwable exceptionOf(Future<?> f) {
+        try {
+            f.get();
+            return null;
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        } catch (CancellationException ex) {
+            return null;
+        } catch (InterruptedException ex) { // cannot happen when done
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * A scope that shuts down when any subtask fails, so that its
+     * siblings are cancelled.
+     *
+     * @since 1.8
+     */
+    public static class ShutdownOnFailure extends TaskScope<Object> {
+        private final ReentrantLock failLock = new ReentrantLock();
+        private Throwable firstException;
+
+        /**
+         * Creates a new scope that runs subtasks on the given executor.
+         *
+         * @param executor the executor to run subtasks on
+         * @throws NullPointerException if executor is null
+         */
+        public ShutdownOnFailure(Executor executor) {
+            super(executor);
+        }
+
+        /**
+         * Creates a new scope, with a deadline the given time from now,
+         * that runs subtasks on the given executor.
+         *
+         * @param executor the executor to run subtasks on
+         * @param timeout the time from now until the deadline
+         * @param unit the time unit of the timeout argument
+         * @throws NullPointerException if executor or unit is null
+         */
+        public ShutdownOnFailure(Executor executor, long timeout,
+                                 TimeUnit unit) {
+            super(executor, timeout, unit);
+        }
+
+        /**
+         * Records the first failure and shuts down.
+         */
+        protected void handleComplete(Future<?> future) {
+            Throwable ex = exceptionOf(future);
+            if (ex != null) {
+                failLock.lock();
+                try {
+                    if (firstException == null)
+                        firstException = ex;
+                } finally {
+                    failLock.unlock();
+                }
+                shutdown();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return this scope
+         */
+        public ShutdownOnFailure join()
+            throws InterruptedException, TimeoutException {
+            super.join();
+            return this;
+        }
+
+        /**
+         * Returns the exception of the first subtask that failed, or
+         * {@code null} if none has.
+         *
+         * @return the first exception, or {@code null}
+         */
+        public Throwable exception() {
+            failLock.lock();
+            try {
+                return firstException;
+            } finally {
+                failLock.unlock();
+            }
+        }
+
+        /**
+         * Throws an {@code ExecutionException} with the exception of the
+         * first subtask that failed as its cause, if any subtask has
+         * failed.
+         *
+         * @throws ExecutionException if a subtask failed
+         */
+        public void throwIfFailed() throws ExecutionException {
+            Throwable ex = exception();
+            if (ex != null)
+                throw new ExecutionException(ex);
+        }
+    }
+
+    /**
+     * A scope that captures the result of the first subtask to succeed,
+     * then shuts down so that its siblings are cancelled.
+     *
+     * @param <T> the result type
+     * @since 1.8
+     */
+    public static class ShutdownOnSuccess<T> extends TaskScope<T> {
+        private final ReentrantLock resultLock = new ReentrantLock();
+        private boolean succeeded;
+        private T firstResult;
+        private Throwable firstException;
+
+        /**
+         * Creates a new scope that runs subtasks on the given executor.
+         *
+         * @param executor the executor to run subtasks on
+         * @throws NullPointerException if executor is null
+         */
+        public ShutdownOnSuccess(Executor executor) {
+            super(executor);
+        }
+
+        /**
+         * Creates a new scope, with a deadline the given time from now,
+         * that runs subtasks on the given executor.
+         *
+         * @param executor the executor to run subtasks on
+         * @param timeout the time from now until the deadline
+         * @param unit the time unit of the timeout argument
+         * @throws NullPointerException if executor or unit is null
+         */
+        public ShutdownOnSuccess(Executor executor, long timeout,
+                                 TimeUnit unit) {
+            super(executor, timeout, unit);
+        }
+
+        /**
+         * Records the first result and shuts down, or records the first
+         * failure if no subtask has succeeded.
+         */
+        protected void handleComplete(Future<? extends T> future) {
+            Throwable ex = exceptionOf(future);
+            boolean first = false;
+            resultLock.lock();
+            try {
+                if (!succeeded) {
+                    if (ex == null) {
+                        try {
+                            firstResult = future.get();
+                            succeeded = first = true;
+                        } catch (Exception e) { // cannot happen when done
+                        }
+                    }
+                    else if (firstException == null)
+                        firstException = ex;
+                }
+            } finally {
+                resultLock.unlock();
+            }
+            if (first)
+                shutdown();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return this scope
+         */
+        public ShutdownOnSuccess<T> join()
+            throws InterruptedException, TimeoutException {
+            super.join();
+            return this;
+        }
+
+        /**
+         * Returns the result of the first subtask to succeed.
+         *
+         * @return the result
+         * @throws ExecutionException if no subtask succeeded but one
+         *         failed, with the first exception as its cause
+         * @throws IllegalStateException if no subtask has completed
+         */
+        public T result() throws ExecutionException {
+            resultLock.lock();
+            try {
+                if (succeeded)
+                    return firstResult;
+                if (firstException != null)
+                    throw new ExecutionException(firstException);
+                throw new IllegalStateException("No subtask completed");
+            } finally {
+                resultLock.unlock();
+            }
+        }
+    }
+}
@@ -791,6 +791,11 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * Contention statistics, or null if not enabled.
+     */
+    private transient volatile SynchronizerStats stats;
+
     /**
      * 返回同步状态的当前值。此操作的内存语义为{@code volatile}read。
      * Returns the current value of synchronization state.
@@ -1213,11 +1218,36 @@ public abstract class AbstractQueuedSynchronizer
      * @return {@code true} if interrupted
      */
     private final boolean parkAndCheckInterrupt() {
+        SynchronizerStats s;
+        if ((s = stats) != null)
+            s.parked();
         LockSupport.park(this);
         //检查是否中断
         return Thread.interrupted();
     }
 
+    /**
+     * Parks for at most the given time while queued, counting the park
+     * if statistics are enabled.
+     */
+    private void parkNanos(long nanosTimeout) {
+        SynchronizerStats s;
+        if ((s = stats) != null)
+            s.parked();
+        LockSupport.parkNanos(this, nanosTimeout);
+    }
+
+    /**
+     * Counts an acquisition if statistics are enabled.  Called by the
+     * acquire methods, and by subclasses in this package for
+     * acquisitions that bypass them.
+     */
+    final void recordAcquire() {
+        SynchronizerStats s;
+        if ((s = stats) != null)
+            s.acquired();
+    }
+
     /*
      * 各种获取方式，包括独占/共享和控制模式。每个都基本相同，但令人讨厌的不同。
      * 由于异常机制（包括确保在tryAcquire抛出异常时我们取消）和其他控件的相互作用，
@@ -1244,6 +1274,8 @@ public abstract class AbstractQueuedSynchronizer
      *          当等待的的过程中，如果被打断则返回true
      */
     final boolean acquireQueued(final Node node, int arg) {
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         //默认已经失败为true
         boolean failed = true;
         try {
@@ -1271,6 +1303,8 @@ public abstract class AbstractQueuedSynchronizer
             //如果失败了，取消获取节点
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1285,6 +1319,8 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         //创建排他节点
         final Node node = addWaiter(Node.EXCLUSIVE);
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         //失败默认为true
         boolean failed = true;
         try {
@@ -1309,6 +1345,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
                 //取消获取节点
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1331,6 +1369,8 @@ public abstract class AbstractQueuedSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         //将线程加入等待队列
         final Node node = addWaiter(Node.EXCLUSIVE);
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         //失败表示默认为true
         //标识在等待时间内是否获取到锁
         boolean failed = true;
@@ -1356,7 +1396,7 @@ public abstract class AbstractQueuedSynchronizer
                 if (shouldParkAfterFailedAcquire(p, node) &&
                     nanosTimeout > spinForTimeoutThreshold)
                     //阻塞线程
-                    LockSupport.parkNanos(this, nanosTimeout);
+                    parkNanos(nanosTimeout);
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
@@ -1364,6 +1404,8 @@ public abstract class AbstractQueuedSynchronizer
             //等待时间内没有获取到锁，则取消获取
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1375,6 +1417,8 @@ public abstract class AbstractQueuedSynchronizer
     private void doAcquireShared(int arg) {
         //增加共享模式的节点  shared
         final Node node = addWaiter(Node.SHARED);
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         boolean failed = true;
         try {
             boolean interrupted = false;
@@ -1402,6 +1446,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1414,6 +1460,8 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         //包装成共享锁的节点
         final Node node = addWaiter(Node.SHARED);
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         boolean failed = true;
         try {
             for (;;) {
@@ -1438,6 +1486,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1455,6 +1505,8 @@ public abstract class AbstractQueuedSynchronizer
             return false;
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.SHARED);
+        final SynchronizerStats s = stats;
+        final long start = (s == null) ? 0L : System.nanoTime();
         boolean failed = true;
         try {
             for (;;) {
@@ -1473,13 +1525,15 @@ public abstract class AbstractQueuedSynchronizer
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
                     nanosTimeout > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanosTimeout);
+                    parkNanos(nanosTimeout);
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.waited(!failed, System.nanoTime() - start);
         }
     }
 
@@ -1680,6 +1734,7 @@ public abstract class AbstractQueuedSynchronizer
             //不能尝试获取并且尝试入队，则自己中断程序
             //自宫
             selfInterrupt();
+        recordAcquire();
     }
 
     /**
@@ -1709,6 +1764,7 @@ public abstract class AbstractQueuedSynchronizer
         if (!tryAcquire(arg))
             //如果尝试获取锁调用失败，则调用doAcquireInterruptibly
             doAcquireInterruptibly(arg);
+        recordAcquire();
     }
 
     /**
@@ -1740,8 +1796,11 @@ public abstract class AbstractQueuedSynchronizer
         if (Thread.interrupted())
             throw new InterruptedException();
         //首先会尝试获取锁，如果失败则调用doAcquireNanos方法进行超时等待
-        return tryAcquire(arg) ||
-            doAcquireNanos(arg, nanosTimeout);
+        if (tryAcquire(arg) || doAcquireNanos(arg, nanosTimeout)) {
+            recordAcquire();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -1786,6 +1845,7 @@ public abstract class AbstractQueuedSynchronizer
     public final void acquireShared(int arg) {
         if (tryAcquireShared(arg) < 0)
             doAcquireShared(arg);
+        recordAcquire();
     }
 
     /**
@@ -1817,6 +1877,7 @@ public abstract class AbstractQueuedSynchronizer
         if (tryAcquireShared(arg) < 0)
             //加入等待列队
             doAcquireSharedInterruptibly(arg);
+        recordAcquire();
     }
 
     /**
@@ -1839,8 +1900,12 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquireShared(arg) >= 0 ||
-            doAcquireSharedNanos(arg, nanosTimeout);
+        if (tryAcquireShared(arg) >= 0 ||
+            doAcquireSharedNanos(arg, nanosTimeout)) {
+            recordAcquire();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -2045,6 +2110,39 @@ public abstract class AbstractQueuedSynchronizer
 
     // Instrumentation and monitoring methods
 
+    /**
+     * Enables or disables the collection of contention statistics for
+     * this synchronizer.  Enabling statistics that are already enabled
+     * has no effect; disabling them discards the counts collected, and
+     * enabling them again starts from zero.  While statistics are
+     * disabled, the acquire methods incur no cost beyond reading a
+     * field.
+     *
+     * @param enabled {@code true} to collect statistics
+     * @see #getStatistics
+     * @since 1.8
+     */
+    public final void setStatisticsEnabled(boolean enabled) {
+        if (!enabled)
+            stats = null;
+        else if (stats == null)
+            unsafe.compareAndSwapObject(this, statsOffset, null,
+                                        new SynchronizerStats(this));
+    }
+
+    /**
+     * Returns the contention statistics of this synchronizer, or
+     * {@code null} if they are not enabled.  The returned object is an
+     * MXBean suitable for registration with an {@code MBeanServer}.
+     *
+     * @return the statistics, or {@code null} if not enabled
+     * @see #setStatisticsEnabled
+     * @since 1.8
+     */
+    public final SynchronizerMXBean getStatistics() {
+        return stats;
+    }
+
     /**
      * Returns an estimate of the number of threads waiting to
      * acquire.  The value is only an estimate because the number of
@@ -2525,6 +2623,7 @@ public abstract class AbstractQueuedSynchronizer
             }
             if (acquireQueued(node, savedState) || interrupted)
                 selfInterrupt();
+            recordAcquire();
         }
 
         /*
@@ -2593,6 +2692,7 @@ public abstract class AbstractQueuedSynchronizer
             }
             if (acquireQueued(node, savedState) && interruptMode != THROW_IE)
                 interruptMode = REINTERRUPT;
+            recordAcquire();
             if (node.nextWaiter != null) // clean up if cancelled
                 unlinkCancelledWaiters();
             if (interruptMode != 0)
@@ -2633,6 +2733,7 @@ public abstract class AbstractQueuedSynchronizer
             }
             if (acquireQueued(node, savedState) && interruptMode != THROW_IE)
                 interruptMode = REINTERRUPT;
+            recordAcquire();
             if (node.nextWaiter != null)
                 unlinkCancelledWaiters();
             if (interruptMode != 0)
@@ -2674,6 +2775,7 @@ public abstract class AbstractQueuedSynchronizer
             }
             if (acquireQueued(node, savedState) && interruptMode != THROW_IE)
                 interruptMode = REINTERRUPT;
+            recordAcquire();
             if (node.nextWaiter != null)
                 unlinkCancelledWaiters();
             if (interruptMode != 0)
@@ -2718,6 +2820,7 @@ public abstract class AbstractQueuedSynchronizer
             }
             if (acquireQueued(node, savedState) && interruptMode != THROW_IE)
                 interruptMode = REINTERRUPT;
+            recordAcquire();
             if (node.nextWaiter != null)
                 unlinkCancelledWaiters();
             if (interruptMode != 0)
@@ -2818,6 +2921,7 @@ public abstract class AbstractQueuedSynchronizer
     private static final long tailOffset;
     private static final long waitStatusOffset;
     private static final long nextOffset;
+    private static final long statsOffset;
 
     static {
         try {
@@ -2832,6 +2936,8 @@ public abstract class AbstractQueuedSynchronizer
                 (Node.class.getDeclaredField("waitStatus"));
             nextOffset = unsafe.objectFieldOffset
                 (Node.class.getDeclaredField("next"));
+            statsOffset = unsafe.objectFieldOffset
+                (AbstractQueuedSynchronizer.class.getDeclaredField("stats"));
 
         } catch (Exception ex) { throw new Error(ex); }
     }
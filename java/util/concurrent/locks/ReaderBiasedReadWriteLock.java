@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReadWriteLock} whose read lock avoids writing to shared
+ * memory while no writer is active.  In read-mostly use, both
+ * {@link ReentrantReadWriteLock} and {@link StampedLock} update a single
+ * state word on every read acquisition, so the cache line holding it
+ * moves between the processors of concurrent readers.  This lock wraps a
+ * {@code ReentrantReadWriteLock} and adds <em>read bias</em>: while
+ * biased, a reader instead publishes itself in one slot of a padded
+ * table of reader slots, chosen by its thread, and so writes only to a
+ * cache line that readers on other processors seldom touch.
+ *
+ * <p>A writer first acquires the underlying write lock, which stops
+ * further readers from entering the table.  It then <em>revokes</em> the
+ * bias and waits until the table is empty.  Revocation is expensive, so
+ * after it the lock stays unbiased for a period proportional to the
+ * time it took, and readers use the underlying read lock.  The first
+ * reader to acquire the underlying read lock after that period restores
+ * the bias.  The lock therefore suits data that is read far more often
+ * than it is written; under frequent writes it behaves like, and costs
+ * slightly more than, a plain {@code ReentrantReadWriteLock}.
+ *
+ * <p>The read and write locks otherwise have the reentrancy, fairness
+ * and downgrading properties of a {@code ReentrantReadWriteLock}
+ * created with the same fairness policy.  A reader whose slot is taken
+ * by another thread, including a reentrant acquisition by the same
+ * thread, uses the underlying read lock.  The write lock supports
+ * {@link Condition}s; the read lock does not.  Because readers holding
+ * a slot are not known to the underlying lock, its monitoring methods
+ * are not offered here.
+ *
+ * <p>This technique is described in Dice and Kogan, "BRAVO -- Biased
+ * Locking for Reader-Writer Locks", USENIX ATC 2019.
+ *
+ * @since 1.8
+ */
+public class ReaderBiasedReadWriteLock implements ReadWriteLock {
+
+    /** Number of CPUS, to size the slot table */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The spacing, in array elements, between reader slots, so that
+     * slots lie on different cache lines.
+     */
+    private static final int SLOT_SHIFT = 4;
+
+    /**
+     * Multiplier applied to the duration of a revocation to obtain the
+     * period during which the bias may not be restored.
+     */
+    private static final int INHIBIT_FACTOR = 9;
+
+    /** Spins while waiting for readers before yielding */
+    private static final int REVOKE_SPINS = (NCPU > 1) ? 1 << 6 : 0;
+
+    /** The underlying lock, used by writers and unbiased readers */
+    final ReentrantReadWriteLock rwl;
+
+    /**
+     * Reader slots, each holding the thread that published itself
+     * there or null.  Slot i is at index i << SLOT_SHIFT.
+     */
+    private final Thread[] slots;
+
+    /** Mask for reader slot indices */
+    private final int mask;
+
+    /** Whether readers may use the slot table */
+    private volatile boolean readBias;
+
+    /**
+     * The System.nanoTime at which the bias may be restored.  Written
+     * while holding the write lock and read while holding the read
+     * lock.
+     */
+    private long inhibitUntil;
+
+    private final ReadLock readerLock;
+    private final WriteLock writerLock;
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with a non-fair
+     * underlying lock.
+     */
+    public ReaderBiasedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with the given
+     * fairness policy for its underlying lock.
+     *
+     * @param fair {@code true} if the underlying lock should use a fair
+     *        ordering policy
+     */
+    public ReaderBiasedReadWriteLock(boolean fair) {
+        int n = 1;
+        while (n < NCPU << 1)
+            n <<= 1;
+        rwl = new ReentrantReadWriteLock(fair);
+        slots = new Thread[(n << SLOT_SHIFT) + (1 << SLOT_SHIFT)];
+        mask = n - 1;
+        readBias = true;
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+    }
+
+    public ReaderBiasedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public ReaderBiasedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    /**
+     * Returns the offset of the current thread's slot.  Slots start one
+     * spacing into the array, clear of its header.
+     */
+    private long slotOffset(Thread t) {
+        long h = t.getId() * 0x9e3779b97f4a7c15L;
+        int i = ((int)(h >>> 32) & mask) + 1;
+        return ((long)i << (SLOT_SHIFT + ASHIFT)) + ABASE;
+    }
+
+    /**
+     * Tries to acquire read access through the slot table.
+     *
+     * @return true if acquired
+     */
+    final boolean tryFastRead() {
+        if (readBias) {
+            Thread t = Thread.currentThread();
+            long off = slotOffset(t);
+            if (U.getObjectVolatile(slots, off) == null &&
+                U.compareAndSwapObject(slots, off, null, t)) {
+                if (readBias)           // recheck after publishing
+                    return true;
+                U.putObjectVolatile(slots, off, null);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called after acquiring the underlying read lock; restores the bias
+     * if the inhibition period has passed.  The write lock may be held
+     * only by this thread, when downgrading, in which case the bias
+     * must stay revoked.
+     */
+    final void readAcquired() {
+        if (!readBias && System.nanoTime() - inhibitUntil >= 0L &&
+            !rwl.isWriteLocked())
+            readBias = true;
+    }
+
+    /**
+     * Releases read access, through the slot table if the current thread
+     * holds its slot, else through the underlying lock.
+     */
+    final void releaseRead() {
+        Thread t = Thread.currentThread();
+        long off = slotOffset(t);
+        if (U.getObjectVolatile(slots, off) == t)
+            U.putObjectVolatile(slots, off, null);
+        else
+            rwl.readLock().unlock();
+    }
+
+    /**
+     * Called after acquiring the underlying write lock; revokes the bias
+     * and waits for readers holding slots to release them, giving up at
+     * the deadline if timed.
+     *
+     * @param timed true if bounded by deadline
+     * @param deadline the System.nanoTime to give up at, if timed
+     * @return true if no reader holds a slot
+     */
+    final boolean revoke(boolean timed, long deadline) {
+        if (!readBias)
+            return true;
+        readBias = false;
+        long start = System.nanoTime();
+        Thread[] ts = slots;
+        for (int i = 1; i <= mask + 1; ++i) {
+            long off = ((long)i << (SLOT_SHIFT + ASHIFT)) + ABASE;
+            for (int spins = REVOKE_SPINS;
+                 U.getObjectVolatile(ts, off) != null; ) {
+                if (timed && deadline - System.nanoTime() <= 0L) {
+                    readBias = true;
+                    return false;
+                }
+                if (spins > 0)
+                    --spins;
+                else
+                    Thread.yield();
+            }
+        }
+        long now = System.nanoTime();
+        inhibitUntil = now + (now - start) * INHIBIT_FACTOR;
+        return true;
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock {
+        private final ReaderBiasedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(ReaderBiasedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock, waiting while the write lock is held
+         * by another thread.
+         */
+        public void lock() {
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.tryFastRead()) {
+                l.rwl.readLock().lock();
+                l.readAcquired();
+            }
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.tryFastRead()) {
+                l.rwl.readLock().lockInterruptibly();
+                l.readAcquired();
+            }
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held by
+         * another thread at the time of invocation.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            ReaderBiasedReadWriteLock l = lock;
+            if (l.tryFastRead())
+                return true;
+            if (!l.rwl.readLock().tryLock())
+                return false;
+            l.readAcquired();
+            return true;
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by another
+         * thread within the given waiting time and the current thread
+         * has not been {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ReaderBiasedReadWriteLock l = lock;
+            if (l.tryFastRead())
+                return true;
+            if (!l.rwl.readLock().tryLock(timeout, unit))
+                return false;
+            l.readAcquired();
+            return true;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.releaseRead();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock.
+         *
+         * @return a string identifying this lock
+         */
+        public String toString() {
+            return super.toString() + "[bias = " + lock.readBias + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock {
+        private final ReaderBiasedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(ReaderBiasedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the write lock, waiting until no other thread holds
+         * the read or write lock.
+         */
+        public void lock() {
+            ReaderBiasedReadWriteLock l = lock;
+            l.rwl.writeLock().lock();
+            l.revoke(false, 0L);
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.  Waiting for
+         * readers holding slots is not interruptible, but is brief.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            ReaderBiasedReadWriteLock l = lock;
+            l.rwl.writeLock().lockInterruptibly();
+            l.revoke(false, 0L);
+        }
+
+        /**
+         * Acquires the write lock only if neither the read nor the write
+         * lock is held by another thread at the time of invocation.
+         *
+         * @return {@code true} if the lock was acquired
+         */
+        public boolean tryLock() {
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.rwl.writeLock().tryLock())
+                return false;
+            if (!l.revoke(true, System.nanoTime())) {
+                l.rwl.writeLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Acquires the write lock if neither the read nor the write lock
+         * is held by another thread within the given waiting time and
+         * the current thread has not been
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.rwl.writeLock().tryLock(timeout, unit))
+                return false;
+            if (!l.revoke(true, deadline)) {
+                l.rwl.writeLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.rwl.writeLock().unlock();
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance, with the properties of a condition of
+         * {@link ReentrantReadWriteLock.WriteLock}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return new WriterCondition(lock,
+                                       lock.rwl.writeLock().newCondition());
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock
+         */
+        public boolean isHeldByCurrentThread() {
+            return lock.rwl.writeLock().isHeldByCurrentThread();
+        }
+
+        /**
+         * Returns a string identifying this lock.
+         *
+         * @return a string identifying this lock
+         */
+        public String toString() {
+            return super.toString() + "[bias = " + lock.readBias + "]";
+        }
+    }
+
+    /**
+     * A condition of the write lock.  Awaiting releases the underlying
+     * write lock, during which readers may restore the bias, so every
+     * await revokes it again before returning.
+     */
+    static final class WriterCondition implements Condition {
+        private final ReaderBiasedReadWriteLock lock;
+        private final Condition cond;
+
+        WriterCondition(ReaderBiasedReadWriteLock lock, Condition cond) {
+            this.lock = lock;
+            this.cond = cond;
+        }
+
+        public void await() throws InterruptedException {
+            try {
+                cond.await();
+            } finally {
+                lock.revoke(false, 0L);
+            }
+        }
+
+        public void awaitUninterruptibly() {
+            cond.awaitUninterruptibly();
+            lock.revoke(false, 0L);
+        }
+
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            try {
+                return cond.awaitNanos(nanosTimeout);
+            } finally {
+                lock.revoke(false, 0L);
+            }
+        }
+
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            try {
+                return cond.await(time, unit);
+            } finally {
+                lock.revoke(false, 0L);
+            }
+        }
+
+        public boolean awaitUntil(java.util.Date deadline)
+                throws InterruptedException {
+            try {
+                return cond.awaitUntil(deadline);
+            } finally {
+                lock.revoke(false, 0L);
+            }
+        }
+
+        public void signal()    { cond.signal(); }
+        public void signalAll() { cond.signalAll(); }
+    }
+
+    /**
+     * Queries if the write lock is held by any thread.
+     *
+     * @return {@code true} if any thread holds the write lock
+     */
+    public boolean isWriteLocked() {
+        return rwl.isWriteLocked();
+    }
+
+    /**
+     * Queries whether readers currently use the slot table.  This method
+     * is designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if the read lock is biased
+     */
+    public boolean isReadBiased() {
+        return readBias;
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() + "[bias = " + readBias +
+            ", " + rwl.toString() + "]";
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            ABASE = U.arrayBaseOffset(Thread[].class);
+            int scale = U.arrayIndexScale(Thread[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
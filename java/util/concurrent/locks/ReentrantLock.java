@@ -295,9 +295,10 @@ public class ReentrantLock implements Lock, java.io.Serializable {
          */
         final void lock() {
             //这里和FairSync相比，多了一个当前线程尝试获取锁。
-            if (compareAndSetState(0, 1))
+            if (compareAndSetState(0, 1)) {
                 setExclusiveOwnerThread(Thread.currentThread());
-            else
+                recordAcquire();
+            } else
                 acquire(1);
         }
 
@@ -777,6 +778,30 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         return sync.getQueueLength();
     }
 
+    /**
+     * Enables or disables the collection of contention statistics for
+     * this lock.
+     *
+     * @param enabled {@code true} to collect statistics
+     * @see AbstractQueuedSynchronizer#setStatisticsEnabled
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        sync.setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Returns the contention statistics of this lock, or {@code null}
+     * if they are not enabled.
+     *
+     * @return the statistics, or {@code null} if not enabled
+     * @see AbstractQueuedSynchronizer#getStatistics
+     * @since 1.8
+     */
+    public SynchronizerMXBean getStatistics() {
+        return sync.getStatistics();
+    }
+
     /**
      * Returns a collection containing threads that may be waiting to
      * acquire this lock.  Because the actual set of threads may change
@@ -1497,6 +1497,30 @@ public class ReentrantReadWriteLock
         return sync.getQueueLength();
     }
 
+    /**
+     * Enables or disables the collection of contention statistics for
+     * this lock.
+     *
+     * @param enabled {@code true} to collect statistics
+     * @see AbstractQueuedSynchronizer#setStatisticsEnabled
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        sync.setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Returns the contention statistics of this lock, or {@code null}
+     * if they are not enabled.
+     *
+     * @return the statistics, or {@code null} if not enabled
+     * @see AbstractQueuedSynchronizer#getStatistics
+     * @since 1.8
+     */
+    public SynchronizerMXBean getStatistics() {
+        return sync.getStatistics();
+    }
+
     /**
      * Returns a collection containing threads that may be waiting to
      * acquire either the read or write lock.  Because the actual set
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+/**
+ * The management interface for the contention statistics of a
+ * synchronizer based on {@link AbstractQueuedSynchronizer}, such as a
+ * {@link ReentrantLock}, {@link ReentrantReadWriteLock},
+ * {@link java.util.concurrent.Semaphore} or
+ * {@link java.util.concurrent.CountDownLatch}.  Statistics are
+ * collected only while enabled with
+ * {@link AbstractQueuedSynchronizer#setStatisticsEnabled}; when they are
+ * disabled, acquisitions pay only for a read of a null field.
+ *
+ * <p>An instance obtained from
+ * {@link AbstractQueuedSynchronizer#getStatistics} is an MXBean, and may
+ * be registered with the platform {@code MBeanServer}, for example:
+ *
+ * <pre> {@code
+ * ReentrantLock lock = new ReentrantLock();
+ * lock.setStatisticsEnabled(true);
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     lock.getStatistics(),
+ *     new ObjectName("java.util.concurrent.locks:type=Synchronizer,name=cacheLock"));}</pre>
+ *
+ * <p>The counts are maintained without locking, so a set of values read
+ * while the synchronizer is in use need not be mutually consistent.
+ * Acquisitions that succeed without blocking through methods such as
+ * {@link Lock#tryLock()} are not counted.
+ *
+ * @since 1.8
+ */
+public interface SynchronizerMXBean {
+
+    /**
+     * Returns the number of acquisitions made through the blocking and
+     * timed acquire methods since the statistics were enabled or last
+     * reset, including contended acquisitions and the reacquisitions
+     * made by threads returning from {@link Condition#await} and its
+     * variants.
+     *
+     * @return the number of acquisitions
+     */
+    long getAcquireCount();
+
+    /**
+     * Returns the number of acquisitions that had to queue because the
+     * synchronizer was not immediately available.
+     *
+     * @return the number of contended acquisitions
+     */
+    long getContendedAcquireCount();
+
+    /**
+     * Returns the number of times threads parked while queued to
+     * acquire the synchronizer.
+     *
+     * @return the number of parks
+     */
+    long getParkCount();
+
+    /**
+     * Returns the total time, in nanoseconds, that threads spent queued
+     * to acquire the synchronizer, including waits that timed out or
+     * were interrupted.
+     *
+     * @return the total wait time in nanoseconds
+     */
+    long getTotalWaitTime();
+
+    /**
+     * Returns the longest time, in nanoseconds, that a single thread
+     * spent queued to acquire the synchronizer.
+     *
+     * @return the maximum wait time in nanoseconds
+     */
+    long getMaxWaitTime();
+
+    /**
+     * Returns an estimate of the number of threads currently waiting to
+     * acquire the synchronizer.
+     *
+     * @return the estimated number of queued threads
+     * @see AbstractQueuedSynchronizer#getQueueLength
+     */
+    int getQueueLength();
+
+    /**
+     * Resets all counts and times to zero.
+     */
+    void reset();
+}
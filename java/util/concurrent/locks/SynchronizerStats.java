@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention statistics for an {@link AbstractQueuedSynchronizer},
+ * installed by {@link AbstractQueuedSynchronizer#setStatisticsEnabled}.
+ * Counts are kept in {@link LongAdder}s so that threads updating them
+ * concurrently do not contend with one another.
+ */
+final class SynchronizerStats implements SynchronizerMXBean {
+    private final AbstractQueuedSynchronizer sync;
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder contendedAcquires = new LongAdder();
+    private final LongAdder parks = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    SynchronizerStats(AbstractQueuedSynchronizer sync) {
+        this.sync = sync;
+    }
+
+    /** Records an acquisition. */
+    void acquired() {
+        acquires.increment();
+    }
+
+    /** Records a park while queued. */
+    void parked() {
+        parks.increment();
+    }
+
+    /**
+     * Records the end of a queued wait.
+     *
+     * @param acquired whether the wait ended in an acquisition
+     * @param nanos the time spent queued
+     */
+    void waited(boolean acquired, long nanos) {
+        if (acquired)
+            contendedAcquires.increment();
+        waitTime.add(nanos);
+        long m;
+        while (nanos > (m = maxWaitTime.get()) &&
+               !maxWaitTime.compareAndSet(m, nanos))
+            ;
+    }
+
+    public long getAcquireCount()          { return acquires.sum(); }
+    public long getContendedAcquireCount() { return contendedAcquires.sum(); }
+    public long getParkCount()             { return parks.sum(); }
+    public long getTotalWaitTime()         { return waitTime.sum(); }
+    public long getMaxWaitTime()           { return maxWaitTime.get(); }
+    public int getQueueLength()            { return sync.getQueueLength(); }
+
+    public void reset() {
+        acquires.reset();
+        contendedAcquires.reset();
+        parks.reset();
+        waitTime.reset();
+        maxWaitTime.set(0L);
+    }
+
+    public String toString() {
+        return super.toString() +
+            "[acquires = " + getAcquireCount() +
+            ", contended = " + getContendedAcquireCount() +
+            ", parks = " + getParkCount() +
+            ", waitNanos = " + getTotalWaitTime() +
+            ", maxWaitNanos = " + getMaxWaitTime() +
+            ", queued = " + getQueueLength() + "]";
+    }
+}
@@ -148,6 +148,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * Description of the operation of this stage, and where it was created;
+     * only set if {@link PipelineProfiler#ENABLED}.
+     */
+    private String profileLabel;
+
+    /**
+     * The profile of the evaluation of the pipeline, if in progress and
+     * {@link PipelineProfiler#ENABLED}; only valid for the source stage.
+     */
+    private PipelineProfiler.Report profileReport;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -167,6 +179,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        if (PipelineProfiler.ENABLED)
+            this.profileLabel = PipelineProfiler.describeStage();
     }
 
     /**
@@ -188,6 +202,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        if (PipelineProfiler.ENABLED)
+            this.profileLabel = PipelineProfiler.describeStage();
     }
 
     /**
@@ -211,9 +227,46 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         if (opIsStateful())
             sourceStage.sourceAnyStateful = true;
         this.depth = previousStage.depth + 1;
+        if (PipelineProfiler.ENABLED)
+            this.profileLabel = PipelineProfiler.describeStage();
     }
 
 
+    // Profiling methods
+
+    /**
+     * Starts profiling the evaluation of the pipeline ending in this stage.
+     *
+     * @return the report of the evaluation, or {@code null} if the current
+     *         thread is logging a report
+     */
+    @SuppressWarnings("rawtypes")
+    private PipelineProfiler.Report startProfile() {
+        if (PipelineProfiler.isReporting())
+            return null;
+        int n = 0;
+        for (AbstractPipeline p = this; p != null; p = p.previousStage)
+            n++;
+        AbstractPipeline<?, ?, ?>[] stages = new AbstractPipeline<?, ?, ?>[n];
+        String[] labels = new String[n];
+        AbstractPipeline p = this;
+        for (int i = n - 1; i >= 0; i--, p = p.previousStage) {
+            stages[i] = p;
+            labels[i] = p.profileLabel;
+        }
+        return sourceStage.profileReport =
+                new PipelineProfiler.Report(stages, labels, isParallel(),
+                                            PipelineProfiler.describeStage());
+    }
+
+    /**
+     * Returns the profile of the evaluation of this pipeline, or {@code null}
+     * if it is not being profiled.
+     */
+    final PipelineProfiler.Report getProfileReport() {
+        return sourceStage.profileReport;
+    }
+
     // Terminal evaluation methods
 
     /**
@@ -229,9 +282,15 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        PipelineProfiler.Report report = PipelineProfiler.ENABLED ? startProfile() : null;
+        try {
+            return isParallel()
+                   ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
+                   : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        } finally {
+            if (report != null)
+                report.end();
+        }
     }
 
     /**
@@ -246,18 +305,24 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        // If the last intermediate operation is stateful then
-        // evaluate directly to avoid an extra collection step
-        if (isParallel() && previousStage != null && opIsStateful()) {
-            // Set the depth of this, last, pipeline stage to zero to slice the
-            // pipeline such that this operation will not be included in the
-            // upstream slice and upstream operations will not be included
-            // in this slice
-            depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
-        }
-        else {
-            return evaluate(sourceSpliterator(0), true, generator);
+        PipelineProfiler.Report report = PipelineProfiler.ENABLED ? startProfile() : null;
+        try {
+            // If the last intermediate operation is stateful then
+            // evaluate directly to avoid an extra collection step
+            if (isParallel() && previousStage != null && opIsStateful()) {
+                // Set the depth of this, last, pipeline stage to zero to slice the
+                // pipeline such that this operation will not be included in the
+                // upstream slice and upstream operations will not be included
+                // in this slice
+                depth = 0;
+                return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            }
+            else {
+                return evaluate(sourceSpliterator(0), true, generator);
+            }
+        } finally {
+            if (report != null)
+                report.end();
         }
     }
 
@@ -513,12 +578,28 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
+        if (PipelineProfiler.ENABLED && sourceStage.profileReport != null)
+            return wrapCountingSink(sourceStage.profileReport, sink);
         for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
         }
         return (Sink<P_IN>) sink;
     }
 
+    /**
+     * Like {@link #wrapSink}, also counting the elements output by each
+     * stage.
+     */
+    @SuppressWarnings({"rawtypes","unchecked"})
+    private <P_IN> Sink<P_IN> wrapCountingSink(PipelineProfiler.Report report, Sink<E_OUT> sink) {
+        Sink s = sink;
+        AbstractPipeline p;
+        for (p = AbstractPipeline.this; p.depth > 0; p = p.previousStage) {
+            s = p.opWrapSink(p.previousStage.combinedFlags, report.counting(p, s));
+        }
+        return (Sink<P_IN>) report.counting(p, s);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     final <P_IN> Spliterator<E_OUT> wrapSpliterator(Spliterator<P_IN> sourceSpliterator) {
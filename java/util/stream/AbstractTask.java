@@ -313,10 +313,29 @@ abstract class AbstractTask<P_IN, P_OUT, R,
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
-        task.setLocalResult(task.doLeaf());
+        task.setLocalResult(PipelineProfiler.ENABLED ? task.doProfiledLeaf() : task.doLeaf());
         task.tryComplete();
     }
 
+    /**
+     * Calls {@code doLeaf}, recording its duration, the depth of this task
+     * and the size estimate of its spliterator in the profile of the
+     * pipeline, if any.
+     */
+    final R doProfiledLeaf() {
+        PipelineProfiler.Report report = PipelineProfiler.reportOf(helper);
+        if (report == null)
+            return doLeaf();
+        int depth = 0;
+        for (K p = getParent(); p != null; p = p.getParent())
+            depth++;
+        long sizeEstimate = spliterator.estimateSize();
+        long start = System.nanoTime();
+        R result = doLeaf();
+        report.leaf(depth, sizeEstimate, System.nanoTime() - start);
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -35,9 +35,12 @@ import java.util.DoubleSummaryStatistics;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IntIntMap;
 import java.util.IntSummaryStatistics;
 import java.util.Iterator;
 import java.util.List;
+import java.util.LongLongMap;
+import java.util.LongObjectMap;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Objects;
@@ -51,6 +54,8 @@ import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -253,6 +258,50 @@ public final class Collectors {
                                    CH_UNORDERED_ID);
     }
 
+    /**
+     * Returns a {@code Collector} that applies an {@code int}-producing
+     * mapping function to the input elements and accumulates the results,
+     * in encounter order, into a new {@code int[]}.  The values are never
+     * boxed.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the value to collect
+     * @return a {@code Collector} which collects the mapped values into an
+     * {@code int[]}, in encounter order
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, int[]> toIntArray(ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<T, SpinedBuffer.OfInt, int[]>(
+                SpinedBuffer.OfInt::new,
+                (b, t) -> b.accept(mapper.applyAsInt(t)),
+                (left, right) -> { right.forEach((IntConsumer) left); return left; },
+                SpinedBuffer.OfInt::asPrimitiveArray, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that applies a {@code long}-producing
+     * mapping function to the input elements and accumulates the results,
+     * in encounter order, into a new {@code long[]}.  The values are never
+     * boxed.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the value to collect
+     * @return a {@code Collector} which collects the mapped values into a
+     * {@code long[]}, in encounter order
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, long[]> toLongArray(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<T, SpinedBuffer.OfLong, long[]>(
+                SpinedBuffer.OfLong::new,
+                (b, t) -> b.accept(mapper.applyAsLong(t)),
+                (left, right) -> { right.forEach((LongConsumer) left); return left; },
+                SpinedBuffer.OfLong::asPrimitiveArray, CH_NOID);
+    }
+
     /**
      * Returns a {@code Collector} that concatenates the input elements into a
      * {@code String}, in encounter order.
@@ -928,6 +977,175 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and returning the
+     * results in a {@link LongObjectMap}.  Keys are never boxed.
+     *
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByLong(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, LongObjectMap<List<T>>>
+    groupingByLong(ToLongFunction<? super T> classifier) {
+        return groupingByLong(classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by"
+     * operation on input elements of type {@code T}, grouping elements
+     * according to a {@code long}-valued classification function, and then
+     * performing a reduction operation on the values associated with a
+     * given key using the specified downstream {@code Collector}.  The
+     * result is a {@link LongObjectMap}, so keys are never boxed.
+     *
+     * <p>For counting or summing per key, {@link #countingByLong} and
+     * {@link #summingLongByLong} avoid a holder object per key as well.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function operates by merging the keys
+     * from one map into another.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, LongObjectMap<D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                     Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        BiConsumer<LongObjectMap<A>, T> accumulator = (m, t) -> {
+            A container = m.computeIfAbsent(classifier.applyAsLong(t),
+                                            k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<LongObjectMap<A>> merger = (left, right) -> {
+            right.forEach((k, v) -> {
+                A a = left.putIfAbsent(k, v);
+                if (a != null)
+                    left.put(k, downstreamCombiner.apply(a, v));
+            });
+            return left;
+        };
+
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<>(LongObjectMap::new, accumulator, merger, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<LongObjectMap<A>, LongObjectMap<D>> finisher = intermediate -> {
+                for (long k : intermediate.keys())
+                    intermediate.put(k, downstreamFinisher.apply(intermediate.get(k)));
+                @SuppressWarnings("unchecked")
+                LongObjectMap<D> castResult = (LongObjectMap<D>) (LongObjectMap<?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(LongObjectMap::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} that counts the input elements for each
+     * {@code int} key produced by a classification function, returning an
+     * {@link IntIntMap} from keys to counts.  This computes the same
+     * counts as {@code groupingBy(classifier, counting())} without boxing
+     * keys or counts or allocating a holder per key.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} that counts the input elements per key
+     * @throws ArithmeticException from the collection if a count exceeds
+     *         {@code Integer.MAX_VALUE}
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, IntIntMap>
+    countingByInt(ToIntFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        return new CollectorImpl<>(
+                IntIntMap::new,
+                (m, t) -> m.merge(classifier.applyAsInt(t), 1, Math::addExact),
+                (left, right) -> {
+                    right.forEach((k, v) -> left.merge(k, v, Math::addExact));
+                    return left;
+                },
+                CH_UNORDERED_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that counts the input elements for each
+     * {@code long} key produced by a classification function, returning a
+     * {@link LongLongMap} from keys to counts.  This computes the same
+     * counts as {@code groupingBy(classifier, counting())} without boxing
+     * keys or counts or allocating a holder per key.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} that counts the input elements per key
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, LongLongMap>
+    countingByLong(ToLongFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        return new CollectorImpl<>(
+                LongLongMap::new,
+                (m, t) -> m.merge(classifier.applyAsLong(t), 1L, Long::sum),
+                (left, right) -> {
+                    right.forEach((k, v) -> left.merge(k, v, Long::sum));
+                    return left;
+                },
+                CH_UNORDERED_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that sums a {@code long}-valued function
+     * of the input elements for each {@code long} key produced by a
+     * classification function, returning a {@link LongLongMap} from keys
+     * to sums.  This computes the same sums as
+     * {@code groupingBy(classifier, summingLong(mapper))} without boxing
+     * keys or sums or allocating a holder per key.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} that sums the mapped values per key
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, LongLongMap>
+    summingLongByLong(ToLongFunction<? super T> classifier,
+                      ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<>(
+                LongLongMap::new,
+                (m, t) -> m.merge(classifier.applyAsLong(t), mapper.applyAsLong(t), Long::sum),
+                (left, right) -> {
+                    right.forEach((k, v) -> left.merge(k, v, Long::sum));
+                    return left;
+                },
+                CH_UNORDERED_ID);
+    }
+
     /**
      * Returns a concurrent {@code Collector} implementing a "group by"
      * operation on input elements of type {@code T}, grouping elements
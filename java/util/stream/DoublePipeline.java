@@ -356,6 +356,16 @@ abstract class DoublePipeline<E_IN>
         return SortedOps.makeDouble(this);
     }
 
+    @Override
+    public final Stream<double[]> chunked(int size) {
+        return WindowOps.makeChunkedDouble(this, size);
+    }
+
+    @Override
+    public final Stream<double[]> sliding(int size) {
+        return WindowOps.makeSlidingDouble(this, size);
+    }
+
     @Override
     public final DoubleStream distinct() {
         // While functional and quick to implement, this approach is not very efficient.
@@ -192,6 +192,59 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleStream sorted();
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * arrays of {@code size} consecutive elements, the last of which may have
+     * fewer elements.
+     *
+     * <p>Sequential evaluation buffers at most one chunk, and passes each
+     * chunk on as soon as it is complete.  Chunk boundaries follow the
+     * encounter order of the stream, if it has one, also in parallel
+     * evaluation, which buffers all elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation groups the elements of {@code boxed()}
+     * with {@link Stream#chunked(int)} and copies each chunk into an array.
+     *
+     * @param size the number of elements of each chunk but the last
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<double[]> chunked(int size) {
+        return boxed().chunked(size)
+                      .map(w -> w.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /**
+     * Returns a stream consisting of every array of {@code size} consecutive
+     * elements of this stream, in order of their first element.  If this
+     * stream has fewer than {@code size} elements, the resulting stream is
+     * empty.
+     *
+     * <p>Sequential evaluation buffers at most one window.  Parallel
+     * evaluation buffers all elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation groups the elements of {@code boxed()}
+     * with {@link Stream#sliding(int)} and copies each window into an array.
+     *
+     * @param size the number of elements of each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<double[]> sliding(int size) {
+        return boxed().sliding(size)
+                      .map(w -> w.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
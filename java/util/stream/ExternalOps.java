@@ -0,0 +1,627 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for sorting and removing duplicates from reference
+ * streams within a bounded number of buffered elements, spilling to
+ * temporary files beyond it.
+ *
+ * <p>Sorting buffers up to the budget, then sorts the buffer and writes it
+ * as a run to a temporary file.  At the end, runs are merged with a k-way
+ * merge of at most {@code MERGE_FAN_IN} runs at a time: while there are
+ * more runs than that, consecutive groups of runs are merged into longer
+ * runs, and the last pass merges as elements are pushed downstream.
+ *
+ * <p>Removing duplicates keeps elements seen in a {@code HashSet} up to the
+ * budget, then hash-partitions the set and all further elements into
+ * temporary files, each of which is deduplicated separately at the end.
+ * A partition found to hold more distinct elements than the budget is
+ * itself partitioned again, with a different hash function, up to
+ * {@code MAX_PARTITION_DEPTH} levels; beyond that, a partition is
+ * deduplicated in memory regardless of the budget.
+ *
+ * <p>Elements are written with Java serialization, so must be
+ * {@link java.io.Serializable} if a spill occurs; failures to write or read
+ * temporary files are reported as {@link UncheckedIOException}.  A file is
+ * open only while it is being written or read, and is deleted once
+ * consumed.  If evaluation fails, all temporary files of the operation are
+ * deleted before the exception propagates; files left by an evaluation
+ * that is abandoned, for example because an upstream operation threw, are
+ * deleted when the stream is closed.
+ *
+ * <p>Only sequential evaluation spills.  Parallel evaluation buffers all
+ * elements, as {@link SortedOps} and {@link DistinctOps} do.
+ *
+ * @since 1.8
+ */
+final class ExternalOps {
+
+    private ExternalOps() { }
+
+    /** Number of objects written to a stream between resets of its handle table */
+    private static final int RESET_INTERVAL = 1 << 10;
+
+    /** Maximum number of runs merged at once */
+    private static final int MERGE_FAN_IN = 1 << 6;
+
+    /** Number of bits of the partition index used by distinct after spilling */
+    private static final int PARTITION_BITS = 6;
+
+    /** Number of partitions used by distinct after spilling */
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    /** Maximum number of times a partition is partitioned again */
+    private static final int MAX_PARTITION_DEPTH = 4;
+
+    /**
+     * Appends a "sorted" operation with the given budget to the provided
+     * stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param maxBuffered the maximum number of elements to buffer in memory
+     * @return the new stream
+     */
+    static <T> Stream<T> makeSorted(AbstractPipeline<?, T, ?> upstream,
+                                    Comparator<? super T> comparator,
+                                    int maxBuffered) {
+        Objects.requireNonNull(comparator);
+        if (maxBuffered <= 0)
+            throw new IllegalArgumentException("maxBuffered: " + maxBuffered);
+        SpillFiles files = new SpillFiles();
+        return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
+                                                      StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<T> sink) {
+                return new SpillingSortSink<>(Objects.requireNonNull(sink),
+                                              comparator, maxBuffered, files);
+            }
+
+            @Override
+            <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<T[]> generator) {
+                T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
+                Arrays.parallelSort(flattenedData, comparator);
+                return Nodes.node(flattenedData);
+            }
+        }.onClose(files);
+    }
+
+    /**
+     * Appends a "distinct" operation with the given budget to the provided
+     * stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param maxBuffered the maximum number of distinct elements to keep in
+     *        memory
+     * @return the new stream
+     */
+    static <T> Stream<T> makeDistinct(AbstractPipeline<?, T, ?> upstream,
+                                      int maxBuffered) {
+        if (maxBuffered <= 0)
+            throw new IllegalArgumentException("maxBuffered: " + maxBuffered);
+        SpillFiles files = new SpillFiles();
+        return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
+                                                      StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED
+                                                      | StreamOpFlag.NOT_ORDERED) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<T> sink) {
+                return new SpillingDistinctSink<>(Objects.requireNonNull(sink),
+                                                  maxBuffered, files);
+            }
+
+            @Override
+            <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<T[]> generator) {
+                TerminalOp<T, LinkedHashSet<T>> reduceOp
+                        = ReduceOps.<T, LinkedHashSet<T>>makeRef(LinkedHashSet::new, LinkedHashSet::add,
+                                                                 LinkedHashSet::addAll);
+                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator));
+            }
+        }.onClose(files);
+    }
+
+    /**
+     * The spill files of an operation that have not yet been deleted.
+     * Running it deletes them all; it is registered as a close handler of
+     * the stream and run by sinks when evaluation ends or fails.
+     */
+    static final class SpillFiles implements Runnable {
+        private final Set<SpillFile> files = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Deletes all files, throwing the first failure to do so.
+         */
+        @Override
+        public void run() {
+            UncheckedIOException failure = null;
+            for (SpillFile f : files) {
+                try {
+                    f.close();
+                } catch (UncheckedIOException e) {
+                    if (failure == null)
+                        failure = e;
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        /**
+         * Deletes all files after a failure, adding any failure to do so
+         * to the given exception as a suppressed exception.
+         */
+        void abort(Throwable cause) {
+            try {
+                run();
+            } catch (UncheckedIOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * A temporary file of serialized elements, deleted when closed.  The
+     * file is open only while it is written to, until {@link #rewind}, and
+     * while it is read from, until its last element has been read.
+     */
+    static final class SpillFile implements AutoCloseable {
+        private final SpillFiles owner;
+        private final Path path;
+        private ObjectOutputStream out;
+        private ObjectInputStream in;
+        private long count;
+        private long remaining;
+        private boolean closed;
+
+        SpillFile(SpillFiles owner) {
+            try {
+                path = Files.createTempFile("stream", ".spill");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.owner = owner;
+            owner.files.add(this);
+        }
+
+        void write(Object o) {
+            try {
+                if (out == null)
+                    out = new ObjectOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(path)));
+                out.writeObject(o);
+                if ((++count & (RESET_INTERVAL - 1)) == 0)
+                    out.reset();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Number of objects written. */
+        long count() {
+            return count;
+        }
+
+        /**
+         * Finishes writing, or abandons reading; elements may then be read
+         * from the start with read.
+         */
+        void rewind() {
+            try {
+                if (out != null) {
+                    ObjectOutputStream o = out;
+                    out = null;
+                    o.close();
+                }
+                if (in != null) {
+                    ObjectInputStream i = in;
+                    in = null;
+                    i.close();
+                }
+                remaining = count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        Object read() {
+            try {
+                if (in == null)
+                    in = new ObjectInputStream(new BufferedInputStream(
+                        Files.newInputStream(path)));
+                Object o = in.readObject();
+                if (--remaining == 0) {
+                    ObjectInputStream i = in;
+                    in = null;
+                    i.close();
+                }
+                return o;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new UncheckedIOException(new IOException(e));
+            }
+        }
+
+        /**
+         * Closes any open stream and deletes the file.  Has no effect if
+         * already closed.
+         */
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            owner.files.remove(this);
+            IOException failure = null;
+            for (AutoCloseable c : new AutoCloseable[] { out, in }) {
+                if (c == null)
+                    continue;
+                try {
+                    c.close();
+                } catch (Exception e) {
+                    if (failure == null)
+                        failure = (e instanceof IOException) ? (IOException) e
+                                                             : new IOException(e);
+                }
+            }
+            out = null;
+            in = null;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+            if (failure != null)
+                throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * {@link Sink} for external sorting of reference streams.
+     */
+    private static final class SpillingSortSink<T> extends Sink.ChainedReference<T, T> {
+        private final Comparator<? super T> comparator;
+        private final int maxBuffered;
+        private final SpillFiles files;
+        private boolean cancellationWasRequested;
+        private ArrayList<T> list;
+        private List<SpillFile> runs;
+
+        SpillingSortSink(Sink<? super T> sink, Comparator<? super T> comparator,
+                         int maxBuffered, SpillFiles files) {
+            super(sink);
+            this.comparator = comparator;
+            this.maxBuffered = maxBuffered;
+            this.files = files;
+        }
+
+        /**
+         * Records is cancellation is requested so short-circuiting behaviour
+         * can be preserved when the sorted elements are pushed downstream.
+         *
+         * @return false, as this sink never short-circuits.
+         */
+        @Override
+        public boolean cancellationRequested() {
+            cancellationWasRequested = true;
+            return false;
+        }
+
+        @Override
+        public void begin(long size) {
+            list = new ArrayList<>((size >= 0 && size < maxBuffered) ? (int) size : 16);
+            runs = new ArrayList<>();
+        }
+
+        @Override
+        public void accept(T t) {
+            list.add(t);
+            if (list.size() >= maxBuffered) {
+                try {
+                    spill();
+                } catch (RuntimeException | Error e) {
+                    files.abort(e);
+                    throw e;
+                }
+            }
+        }
+
+        private void spill() {
+            list.sort(comparator);
+            SpillFile run = new SpillFile(files);
+            runs.add(run);
+            for (T t : list)
+                run.write(t);
+            run.rewind();
+            list.clear();
+        }
+
+        @Override
+        public void end() {
+            try {
+                if (runs.isEmpty())
+                    pushBuffered();
+                else {
+                    if (!list.isEmpty())
+                        spill();
+                    list = null;
+                    while (runs.size() > MERGE_FAN_IN)
+                        runs = mergePass(runs);
+                    merge(runs, null);
+                }
+            } catch (RuntimeException | Error e) {
+                files.abort(e);
+                throw e;
+            } finally {
+                list = null;
+                runs = null;
+            }
+            files.run();
+        }
+
+        private void pushBuffered() {
+            list.sort(comparator);
+            downstream.begin(list.size());
+            if (!cancellationWasRequested) {
+                list.forEach(downstream::accept);
+            }
+            else {
+                for (T t : list) {
+                    if (downstream.cancellationRequested()) break;
+                    downstream.accept(t);
+                }
+            }
+            downstream.end();
+        }
+
+        /**
+         * Merges each group of MERGE_FAN_IN consecutive runs into one,
+         * keeping the order of runs so that the sort remains stable.
+         */
+        private List<SpillFile> mergePass(List<SpillFile> runs) {
+            List<SpillFile> merged = new ArrayList<>((runs.size() + MERGE_FAN_IN - 1) / MERGE_FAN_IN);
+            for (int i = 0; i < runs.size(); i += MERGE_FAN_IN) {
+                List<SpillFile> group = runs.subList(i, Math.min(i + MERGE_FAN_IN, runs.size()));
+                if (group.size() == 1)
+                    merged.add(group.get(0));
+                else {
+                    SpillFile run = new SpillFile(files);
+                    merged.add(run);
+                    merge(group, run);
+                    run.rewind();
+                }
+            }
+            return merged;
+        }
+
+        /** A run's next element, ordered by element then by run. */
+        private static final class Head<T> {
+            final T element;
+            final int run;
+            Head(T element, int run) { this.element = element; this.run = run; }
+        }
+
+        /**
+         * Merges the given runs into the given run, or downstream if it is
+         * null, then deletes them.
+         */
+        @SuppressWarnings("unchecked")
+        private void merge(List<SpillFile> group, SpillFile target) {
+            PriorityQueue<Head<T>> heads = new PriorityQueue<>(group.size(), (a, b) -> {
+                int c = comparator.compare(a.element, b.element);
+                return (c != 0) ? c : Integer.compare(a.run, b.run);
+            });
+            for (int i = 0; i < group.size(); i++)
+                heads.add(new Head<>((T) group.get(i).read(), i));
+            if (target == null)
+                downstream.begin(-1);
+            Head<T> h;
+            while ((h = heads.poll()) != null) {
+                if (target != null)
+                    target.write(h.element);
+                else if (cancellationWasRequested && downstream.cancellationRequested())
+                    break;
+                else
+                    downstream.accept(h.element);
+                SpillFile run = group.get(h.run);
+                if (run.hasNext())
+                    heads.add(new Head<>((T) run.read(), h.run));
+            }
+            if (target == null)
+                downstream.end();
+            for (SpillFile run : group)
+                run.close();
+        }
+    }
+
+    /**
+     * {@link Sink} for removing duplicates from reference streams with
+     * partitioned spilling.  Until the first spill, elements are passed
+     * downstream as soon as they are first seen, in encounter order.
+     * After it, each element is written, flagged with whether it has
+     * already been passed downstream, to the partition for its hash code,
+     * and the new elements of each partition are passed downstream
+     * at the end, in partition order.  Since the elements passed
+     * downstream before the first spill are written first, the first
+     * record of an element in its partition has the right flag.
+     */
+    private static final class SpillingDistinctSink<T> extends Sink.ChainedReference<T, T> {
+        private final int maxBuffered;
+        private final SpillFiles files;
+        private HashSet<T> seen;
+        private SpillFile[] partitions;
+
+        SpillingDistinctSink(Sink<? super T> sink, int maxBuffered,
+                             SpillFiles files) {
+            super(sink);
+            this.maxBuffered = maxBuffered;
+            this.files = files;
+        }
+
+        /**
+         * Returns the partition of the given element at the given depth of
+         * partitioning, from the high bits of its hash code multiplied by an
+         * odd constant that differs for each depth.
+         */
+        private static int partition(Object t, int depth) {
+            int h = Objects.hashCode(t) * (0x9e3779b9 + (depth << 1));
+            return h >>> (Integer.SIZE - PARTITION_BITS);
+        }
+
+        @Override
+        public void begin(long size) {
+            seen = new HashSet<>();
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            try {
+                if (partitions != null)
+                    spill(partitions, 0, false, t);
+                else if (seen.add(t)) {
+                    downstream.accept(t);
+                    if (seen.size() >= maxBuffered) {
+                        partitions = new SpillFile[PARTITIONS];
+                        for (T s : seen)
+                            spill(partitions, 0, true, s);
+                        seen = null;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                files.abort(e);
+                throw e;
+            }
+        }
+
+        private void spill(SpillFile[] ps, int depth, boolean emitted, Object t) {
+            int i = partition(t, depth);
+            SpillFile f = ps[i];
+            if (f == null)
+                ps[i] = f = new SpillFile(files);
+            f.write(emitted);
+            f.write(t);
+        }
+
+        @Override
+        public void end() {
+            SpillFile[] ps = partitions;
+            partitions = null;
+            seen = null;
+            if (ps != null) {
+                try {
+                    drainAll(ps, 0);
+                } catch (RuntimeException | Error e) {
+                    files.abort(e);
+                    throw e;
+                }
+                files.run();
+            }
+            downstream.end();
+        }
+
+        private void drainAll(SpillFile[] ps, int depth) {
+            for (SpillFile f : ps) {
+                if (f != null) {
+                    f.rewind();
+                    drain(f, depth);
+                }
+            }
+        }
+
+        /**
+         * Passes the new elements of the given partition downstream, or
+         * partitions it again if it holds more distinct elements than the
+         * budget, then deletes it.
+         */
+        @SuppressWarnings("unchecked")
+        private void drain(SpillFile f, int depth) {
+            Map<T, Boolean> firstFlags = new LinkedHashMap<>();
+            boolean overflow = false;
+            while (f.hasNext()) {
+                Boolean emitted = (Boolean) f.read();
+                T t = (T) f.read();
+                if (firstFlags.putIfAbsent(t, emitted) == null &&
+                    firstFlags.size() > maxBuffered &&
+                    depth < MAX_PARTITION_DEPTH) {
+                    overflow = true;
+                    break;
+                }
+            }
+            if (!overflow) {
+                f.close();
+                for (Map.Entry<T, Boolean> e : firstFlags.entrySet()) {
+                    if (!e.getValue() && !downstream.cancellationRequested())
+                        downstream.accept(e.getKey());
+                }
+                return;
+            }
+
+            firstFlags = null;
+            SpillFile[] ps = new SpillFile[PARTITIONS];
+            f.rewind();
+            while (f.hasNext()) {
+                boolean emitted = (Boolean) f.read();
+                spill(ps, depth + 1, emitted, f.read());
+            }
+            f.close();
+            drainAll(ps, depth + 1);
+        }
+    }
+}
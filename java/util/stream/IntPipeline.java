@@ -390,6 +390,16 @@ abstract class IntPipeline<E_IN>
         return SortedOps.makeInt(this);
     }
 
+    @Override
+    public final Stream<int[]> chunked(int size) {
+        return WindowOps.makeChunkedInt(this, size);
+    }
+
+    @Override
+    public final Stream<int[]> sliding(int size) {
+        return WindowOps.makeSlidingInt(this, size);
+    }
+
     @Override
     public final IntStream distinct() {
         // While functional and quick to implement, this approach is not very efficient.
@@ -371,6 +371,16 @@ abstract class LongPipeline<E_IN>
         return SortedOps.makeLong(this);
     }
 
+    @Override
+    public final Stream<long[]> chunked(int size) {
+        return WindowOps.makeChunkedLong(this, size);
+    }
+
+    @Override
+    public final Stream<long[]> sliding(int size) {
+        return WindowOps.makeSlidingLong(this, size);
+    }
+
     @Override
     public final LongStream distinct() {
         // While functional and quick to implement, this approach is not very efficient.
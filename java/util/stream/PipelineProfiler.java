@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import sun.util.logging.PlatformLogger;
+
+/**
+ * Utility class for profiling the evaluation of stream pipelines.  Profiling
+ * is turned on or off based on whether the system property
+ * {@code org.openjdk.java.util.stream.profile} is considered {@code true}
+ * according to {@link Boolean#getBoolean(String)}.  This should normally be
+ * turned off for production use.
+ *
+ * <p>When profiling is on, each evaluation of a pipeline by a terminal
+ * operation, or by {@code toArray}, is described by a {@link Report}
+ * that is logged at {@code INFO} level to the {@code java.util.stream}
+ * {@link PlatformLogger} when the evaluation completes.  A report holds:
+ * <ul>
+ * <li>for each stage, the number of elements it passed on, where the stage
+ * was evaluated by pushing elements through a {@link Sink} (so not for a
+ * stateful operation evaluated in parallel);</li>
+ * <li>the elapsed time of the evaluation;</li>
+ * <li>for parallel evaluation, the number of leaf tasks of the
+ * {@link AbstractTask} split tree, the minimum and maximum depth of the
+ * leaves, the minimum and maximum size estimate of their spliterators, and
+ * the minimum, average and maximum time spent in their {@code doLeaf}.</li>
+ * </ul>
+ * Time is not broken down by stage, as the stages of a pipeline segment
+ * process each element in turn within one call chain.
+ *
+ * @apiNote
+ * Typical usage is to run an application with
+ * {@code -Dorg.openjdk.java.util.stream.profile=true} and compare the leaf
+ * figures of a slow parallel pipeline: a wide range of depths or sizes
+ * points at a poorly splitting spliterator, and leaves that are too short
+ * point at too fine a split.
+ *
+ * @since 1.8
+ */
+final class PipelineProfiler {
+    private static final String PROFILE_PROPERTY = "org.openjdk.java.util.stream.profile";
+
+    /** Should pipelines be profiled? */
+    static final boolean ENABLED = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(PROFILE_PROPERTY));
+
+    private static final String STREAM_PACKAGE = "java.util.stream.";
+
+    /**
+     * Set while a report is logged, so that pipelines evaluated by the
+     * logging framework are not themselves reported.
+     */
+    private static final ThreadLocal<Boolean> REPORTING = new ThreadLocal<>();
+
+    private PipelineProfiler() { }
+
+    /**
+     * Returns whether the current thread is logging a report.
+     */
+    static boolean isReporting() {
+        return REPORTING.get() != null;
+    }
+
+    /**
+     * Describes the stream operation being constructed by the caller, as the
+     * name of the outermost method of this package on the call stack and the
+     * frame calling it, for instance {@code "map at Foo.bar(Foo.java:42)"}.
+     *
+     * @return a description of the stage being constructed
+     */
+    static String describeStage() {
+        StackTraceElement[] frames = new Throwable().getStackTrace();
+        String op = "?";
+        for (StackTraceElement f : frames) {
+            if (!f.getClassName().startsWith(STREAM_PACKAGE))
+                return op + " at " + f;
+            String m = f.getMethodName();
+            if (!m.startsWith("<") && !m.equals("describeStage"))
+                op = m;
+        }
+        return op;
+    }
+
+    /**
+     * Returns the report for the pipeline evaluated by the given helper, or
+     * {@code null} if there is none.
+     */
+    static Report reportOf(PipelineHelper<?> helper) {
+        return (helper instanceof AbstractPipeline)
+               ? ((AbstractPipeline<?, ?, ?>) helper).getProfileReport()
+               : null;
+    }
+
+    /**
+     * Figures for one evaluation of a pipeline.
+     */
+    static final class Report {
+        private final AbstractPipeline<?, ?, ?>[] stages;
+        private final String[] labels;
+        private final LongAdder[] counts;
+        /** Whether the output of each stage is counted; set before evaluation */
+        private final boolean[] counted;
+        private final boolean parallel;
+        private final String terminal;
+        private final long startNanos;
+
+        private final LongAdder leaves = new LongAdder();
+        private final LongAdder leafNanos = new LongAdder();
+        private final LongAccumulator minLeafNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxLeafNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final LongAccumulator minDepth = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxDepth = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final LongAccumulator minSize = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxSize = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        /**
+         * Starts a report on the evaluation of a pipeline.
+         *
+         * @param stages the stages of the pipeline, from the source onwards
+         * @param labels the descriptions of the stages
+         * @param parallel whether the pipeline is evaluated in parallel
+         * @param terminal a description of the terminal operation
+         */
+        Report(AbstractPipeline<?, ?, ?>[] stages, String[] labels,
+               boolean parallel, String terminal) {
+            this.stages = stages;
+            this.labels = labels;
+            this.counts = new LongAdder[stages.length];
+            this.counted = new boolean[stages.length];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = new LongAdder();
+            this.parallel = parallel;
+            this.terminal = terminal;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Wraps a sink receiving the output of the given stage so as to count
+         * the elements passed to it.
+         *
+         * @param stage the stage whose output is counted
+         * @param sink the sink receiving the output of that stage
+         * @return the counting sink
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Sink counting(AbstractPipeline<?, ?, ?> stage, Sink sink) {
+            LongAdder count = null;
+            for (int i = 0; i < stages.length; i++) {
+                if (stages[i] == stage) {
+                    count = counts[i];
+                    counted[i] = true;
+                    break;
+                }
+            }
+            if (count == null)
+                return sink;
+            switch (stage.getOutputShape()) {
+                case INT_VALUE:    return new CountingInt(sink, count);
+                case LONG_VALUE:   return new CountingLong(sink, count);
+                case DOUBLE_VALUE: return new CountingDouble(sink, count);
+                default:           return new CountingRef<>(sink, count);
+            }
+        }
+
+        /**
+         * Records the completion of a leaf task.
+         *
+         * @param depth the number of splits between the root task and the leaf
+         * @param sizeEstimate the size estimate of the leaf's spliterator
+         * @param nanos the time spent computing the leaf
+         */
+        void leaf(int depth, long sizeEstimate, long nanos) {
+            leaves.increment();
+            leafNanos.add(nanos);
+            minLeafNanos.accumulate(nanos);
+            maxLeafNanos.accumulate(nanos);
+            minDepth.accumulate(depth);
+            maxDepth.accumulate(depth);
+            minSize.accumulate(sizeEstimate);
+            maxSize.accumulate(sizeEstimate);
+        }
+
+        /**
+         * Completes the report and logs it.
+         */
+        void end() {
+            long elapsed = System.nanoTime() - startNanos;
+            REPORTING.set(Boolean.TRUE);
+            try {
+                PlatformLogger logger = PlatformLogger.getLogger("java.util.stream");
+                if (logger.isLoggable(PlatformLogger.Level.INFO))
+                    logger.info(toString(elapsed));
+            } finally {
+                REPORTING.remove();
+            }
+        }
+
+        private String toString(long elapsedNanos) {
+            String nl = System.lineSeparator();
+            StringBuilder sb = new StringBuilder();
+            sb.append(parallel ? "Parallel" : "Sequential")
+              .append(" stream pipeline evaluated in ").append(millis(elapsedNanos))
+              .append(" ms").append(nl);
+            for (int i = 0; i < stages.length; i++) {
+                sb.append("  stage ").append(i).append(": ").append(labels[i]).append(": ");
+                if (counted[i])
+                    sb.append(counts[i].sum()).append(" elements out");
+                else
+                    sb.append("not counted");
+                sb.append(nl);
+            }
+            sb.append("  terminal: ").append(terminal).append(nl);
+            long n = leaves.sum();
+            if (n > 0) {
+                sb.append("  leaf tasks: ").append(n)
+                  .append(", depth ").append(minDepth.get()).append("..").append(maxDepth.get())
+                  .append(", size estimate ").append(minSize.get()).append("..").append(maxSize.get())
+                  .append(", time min/avg/max ").append(millis(minLeafNanos.get()))
+                  .append('/').append(millis(leafNanos.sum() / n))
+                  .append('/').append(millis(maxLeafNanos.get())).append(" ms").append(nl);
+            }
+            return sb.toString();
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /** Counts the elements passed to a reference sink. */
+    private static final class CountingRef<T> implements Sink<T> {
+        private final Sink<T> downstream;
+        private final LongAdder total;
+
+        CountingRef(Sink<T> downstream, LongAdder total) {
+            this.downstream = downstream;
+            this.total = total;
+        }
+
+        @Override public void begin(long size) { downstream.begin(size); }
+        @Override public boolean cancellationRequested() { return downstream.cancellationRequested(); }
+        @Override public void accept(T t) { total.increment(); downstream.accept(t); }
+
+        @Override public void end() { downstream.end(); }
+    }
+
+    /** Counts the elements passed to an int sink. */
+    private static final class CountingInt implements Sink.OfInt {
+        private final Sink<Integer> downstream;
+        private final LongAdder total;
+
+        CountingInt(Sink<Integer> downstream, LongAdder total) {
+            this.downstream = downstream;
+            this.total = total;
+        }
+
+        @Override public void begin(long size) { downstream.begin(size); }
+        @Override public boolean cancellationRequested() { return downstream.cancellationRequested(); }
+        @Override public void accept(int t) { total.increment(); downstream.accept(t); }
+
+        @Override public void end() { downstream.end(); }
+    }
+
+    /** Counts the elements passed to a long sink. */
+    private static final class CountingLong implements Sink.OfLong {
+        private final Sink<Long> downstream;
+        private final LongAdder total;
+
+        CountingLong(Sink<Long> downstream, LongAdder total) {
+            this.downstream = downstream;
+            this.total = total;
+        }
+
+        @Override public void begin(long size) { downstream.begin(size); }
+        @Override public boolean cancellationRequested() { return downstream.cancellationRequested(); }
+        @Override public void accept(long t) { total.increment(); downstream.accept(t); }
+
+        @Override public void end() { downstream.end(); }
+    }
+
+    /** Counts the elements passed to a double sink. */
+    private static final class CountingDouble implements Sink.OfDouble {
+        private final Sink<Double> downstream;
+        private final LongAdder total;
+
+        CountingDouble(Sink<Double> downstream, LongAdder total) {
+            this.downstream = downstream;
+            this.total = total;
+        }
+
+        @Override public void begin(long size) { downstream.begin(size); }
+        @Override public boolean cancellationRequested() { return downstream.cancellationRequested(); }
+        @Override public void accept(double t) { total.increment(); downstream.accept(t); }
+
+        @Override public void end() { downstream.end(); }
+    }
+}
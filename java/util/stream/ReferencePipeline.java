@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -33,6 +34,7 @@ import java.util.Spliterators;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 import java.util.function.Function;
@@ -394,6 +396,32 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> distinctExternal(int maxBufferedElements) {
+        return ExternalOps.makeDistinct(this, maxBufferedElements);
+    }
+
+    @Override
+    public final Stream<P_OUT> sortedExternal(Comparator<? super P_OUT> comparator,
+                                              int maxBufferedElements) {
+        return ExternalOps.makeSorted(this, comparator, maxBufferedElements);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> chunked(int size) {
+        return WindowOps.makeChunkedRef(this, size);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> sliding(int size) {
+        return WindowOps.makeSlidingRef(this, size);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> windowed(BiPredicate<? super P_OUT, ? super P_OUT> sameWindow) {
+        return WindowOps.makeWindowedRef(this, sameWindow);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
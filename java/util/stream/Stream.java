@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -39,6 +40,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
@@ -443,6 +445,173 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, buffering at most
+     * {@code maxBufferedElements} elements in memory during sequential
+     * evaluation.
+     *
+     * <p>When more elements than that are encountered, sorted runs are
+     * written to temporary files using Java serialization and merged as
+     * the resulting stream is consumed, so elements must then be
+     * {@link java.io.Serializable}.  Failure to write or read a temporary
+     * file is reported as an {@link java.io.UncheckedIOException}.
+     * Temporary files are deleted once consumed or if evaluation fails;
+     * those left by an evaluation that is abandoned are deleted when the
+     * stream is {@linkplain #close closed}.
+     * Parallel evaluation buffers all elements, as {@link #sorted(Comparator)}
+     * does.  For ordered streams, the sort is stable.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns {@code sorted(comparator)}.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param maxBufferedElements the maximum number of elements to buffer in
+     *                   memory
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxBufferedElements} is not
+     *         positive
+     * @since 1.8
+     */
+    default Stream<T> sortedExternal(Comparator<? super T> comparator,
+                                     int maxBufferedElements) {
+        if (maxBufferedElements <= 0)
+            throw new IllegalArgumentException("maxBufferedElements: " + maxBufferedElements);
+        return sorted(comparator);
+    }
+
+    /**
+     * Returns a stream consisting of the distinct elements (according to
+     * {@link Object#equals(Object)}) of this stream, keeping at most
+     * {@code maxBufferedElements} distinct elements in memory during
+     * sequential evaluation.
+     *
+     * <p>When more distinct elements than that are encountered, elements
+     * are hash-partitioned into temporary files using Java serialization,
+     * and each partition is deduplicated in turn, so elements must then be
+     * {@link java.io.Serializable}.  Failure to write or read a temporary
+     * file is reported as an {@link java.io.UncheckedIOException}.
+     * Temporary files are deleted once consumed or if evaluation fails;
+     * those left by an evaluation that is abandoned are deleted when the
+     * stream is {@linkplain #close closed}.
+     * The resulting stream is unordered: elements seen before the first
+     * spill are passed on in encounter order, later ones in partition order.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns {@code distinct()}.
+     *
+     * @param maxBufferedElements the maximum number of distinct elements to
+     *                   keep in memory
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxBufferedElements} is not
+     *         positive
+     * @since 1.8
+     */
+    default Stream<T> distinctExternal(int maxBufferedElements) {
+        if (maxBufferedElements <= 0)
+            throw new IllegalArgumentException("maxBufferedElements: " + maxBufferedElements);
+        return distinct();
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * lists of {@code size} consecutive elements, the last of which may have
+     * fewer elements.
+     *
+     * <p>Sequential evaluation buffers at most one chunk, and passes each
+     * chunk on as soon as it is complete.  Chunk boundaries follow the
+     * encounter order of the stream, if it has one, also in parallel
+     * evaluation, which buffers all elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This method is useful for processing a stream in batches, such as the
+     * rows of a batched database update:
+     * <pre>{@code
+     *     rows.chunked(1000).forEach(batch -> insertAll(batch));
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation groups the elements of this stream's
+     * {@link #iterator() iterator} as chunks are requested, so it buffers at
+     * most one chunk in sequential and parallel evaluation alike, and
+     * returns a stream that is parallel if this stream is.
+     *
+     * @param size the number of elements of each chunk but the last
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> chunked(int size) {
+        return WindowOps.windowsOf(this, size, size, true);
+    }
+
+    /**
+     * Returns a stream consisting of every list of {@code size} consecutive
+     * elements of this stream, in order of their first element.  If this
+     * stream has fewer than {@code size} elements, the resulting stream is
+     * empty.
+     *
+     * <p>Sequential evaluation buffers at most one window.  Parallel
+     * evaluation buffers all elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation groups the elements of this stream's
+     * {@link #iterator() iterator} as windows are requested, so it buffers at
+     * most one window in sequential and parallel evaluation alike, and
+     * returns a stream that is parallel if this stream is.
+     *
+     * @param size the number of elements of each window
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> sliding(int size) {
+        return WindowOps.windowsOf(this, size, 1, false);
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * lists of consecutive elements, where a new list is started whenever
+     * the provided predicate, applied to an element and the element
+     * following it, returns {@code false}.
+     *
+     * <p>Sequential evaluation buffers at most one window.  Parallel
+     * evaluation buffers all elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation groups the elements of this stream's
+     * {@link #iterator() iterator} as windows are requested, so it buffers at
+     * most one window in sequential and parallel evaluation alike, and
+     * returns a stream that is parallel if this stream is.
+     *
+     * @param sameWindow a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   predicate returning whether two adjacent elements
+     *                   belong to the same window
+     * @return the new stream
+     * @since 1.8
+     */
+    default Stream<List<T>> windowed(BiPredicate<? super T, ? super T> sameWindow) {
+        return WindowOps.windowsOf(this, sameWindow);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
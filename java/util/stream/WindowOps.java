@@ -0,0 +1,684 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming streams into streams of windows of
+ * consecutive elements: fixed-size chunks, fixed-size sliding windows, and
+ * windows delimited by a predicate on adjacent elements.
+ *
+ * <p>Sequential evaluation buffers at most one window at a time and passes
+ * each window downstream as soon as it is complete.  Parallel evaluation
+ * buffers all upstream elements, as {@link SortedOps} does, so that window
+ * boundaries follow the encounter order of the whole stream rather than the
+ * boundaries of the splits.
+ *
+ * <p>The {@code windowsOf} methods implement the default methods of
+ * {@link Stream}, for streams that are not pipelines of this package, by
+ * grouping the elements of the upstream iterator as windows are requested.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    /** Largest initial capacity of a window buffer, whatever the window size */
+    private static final int MAX_INITIAL_CAPACITY = 1 << 10;
+
+    /** Flags of a windowing operation */
+    private static final int FLAGS = StreamOpFlag.NOT_SIZED
+                                     | StreamOpFlag.NOT_SORTED
+                                     | StreamOpFlag.NOT_DISTINCT;
+
+    private static int checkSize(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return size;
+    }
+
+    /**
+     * Appends a "chunked" operation to the provided stream.
+     *
+     * @param <T> the type of input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements of each chunk but the last
+     */
+    static <T> Stream<List<T>> makeChunkedRef(AbstractPipeline<?, T, ?> upstream,
+                                              int size) {
+        return new OfRef<>(upstream, checkSize(size), size, true);
+    }
+
+    /**
+     * Appends a "sliding" operation to the provided stream.
+     *
+     * @param <T> the type of input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements of each window
+     */
+    static <T> Stream<List<T>> makeSlidingRef(AbstractPipeline<?, T, ?> upstream,
+                                              int size) {
+        return new OfRef<>(upstream, checkSize(size), 1, false);
+    }
+
+    /**
+     * Appends a "windowed" operation to the provided stream.
+     *
+     * @param <T> the type of input elements
+     * @param upstream a reference stream with element type T
+     * @param sameWindow the predicate applied to adjacent elements
+     */
+    static <T> Stream<List<T>> makeWindowedRef(AbstractPipeline<?, T, ?> upstream,
+                                               BiPredicate<? super T, ? super T> sameWindow) {
+        Objects.requireNonNull(sameWindow);
+        return new ReferencePipeline.StatefulOp<T, List<T>>(upstream, StreamShape.REFERENCE, FLAGS) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                return new PredicateWindowingSink<>(Objects.requireNonNull(sink), sameWindow);
+            }
+
+            @Override
+            <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<List<T>[]> generator) {
+                Object[] a = evaluateRef(helper, spliterator);
+                List<List<T>> windows = new ArrayList<>();
+                int from = 0;
+                for (int i = 1; i <= a.length; i++) {
+                    @SuppressWarnings("unchecked")
+                    boolean split = i == a.length ||
+                                    !sameWindow.test((T) a[i - 1], (T) a[i]);
+                    if (split) {
+                        windows.add(sublist(a, from, i));
+                        from = i;
+                    }
+                }
+                return Nodes.node(windows);
+            }
+        };
+    }
+
+    /**
+     * Appends a "chunked" operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements of each chunk but the last
+     */
+    static Stream<int[]> makeChunkedInt(AbstractPipeline<?, Integer, ?> upstream,
+                                        int size) {
+        return new OfInt(upstream, checkSize(size), size, true);
+    }
+
+    /**
+     * Appends a "sliding" operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements of each window
+     */
+    static Stream<int[]> makeSlidingInt(AbstractPipeline<?, Integer, ?> upstream,
+                                        int size) {
+        return new OfInt(upstream, checkSize(size), 1, false);
+    }
+
+    /**
+     * Appends a "chunked" operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements of each chunk but the last
+     */
+    static Stream<long[]> makeChunkedLong(AbstractPipeline<?, Long, ?> upstream,
+                                          int size) {
+        return new OfLong(upstream, checkSize(size), size, true);
+    }
+
+    /**
+     * Appends a "sliding" operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements of each window
+     */
+    static Stream<long[]> makeSlidingLong(AbstractPipeline<?, Long, ?> upstream,
+                                          int size) {
+        return new OfLong(upstream, checkSize(size), 1, false);
+    }
+
+    /**
+     * Appends a "chunked" operation to the provided stream.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements of each chunk but the last
+     */
+    static Stream<double[]> makeChunkedDouble(AbstractPipeline<?, Double, ?> upstream,
+                                              int size) {
+        return new OfDouble(upstream, checkSize(size), size, true);
+    }
+
+    /**
+     * Appends a "sliding" operation to the provided stream.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements of each window
+     */
+    static Stream<double[]> makeSlidingDouble(AbstractPipeline<?, Double, ?> upstream,
+                                              int size) {
+        return new OfDouble(upstream, checkSize(size), 1, false);
+    }
+
+    /**
+     * Returns a stream of the fixed-size windows of the elements of the
+     * provided stream, grouped from its iterator.  A window of {@code size}
+     * elements is produced every {@code step} elements; if {@code partial}
+     * is true, a final window of fewer elements is produced at the end.
+     *
+     * @param <T> the type of input elements
+     * @param upstream the stream to group
+     * @param size the number of elements of each window
+     * @param step the number of elements between the starts of windows
+     * @param partial whether to produce a final partial window
+     */
+    static <T> Stream<List<T>> windowsOf(Stream<T> upstream, int size, int step,
+                                         boolean partial) {
+        checkSize(size);
+        return streamOf(upstream, new WindowIterator<>(upstream.iterator(),
+                                                       size, step, partial));
+    }
+
+    /**
+     * Returns a stream of the windows of the elements of the provided
+     * stream delimited by a predicate on adjacent elements, grouped from its
+     * iterator.
+     *
+     * @param <T> the type of input elements
+     * @param upstream the stream to group
+     * @param sameWindow the predicate applied to adjacent elements
+     */
+    static <T> Stream<List<T>> windowsOf(Stream<T> upstream,
+                                         BiPredicate<? super T, ? super T> sameWindow) {
+        Objects.requireNonNull(sameWindow);
+        return streamOf(upstream, new PredicateWindowIterator<>(upstream.iterator(),
+                                                                sameWindow));
+    }
+
+    private static <T> Stream<List<T>> streamOf(Stream<?> upstream,
+                                                Iterator<List<T>> windows) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(windows, Spliterator.ORDERED
+                                                             | Spliterator.NONNULL),
+                upstream.isParallel())
+                .onClose(upstream::close);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, P_IN> Object[] evaluateRef(PipelineHelper<?> helper,
+                                                  Spliterator<P_IN> spliterator) {
+        PipelineHelper<T> h = (PipelineHelper<T>) helper;
+        return h.evaluate(spliterator, true, n -> (T[]) new Object[n]).asArray(n -> (T[]) new Object[n]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> sublist(Object[] a, int from, int to) {
+        return new ArrayList<>((List<T>) Arrays.asList(a).subList(from, to));
+    }
+
+    /**
+     * Returns the start index of the window at the given position, or -1 if
+     * there is no such window in an array of the given length.
+     */
+    private static int windowStart(int length, int size, int step, boolean partial,
+                                   int window) {
+        long start = (long) window * step;
+        if (start >= length || (!partial && start + size > length))
+            return -1;
+        return (int) start;
+    }
+
+    /**
+     * Specialized subtype for fixed-size windows of reference streams.  A
+     * window of {@code size} elements is passed downstream every {@code step}
+     * elements; if {@code partial} is true, a final window of fewer elements
+     * is passed downstream at the end.
+     */
+    private static final class OfRef<T> extends ReferencePipeline.StatefulOp<T, List<T>> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfRef(AbstractPipeline<?, T, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.REFERENCE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+            Objects.requireNonNull(sink);
+            return new Sink.ChainedReference<T, List<T>>(sink) {
+                ArrayList<T> buffer;
+
+                @Override
+                public void begin(long n) {
+                    buffer = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(T t) {
+                    buffer.add(t);
+                    if (buffer.size() == size) {
+                        if (step == size) {
+                            downstream.accept(buffer);
+                            buffer = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+                        }
+                        else {
+                            downstream.accept(new ArrayList<>(buffer));
+                            buffer.subList(0, step).clear();
+                        }
+                    }
+                }
+
+                @Override
+                public void end() {
+                    if (partial && !buffer.isEmpty() && !downstream.cancellationRequested())
+                        downstream.accept(buffer);
+                    buffer = null;
+                    downstream.end();
+                }
+            };
+        }
+
+        @Override
+        <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<List<T>[]> generator) {
+            Object[] a = evaluateRef(helper, spliterator);
+            List<List<T>> windows = new ArrayList<>();
+            int start;
+            for (int w = 0; (start = windowStart(a.length, size, step, partial, w)) >= 0; w++)
+                windows.add(sublist(a, start, Math.min(start + size, a.length)));
+            return Nodes.node(windows);
+        }
+    }
+
+    /**
+     * {@link Sink} for windows of reference streams delimited by a predicate
+     * on adjacent elements.
+     */
+    private static final class PredicateWindowingSink<T>
+            extends Sink.ChainedReference<T, List<T>> {
+        private final BiPredicate<? super T, ? super T> sameWindow;
+        private ArrayList<T> buffer;
+        private T last;
+
+        PredicateWindowingSink(Sink<? super List<T>> sink,
+                               BiPredicate<? super T, ? super T> sameWindow) {
+            super(sink);
+            this.sameWindow = sameWindow;
+        }
+
+        @Override
+        public void begin(long size) {
+            buffer = new ArrayList<>();
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (!buffer.isEmpty() && !sameWindow.test(last, t)) {
+                downstream.accept(buffer);
+                buffer = new ArrayList<>();
+            }
+            buffer.add(t);
+            last = t;
+        }
+
+        @Override
+        public void end() {
+            if (!buffer.isEmpty() && !downstream.cancellationRequested())
+                downstream.accept(buffer);
+            buffer = null;
+            last = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * {@link Iterator} over the fixed-size windows of the elements of another
+     * iterator, with the same windows as {@link OfRef}.
+     */
+    private static final class WindowIterator<T> implements Iterator<List<T>> {
+        private final Iterator<T> source;
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private ArrayList<T> buffer;
+
+        WindowIterator(Iterator<T> source, int size, int step, boolean partial) {
+            this.source = source;
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+            this.buffer = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (buffer.size() < size && source.hasNext())
+                buffer.add(source.next());
+            return buffer.size() == size || (partial && !buffer.isEmpty());
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            List<T> window;
+            if (step >= buffer.size()) {
+                window = buffer;
+                buffer = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+            }
+            else {
+                window = new ArrayList<>(buffer);
+                buffer.subList(0, step).clear();
+            }
+            return window;
+        }
+    }
+
+    /**
+     * {@link Iterator} over the windows of the elements of another iterator
+     * delimited by a predicate on adjacent elements.
+     */
+    private static final class PredicateWindowIterator<T> implements Iterator<List<T>> {
+        private final Iterator<T> source;
+        private final BiPredicate<? super T, ? super T> sameWindow;
+        // the first element of the next window, if already read from source
+        private T pending;
+        private boolean hasPending;
+
+        PredicateWindowIterator(Iterator<T> source,
+                                BiPredicate<? super T, ? super T> sameWindow) {
+            this.source = source;
+            this.sameWindow = sameWindow;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasPending || source.hasNext();
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            T last = hasPending ? pending : source.next();
+            pending = null;
+            hasPending = false;
+            ArrayList<T> window = new ArrayList<>();
+            window.add(last);
+            while (source.hasNext()) {
+                T t = source.next();
+                if (!sameWindow.test(last, t)) {
+                    pending = t;
+                    hasPending = true;
+                    break;
+                }
+                window.add(t);
+                last = t;
+            }
+            return window;
+        }
+    }
+
+    /**
+     * Specialized subtype for fixed-size windows of int streams.
+     */
+    private static final class OfInt extends ReferencePipeline.StatefulOp<Integer, int[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfInt(AbstractPipeline<?, Integer, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.INT_VALUE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+            Objects.requireNonNull(sink);
+            return new Sink.ChainedInt<int[]>(sink) {
+                int[] buffer;
+                int count;
+
+                @Override
+                public void begin(long n) {
+                    buffer = new int[Math.min(size, MAX_INITIAL_CAPACITY)];
+                    count = 0;
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(int t) {
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, Math.min(size, count * 2));
+                    buffer[count++] = t;
+                    if (count == size) {
+                        if (step == size) {
+                            downstream.accept(buffer);
+                            buffer = new int[buffer.length];
+                            count = 0;
+                        }
+                        else {
+                            downstream.accept(buffer.clone());
+                            System.arraycopy(buffer, step, buffer, 0, size - step);
+                            count = size - step;
+                        }
+                    }
+                }
+
+                @Override
+                public void end() {
+                    if (partial && count > 0 && !downstream.cancellationRequested())
+                        downstream.accept(Arrays.copyOf(buffer, count));
+                    buffer = null;
+                    downstream.end();
+                }
+            };
+        }
+
+        @Override
+        <P_IN> Node<int[]> opEvaluateParallel(PipelineHelper<int[]> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<int[][]> generator) {
+            @SuppressWarnings("unchecked")
+            PipelineHelper<Integer> h = (PipelineHelper<Integer>) (PipelineHelper<?>) helper;
+            int[] a = ((Node.OfInt) h.evaluate(spliterator, true, Integer[]::new)).asPrimitiveArray();
+            List<int[]> windows = new ArrayList<>();
+            int start;
+            for (int w = 0; (start = windowStart(a.length, size, step, partial, w)) >= 0; w++)
+                windows.add(Arrays.copyOfRange(a, start, Math.min(start + size, a.length)));
+            return Nodes.node(windows);
+        }
+    }
+
+    /**
+     * Specialized subtype for fixed-size windows of long streams.
+     */
+    private static final class OfLong extends ReferencePipeline.StatefulOp<Long, long[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfLong(AbstractPipeline<?, Long, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.LONG_VALUE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        Sink<Long> opWrapSink(int flags, Sink<long[]> sink) {
+            Objects.requireNonNull(sink);
+            return new Sink.ChainedLong<long[]>(sink) {
+                long[] buffer;
+                int count;
+
+                @Override
+                public void begin(long n) {
+                    buffer = new long[Math.min(size, MAX_INITIAL_CAPACITY)];
+                    count = 0;
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(long t) {
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, Math.min(size, count * 2));
+                    buffer[count++] = t;
+                    if (count == size) {
+                        if (step == size) {
+                            downstream.accept(buffer);
+                            buffer = new long[buffer.length];
+                            count = 0;
+                        }
+                        else {
+                            downstream.accept(buffer.clone());
+                            System.arraycopy(buffer, step, buffer, 0, size - step);
+                            count = size - step;
+                        }
+                    }
+                }
+
+                @Override
+                public void end() {
+                    if (partial && count > 0 && !downstream.cancellationRequested())
+                        downstream.accept(Arrays.copyOf(buffer, count));
+                    buffer = null;
+                    downstream.end();
+                }
+            };
+        }
+
+        @Override
+        <P_IN> Node<long[]> opEvaluateParallel(PipelineHelper<long[]> helper,
+                                               Spliterator<P_IN> spliterator,
+                                               IntFunction<long[][]> generator) {
+            @SuppressWarnings("unchecked")
+            PipelineHelper<Long> h = (PipelineHelper<Long>) (PipelineHelper<?>) helper;
+            long[] a = ((Node.OfLong) h.evaluate(spliterator, true, Long[]::new)).asPrimitiveArray();
+            List<long[]> windows = new ArrayList<>();
+            int start;
+            for (int w = 0; (start = windowStart(a.length, size, step, partial, w)) >= 0; w++)
+                windows.add(Arrays.copyOfRange(a, start, Math.min(start + size, a.length)));
+            return Nodes.node(windows);
+        }
+    }
+
+    /**
+     * Specialized subtype for fixed-size windows of double streams.
+     */
+    private static final class OfDouble extends ReferencePipeline.StatefulOp<Double, double[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfDouble(AbstractPipeline<?, Double, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.DOUBLE_VALUE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        Sink<Double> opWrapSink(int flags, Sink<double[]> sink) {
+            Objects.requireNonNull(sink);
+            return new Sink.ChainedDouble<double[]>(sink) {
+                double[] buffer;
+                int count;
+
+                @Override
+                public void begin(long n) {
+                    buffer = new double[Math.min(size, MAX_INITIAL_CAPACITY)];
+                    count = 0;
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(double t) {
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, Math.min(size, count * 2));
+                    buffer[count++] = t;
+                    if (count == size) {
+                        if (step == size) {
+                            downstream.accept(buffer);
+                            buffer = new double[buffer.length];
+                            count = 0;
+                        }
+                        else {
+                            downstream.accept(buffer.clone());
+                            System.arraycopy(buffer, step, buffer, 0, size - step);
+                            count = size - step;
+                        }
+                    }
+                }
+
+                @Override
+                public void end() {
+                    if (partial && count > 0 && !downstream.cancellationRequested())
+                        downstream.accept(Arrays.copyOf(buffer, count));
+                    buffer = null;
+                    downstream.end();
+                }
+            };
+        }
+
+        @Override
+        <P_IN> Node<double[]> opEvaluateParallel(PipelineHelper<double[]> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<double[][]> generator) {
+            @SuppressWarnings("unchecked")
+            PipelineHelper<Double> h = (PipelineHelper<Double>) (PipelineHelper<?>) helper;
+            double[] a = ((Node.OfDouble) h.evaluate(spliterator, true, Double[]::new)).asPrimitiveArray();
+            List<double[]> windows = new ArrayList<>();
+            int start;
+            for (int w = 0; (start = windowStart(a.length, size, step, partial, w)) >= 0; w++)
+                windows.add(Arrays.copyOfRange(a, start, Math.min(start + size, a.length)));
+            return Nodes.node(windows);
+        }
+    }
+}